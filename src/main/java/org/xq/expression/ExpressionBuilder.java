@@ -81,7 +81,7 @@ public class ExpressionBuilder extends ExpressionVisitor<String> {
     if (expression.isIndexed()) {
       this.outputBuilder.append("[");
     } else {
-      this.outputBuilder.append(".");
+      this.outputBuilder.append(expression.isNullSafe() ? "?." : ".");
     }
     for (int i = 0; i < expression.getParams().size(); i++) {
       if (i != 0) {
@@ -98,30 +98,37 @@ public class ExpressionBuilder extends ExpressionVisitor<String> {
   }
 
   @Override
-  public String visit(OperatorExpression expression) {
-    this.outputBuilder.append(expression.getOp());
+  public String visit(BinaryExpression expression) {
+    int priority = expression.getPriority();
+    boolean rightAssociative = priority == BinaryExpression.ASSIGN_PRIORITY;
+    this.visitOperand(expression.getLeft(), priority, rightAssociative);
+    this.outputBuilder.append(" ").append(expression.getOp()).append(" ");
+    this.visitOperand(expression.getRight(), priority, !rightAssociative);
     return null;
   }
 
   @Override
-  public String visit(ValueExpression expression) {
-    List<Expression> expressions = expression.getExpressionStack();
-    if (expression.isQuoted()) {
-      this.outputBuilder.append("(");
-    }
-    for (int i = 0; i < expressions.size(); i++) {
-      if (i != 0) {
-        this.outputBuilder.append(" ");
-      }
-      Expression subExpression = expression.getExpressionStack().get(i);
-      this.visit(subExpression);
-    }
-    if (expression.isQuoted()) {
-      this.outputBuilder.append(")");
+  public String visit(UnaryExpression expression) {
+    if (expression.isPrefix()) {
+      this.outputBuilder.append(expression.getOp()).append(" ");
+      this.visitOperand(expression.getOperand(), BinaryExpression.UNARY_PRIORITY, false);
+    } else {
+      this.visitOperand(expression.getOperand(), BinaryExpression.UNARY_PRIORITY, false);
+      this.outputBuilder.append(" ").append(expression.getOp());
     }
     return null;
   }
 
+  @Override
+  public String visit(TernaryExpression expression) {
+    this.visitOperand(expression.getCondition(), BinaryExpression.TERNARY_PRIORITY, true);
+    this.outputBuilder.append(" ? ");
+    this.visitOperand(expression.getTrueExpression(), BinaryExpression.TERNARY_PRIORITY, false);
+    this.outputBuilder.append(" : ");
+    this.visitOperand(expression.getFalseExpression(), BinaryExpression.TERNARY_PRIORITY, false);
+    return null;
+  }
+
   @Override
   public String visit(FunctionExpression expression) {
     this.outputBuilder.append(expression.getName());
@@ -140,7 +147,18 @@ public class ExpressionBuilder extends ExpressionVisitor<String> {
   @Override
   public String visit(ConstantExpression expression) {
     if (expression.getType() == ConstantExpression.TYPE_STRING) {
-      this.outputBuilder.append("\"").append(expression.getConstant()).append("\"");
+      this.outputBuilder.append("\"");
+      for (char ch: expression.getConstant().toCharArray()) {
+        switch (ch) {
+          case '"':  this.outputBuilder.append("\\\""); break;
+          case '\\': this.outputBuilder.append("\\\\"); break;
+          case '\n': this.outputBuilder.append("\\n"); break;
+          case '\r': this.outputBuilder.append("\\r"); break;
+          case '\t': this.outputBuilder.append("\\t"); break;
+          default:   this.outputBuilder.append(ch); break;
+        }
+      }
+      this.outputBuilder.append("\"");
     } else {
       this.outputBuilder.append(expression.getConstant());
     }
@@ -177,6 +195,30 @@ public class ExpressionBuilder extends ExpressionVisitor<String> {
     return null;
   }
 
+  private void visitOperand(Expression operand, int priority, boolean quoteEqual) {
+    int operandPriority = getPriority(operand);
+    boolean quoted = operandPriority > priority || (quoteEqual && operandPriority == priority);
+    if (quoted) {
+      this.outputBuilder.append("(");
+    }
+    this.visit(operand);
+    if (quoted) {
+      this.outputBuilder.append(")");
+    }
+  }
+
+  private static int getPriority(Expression expression) {
+    if (expression instanceof BinaryExpression) {
+      return ((BinaryExpression) expression).getPriority();
+    } else if (expression instanceof TernaryExpression) {
+      return BinaryExpression.TERNARY_PRIORITY;
+    } else if (expression instanceof UnaryExpression) {
+      return BinaryExpression.UNARY_PRIORITY;
+    } else {
+      return 0;
+    }
+  }
+
   private String printIndent(int indentLevel) {
     StringBuilder builder = new StringBuilder();
     for (int i = 0; i < indentLevel; i++) {
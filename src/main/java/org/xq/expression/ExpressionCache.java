@@ -0,0 +1,20 @@
+package org.xq.expression;
+
+import org.xq.expression.expressions.Expression;
+
+import java.util.function.Function;
+
+public class ExpressionCache<V> extends LoadingCache<String, V> {
+  public ExpressionCache(int maximumSize, Function<String, V> loader) {
+    super(maximumSize, loader);
+  }
+
+  public ExpressionCache(int maximumSize, boolean softValues, Function<String, V> loader) {
+    super(maximumSize, softValues, loader);
+  }
+
+  public static ExpressionCache<Expression> ofParser(int maximumSize) {
+    ExpressionParser parser = new ExpressionParser();
+    return new ExpressionCache<>(maximumSize, parser::parse);
+  }
+}
@@ -159,85 +159,113 @@ public class ExpressionParser {
   }
 
   private Expression parseCalculateExpression(Tokenizer tokenizer) {
-    List<Expression> subExpressions = new ArrayList<>();
-    Token token = tokenizer.lookNext();
-    boolean quoted = false;
-    if (token.getKind() == Kind.StartBracket && token.equalsValue("(")) {
-      tokenizer.next();
-      quoted = true;
-    }
+    return parseOperatorExpression(tokenizer, BinaryExpression.ASSIGN_PRIORITY);
+  }
+
+  private Expression parseOperatorExpression(Tokenizer tokenizer, int maxPriority) {
+    Expression current = parseUnaryExpression(tokenizer);
     while (true) {
-      token = tokenizer.lookNext();
-      if (token.getKind() == Kind.StartBracket && token.equalsValue("(")) {
-        subExpressions.add(parseCalculateExpression(tokenizer));
-      } else {
-        subExpressions.add(parseValuableExpression(tokenizer));
+      Token token = tokenizer.lookNext();
+      if (token.getKind() != Kind.Operator) {
+        break;
       }
 
-      token = tokenizer.lookNext();
-
-      if (token.getKind() == Kind.EndSegment) {
-        break;
-      } else if (token.getKind() == Kind.Keyword) {
+      String op = token.getValue();
+      if (":".equals(op)) {
         break;
-      } else if (token.getKind() == Kind.Equals) {
-        break;
-      } else if (token.getKind() == Kind.Separator && token.equalsValue(",")) {
-        break;
-      } else if (token.getKind() == Kind.EndBracket && token.equalsValue(")")) {
+      }
+
+      int priority = BinaryExpression.getPriority(op);
+      if (priority == -1) {
+        throw new RuntimeException(String.format("The %s is not supported.", op));
+      }
+      if (priority > maxPriority) {
         break;
       }
+
+      tokenizer.next();
+      if (priority == BinaryExpression.TERNARY_PRIORITY) {
+        Expression trueExpression = parseOperatorExpression(tokenizer, BinaryExpression.TERNARY_PRIORITY);
+        tokenizer.verifyNext(":");
+        Expression falseExpression = parseOperatorExpression(tokenizer, BinaryExpression.TERNARY_PRIORITY);
+        current = new TernaryExpression(current, trueExpression, falseExpression);
+      } else if (priority == BinaryExpression.ASSIGN_PRIORITY) {
+        current = new BinaryExpression(op, current, parseOperatorExpression(tokenizer, priority));
+      } else {
+        current = new BinaryExpression(op, current, parseOperatorExpression(tokenizer, priority - 1));
+      }
     }
-    if (quoted) {
+
+    return current;
+  }
+
+  private Expression parseUnaryExpression(Tokenizer tokenizer) {
+    Token token = tokenizer.lookNext();
+    Expression current;
+    if (token.getKind() == Kind.Operator) {
+      if (!UnaryExpression.isPrefixOperator(token.getValue())) {
+        throw new RuntimeException(String.format("Unexpected token in value statement. token: %s", token));
+      }
+      tokenizer.next();
+      return new UnaryExpression(token.getValue(), parseUnaryExpression(tokenizer), true);
+    } else if (token.getKind() == Kind.StartBracket && token.equalsValue("(")) {
+      tokenizer.next();
+      current = parseCalculateExpression(tokenizer);
       tokenizer.verifyNext(")");
+    } else {
+      current = parseValuableExpression(tokenizer);
     }
 
-    if (subExpressions.size() == 1) {
-      return subExpressions.get(0);
-    } else {
-      return new ValueExpression(subExpressions, quoted);
+    while (true) {
+      token = tokenizer.lookNext();
+      if (token.getKind() == Kind.Operator && UnaryExpression.isPostfixOperator(token.getValue())) {
+        tokenizer.next();
+        current = new UnaryExpression(token.getValue(), current, false);
+      } else {
+        return current;
+      }
     }
   }
 
   private Expression parseValuableExpression(Tokenizer tokenizer) {
     Expression current = null;
     Expression parent = null;
+    boolean nullSafe = false;
     Token token = tokenizer.lookNext();
     if (token.getKind() == Kind.Identity) {
       while (true) {
         token = tokenizer.next();
-        String identityValue = token.getValue();
+        Symbol identity = token.getSymbol();
         token = tokenizer.lookNext();
-        if (token.getKind() == Kind.StartBracket) {
-          if (token.equalsValue("(")) {
-            List<Expression> params = parseParamsExpressions(tokenizer, false);
-            current = new FunctionExpression(identityValue, params);
-          } else if (token.equalsValue("[")) {
-            List<Expression> params = parseParamsExpressions(tokenizer, true);
-            current = new AccessorExpression(new VariableExpression(identityValue), params, true);
+        if (parent != null) {
+          if (token.getKind() == Kind.StartBracket && token.equalsValue("(")) {
+            throw new RuntimeException(String.format("The %s method call is not supported.", identity));
           }
+          List<Expression> params = new ArrayList<>();
+          params.add(new VariableExpression(identity));
+          current = new AccessorExpression(parent, params, false, nullSafe);
+        } else if (token.getKind() == Kind.StartBracket && token.equalsValue("(")) {
+          List<Expression> params = parseParamsExpressions(tokenizer, false);
+          current = new FunctionExpression(identity, params);
         } else {
-          current = new VariableExpression(identityValue);
+          current = new VariableExpression(identity);
         }
 
         token = tokenizer.lookNext();
+        while (token.getKind() == Kind.StartBracket && token.equalsValue("[")) {
+          List<Expression> params = parseParamsExpressions(tokenizer, true);
+          current = new AccessorExpression(current, params, true);
+          token = tokenizer.lookNext();
+        }
+
         if (token.getKind() == Kind.Pointer) {
           tokenizer.next();
-          if (parent != null) {
-            List<Expression> params = new ArrayList<>();
-            params.add(current);
-            current = new AccessorExpression(parent, params, false);
-          }
+          nullSafe = token.equalsValue("?.");
           parent = current;
         } else {
           break;
         }
       }
-      if (parent != null) {
-        List<Expression> params = new ArrayList<>();
-        params.add(current);
-        current = new AccessorExpression(parent, params, false);
-      }
     } else if (token.getKind() == Kind.Keyword) {
       if (token.equalsValue("false") || token.equalsValue("true")) {
         tokenizer.next();
@@ -252,9 +280,6 @@ public class ExpressionParser {
     } else if (token.getKind() == Kind.String) {
       tokenizer.next();
       current = new ConstantExpression(token.getValue(), ConstantExpression.TYPE_STRING);
-    } else if (token.getKind() == Kind.Operator) {
-      tokenizer.next();
-      current = new OperatorExpression(token.getValue());
     } else {
       throw new RuntimeException(String.format("Unexpected token in value statement. token: %s", token));
     }
@@ -16,12 +16,14 @@ public abstract class ExpressionVisitor<T> {
       return this.visit((FunctionExpression)expression);
     } else if (expression instanceof IfExpression) {
       return this.visit((IfExpression)expression);
-    } else if (expression instanceof OperatorExpression) {
-      return this.visit((OperatorExpression)expression);
+    } else if (expression instanceof BinaryExpression) {
+      return this.visit((BinaryExpression)expression);
     } else if (expression instanceof ScopeExpression) {
       return this.visit((ScopeExpression)expression);
-    } else if (expression instanceof ValueExpression) {
-      return this.visit((ValueExpression)expression);
+    } else if (expression instanceof UnaryExpression) {
+      return this.visit((UnaryExpression)expression);
+    } else if (expression instanceof TernaryExpression) {
+      return this.visit((TernaryExpression)expression);
     } else if (expression instanceof VariableExpression) {
       return this.visit((VariableExpression)expression);
     } else if (expression instanceof WhileExpression) {
@@ -37,9 +39,10 @@ public abstract class ExpressionVisitor<T> {
   public abstract T visit(ConstantExpression expression);
   public abstract T visit(DeclareExpression expression);
   public abstract T visit(FunctionExpression expression);
-  public abstract T visit(OperatorExpression expression);
+  public abstract T visit(BinaryExpression expression);
   public abstract T visit(ScopeExpression expression);
-  public abstract T visit(ValueExpression expression);
+  public abstract T visit(UnaryExpression expression);
+  public abstract T visit(TernaryExpression expression);
   public abstract T visit(VariableExpression expression);
   public abstract T visit(IfExpression expression);
   public abstract T visit(WhileExpression expression);
@@ -0,0 +1,223 @@
+package org.xq.expression;
+
+import java.lang.ref.SoftReference;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+public class LoadingCache<K, V> {
+  private static final int SEGMENT_SIZE = 64;
+  private static final int MAXIMUM_SEGMENTS = 16;
+
+  private final boolean softValues;
+  private final long ttlNanos;
+  private final Function<K, V> loader;
+  private final Segment<K, V>[] segments;
+  private final ConcurrentHashMap<K, Loading<V>> loading;
+  private final AtomicLong hitCount;
+  private final AtomicLong missCount;
+  private final AtomicLong evictionCount;
+
+  public LoadingCache(int maximumSize, Function<K, V> loader) {
+    this(maximumSize, false, loader);
+  }
+
+  public LoadingCache(int maximumSize, boolean softValues, Function<K, V> loader) {
+    this(maximumSize, softValues, 0, loader);
+  }
+
+  @SuppressWarnings("unchecked")
+  public LoadingCache(int maximumSize, boolean softValues, long ttlMillis, Function<K, V> loader) {
+    if (maximumSize <= 0) {
+      throw new RuntimeException(String.format("The cache size should be positive. size: %d", maximumSize));
+    }
+    if (ttlMillis < 0) {
+      throw new RuntimeException(String.format("The cache ttl should not be negative. ttl: %d", ttlMillis));
+    }
+    this.softValues = softValues;
+    this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+    this.loader = loader;
+    this.loading = new ConcurrentHashMap<>();
+    this.hitCount = new AtomicLong();
+    this.missCount = new AtomicLong();
+    this.evictionCount = new AtomicLong();
+
+    int count = 1;
+    while (count < MAXIMUM_SEGMENTS && count * SEGMENT_SIZE * 2 <= maximumSize) {
+      count <<= 1;
+    }
+    // generic array creation; every slot is filled with a Segment<K, V> below
+    this.segments = new Segment[count];
+    for (int i = 0; i < count; i++) {
+      this.segments[i] = new Segment<>((maximumSize + count - 1) / count, this.evictionCount);
+    }
+  }
+
+  public V get(K key) {
+    V value = this.lookup(key);
+    if (value != null) {
+      this.hitCount.incrementAndGet();
+      return value;
+    }
+
+    Loading<V> future = new Loading<>();
+    Loading<V> existing = this.loading.putIfAbsent(key, future);
+    if (existing != null) {
+      if (existing.owner == Thread.currentThread()) {
+        throw new RuntimeException(String.format("The cache loader recursively requires %s.", key));
+      }
+      this.hitCount.incrementAndGet();
+      try {
+        return existing.join();
+      } catch (CompletionException e) {
+        if (e.getCause() instanceof Error) {
+          throw (Error) e.getCause();
+        }
+        throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+      }
+    }
+
+    try {
+      value = this.lookup(key);
+      if (value != null) {
+        this.hitCount.incrementAndGet();
+      } else {
+        this.missCount.incrementAndGet();
+        value = this.loader.apply(key);
+        if (value == null) {
+          throw new RuntimeException(String.format("The cache loader returns null for %s.", key));
+        }
+        this.store(key, value);
+      }
+      future.complete(value);
+      return value;
+    } catch (Throwable e) {
+      future.completeExceptionally(e);
+      throw e;
+    } finally {
+      this.loading.remove(key, future);
+    }
+  }
+
+  public void invalidate(K key) {
+    Segment<K, V> segment = this.segment(key);
+    synchronized (segment) {
+      segment.remove(key);
+    }
+  }
+
+  public void clear() {
+    for (Segment<K, V> segment: this.segments) {
+      synchronized (segment) {
+        segment.clear();
+      }
+    }
+  }
+
+  public int size() {
+    int size = 0;
+    for (Segment<K, V> segment: this.segments) {
+      synchronized (segment) {
+        size += segment.size();
+      }
+    }
+    return size;
+  }
+
+  public long getHitCount() {
+    return hitCount.get();
+  }
+
+  public long getMissCount() {
+    return missCount.get();
+  }
+
+  public long getEvictionCount() {
+    return evictionCount.get();
+  }
+
+  private Segment<K, V> segment(K key) {
+    int hash = key.hashCode();
+    return this.segments[(hash ^ (hash >>> 16)) & (this.segments.length - 1)];
+  }
+
+  private V lookup(K key) {
+    Segment<K, V> segment = this.segment(key);
+    synchronized (segment) {
+      Entry<V> entry = segment.get(key);
+      if (entry == null) {
+        return null;
+      }
+      V value = entry.get();
+      if (value == null || (this.ttlNanos != 0 && System.nanoTime() - entry.createdAt >= this.ttlNanos)) {
+        segment.remove(key);
+        this.evictionCount.incrementAndGet();
+        return null;
+      }
+      return value;
+    }
+  }
+
+  private void store(K key, V value) {
+    Entry<V> entry = new Entry<>(value, this.softValues, this.ttlNanos == 0 ? 0 : System.nanoTime());
+    Segment<K, V> segment = this.segment(key);
+    synchronized (segment) {
+      segment.put(key, entry);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName() + "{" +
+        "size=" + size() +
+        ", hitCount=" + hitCount +
+        ", missCount=" + missCount +
+        ", evictionCount=" + evictionCount +
+        '}';
+  }
+
+  private static final class Loading<V> extends CompletableFuture<V> {
+    private final Thread owner = Thread.currentThread();
+  }
+
+  private static final class Segment<K, V> extends LinkedHashMap<K, Entry<V>> {
+    private final int maximumSize;
+    private final AtomicLong evictionCount;
+
+    Segment(int maximumSize, AtomicLong evictionCount) {
+      super(16, 0.75f, true);
+      this.maximumSize = maximumSize;
+      this.evictionCount = evictionCount;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+      if (size() > this.maximumSize) {
+        this.evictionCount.incrementAndGet();
+        return true;
+      }
+      return false;
+    }
+  }
+
+  private static final class Entry<V> {
+    private final V value;
+    private final SoftReference<V> reference;
+    private final long createdAt;
+
+    Entry(V value, boolean soft, long createdAt) {
+      this.value = soft ? null : value;
+      this.reference = soft ? new SoftReference<>(value) : null;
+      this.createdAt = createdAt;
+    }
+
+    V get() {
+      return this.reference == null ? this.value : this.reference.get();
+    }
+  }
+}
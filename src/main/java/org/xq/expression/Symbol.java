@@ -0,0 +1,81 @@
+package org.xq.expression;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+
+public final class Symbol {
+  private static final ConcurrentHashMap<String, SymbolReference> SYMBOLS = new ConcurrentHashMap<>();
+  private static final ReferenceQueue<Symbol> QUEUE = new ReferenceQueue<>();
+
+  private final String name;
+  private final int hash;
+  private final Symbol folded;
+
+  private Symbol(String name, Symbol folded) {
+    this.name = name;
+    this.hash = name.hashCode();
+    this.folded = folded == null ? this : folded;
+  }
+
+  public static Symbol of(String name) {
+    SymbolReference reference = SYMBOLS.get(name);
+    Symbol symbol = reference == null ? null : reference.get();
+    if (symbol != null) {
+      return symbol;
+    }
+
+    expunge();
+    String lowerName = name.toLowerCase();
+    Symbol folded = lowerName.equals(name) ? null : of(lowerName);
+    symbol = new Symbol(name, folded);
+    SymbolReference created = new SymbolReference(name, symbol);
+    while (true) {
+      SymbolReference existing = SYMBOLS.putIfAbsent(name, created);
+      if (existing == null) {
+        return symbol;
+      }
+      Symbol current = existing.get();
+      if (current != null) {
+        return current;
+      }
+      if (SYMBOLS.replace(name, existing, created)) {
+        return symbol;
+      }
+    }
+  }
+
+  private static void expunge() {
+    for (Reference<? extends Symbol> reference = QUEUE.poll(); reference != null; reference = QUEUE.poll()) {
+      SYMBOLS.remove(((SymbolReference) reference).name, reference);
+    }
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public Symbol fold() {
+    return folded;
+  }
+
+  @Override
+  public int hashCode() {
+    return hash;
+  }
+
+  @Override
+  public String toString() {
+    return name;
+  }
+
+  private static final class SymbolReference extends WeakReference<Symbol> {
+    private final String name;
+
+    SymbolReference(String name, Symbol symbol) {
+      super(symbol, QUEUE);
+      this.name = name;
+    }
+  }
+}
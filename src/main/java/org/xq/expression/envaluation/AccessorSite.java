@@ -0,0 +1,395 @@
+package org.xq.expression.envaluation;
+
+import org.xq.expression.ExpressionBuilder;
+import org.xq.expression.Symbol;
+import org.xq.expression.expressions.AccessorExpression;
+import org.xq.expression.expressions.Expression;
+import org.xq.expression.expressions.VariableExpression;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+final class AccessorSite {
+  private static final int LIMIT = 4;
+  static final int KIND_HANDLE = 0;
+  static final int KIND_INT = 1;
+  static final int KIND_LONG = 2;
+  static final int KIND_DOUBLE = 3;
+  static final int KIND_BOOLEAN = 4;
+  static final int KIND_OBJECT = 5;
+  private static final AccessorTarget[] EMPTY = new AccessorTarget[0];
+  private static final MethodType GETTER = MethodType.methodType(Object.class, Object.class);
+  private static final MethodType SETTER = MethodType.methodType(void.class, Object.class, Object.class);
+  private static final MethodType ELEMENT_GETTER = MethodType.methodType(Object.class, Object.class, Object.class);
+  private static final MethodType ELEMENT_SETTER = MethodType.methodType(void.class, Object.class, Object.class, Object.class);
+  private static final MethodHandle INDEX;
+  private static final MethodHandle CHAR_AT;
+  private static final MethodHandle LENGTH;
+  private static final MethodHandle SIZE;
+  private static final MethodHandle MAP_GET;
+  private static final MethodHandle MAP_PUT;
+  private static final MethodHandle LIST_GET;
+  private static final MethodHandle LIST_SET;
+  private static final ClassValue<AccessorTarget> ELEMENTS = new ClassValue<AccessorTarget>() {
+    @Override
+    protected AccessorTarget computeValue(Class<?> type) {
+      if (type == int[].class) {
+        return new AccessorTarget(type, KIND_INT);
+      } else if (type == long[].class) {
+        return new AccessorTarget(type, KIND_LONG);
+      } else if (type == double[].class) {
+        return new AccessorTarget(type, KIND_DOUBLE);
+      } else if (type == boolean[].class) {
+        return new AccessorTarget(type, KIND_BOOLEAN);
+      } else if (Object[].class.isAssignableFrom(type)) {
+        return new AccessorTarget(type, KIND_OBJECT);
+      } else if (type.isArray()) {
+        return new AccessorTarget(type, MethodHandles.filterArguments(MethodHandles.arrayElementGetter(type), 1, INDEX).asType(ELEMENT_GETTER),
+            MethodHandles.filterArguments(MethodHandles.arrayElementSetter(type), 1, INDEX).asType(ELEMENT_SETTER), type.getComponentType());
+      } else if (Map.class.isAssignableFrom(type)) {
+        return new AccessorTarget(type, MAP_GET.asType(ELEMENT_GETTER), MAP_PUT.asType(ELEMENT_SETTER), Object.class);
+      } else if (List.class.isAssignableFrom(type)) {
+        return new AccessorTarget(type, MethodHandles.filterArguments(LIST_GET, 1, INDEX).asType(ELEMENT_GETTER),
+            MethodHandles.filterArguments(LIST_SET, 1, INDEX).asType(ELEMENT_SETTER), Object.class);
+      } else if (CharSequence.class.isAssignableFrom(type)) {
+        return new AccessorTarget(type, MethodHandles.filterArguments(CHAR_AT, 1, INDEX).asType(ELEMENT_GETTER), null, Object.class);
+      }
+      return null;
+    }
+  };
+
+  static {
+    MethodHandles.Lookup lookup = MethodHandles.lookup();
+    try {
+      INDEX = lookup.findStatic(AccessorSite.class, "index", MethodType.methodType(int.class, Object.class));
+      CHAR_AT = lookup.findStatic(AccessorSite.class, "charAt", MethodType.methodType(String.class, CharSequence.class, int.class));
+      LENGTH = lookup.findVirtual(CharSequence.class, "length", MethodType.methodType(int.class));
+      SIZE = lookup.findVirtual(List.class, "size", MethodType.methodType(int.class));
+      MAP_GET = lookup.findVirtual(Map.class, "get", MethodType.methodType(Object.class, Object.class));
+      MAP_PUT = lookup.findVirtual(Map.class, "put", MethodType.methodType(Object.class, Object.class, Object.class));
+      LIST_GET = lookup.findVirtual(List.class, "get", MethodType.methodType(Object.class, int.class));
+      LIST_SET = lookup.findVirtual(List.class, "set", MethodType.methodType(Object.class, int.class, Object.class));
+    } catch (ReflectiveOperationException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+
+  private final Symbol member;
+  private volatile AccessorTarget[] targets = EMPTY;
+
+  AccessorSite(Symbol member) {
+    this.member = member;
+  }
+
+  static AccessorSite of(AccessorExpression expression) {
+    if (expression.getParams().size() == 0) {
+      throw new RuntimeException("The accessor expression require one parameter at least.");
+    }
+    if (expression.getParams().size() != 1) {
+      throw new RuntimeException("The accessor expression ONLY require one parameter.");
+    }
+    if (expression.isIndexed()) {
+      return new AccessorSite(null);
+    }
+
+    Expression param = expression.getParams().get(0);
+    if (!(param instanceof VariableExpression)) {
+      throw new RuntimeException(String.format("The accessor member should be a name. member: %s", new ExpressionBuilder().build(param)));
+    }
+    return new AccessorSite(((VariableExpression) param).getSymbol());
+  }
+
+  boolean isIndexed() {
+    return this.member == null;
+  }
+
+  Object get(Object instance, Object key) {
+    AccessorTarget target = this.target(instance, key);
+    switch (target.kind) {
+      case KIND_INT:     return ((int[]) instance)[index(key)];
+      case KIND_LONG:    return ((long[]) instance)[index(key)];
+      case KIND_DOUBLE:  return ((double[]) instance)[index(key)];
+      case KIND_BOOLEAN: return ((boolean[]) instance)[index(key)];
+      case KIND_OBJECT:  return ((Object[]) instance)[index(key)];
+    }
+    try {
+      if (this.member == null) {
+        return (Object) target.getter.invokeExact(instance, key);
+      }
+      return (Object) target.getter.invokeExact(instance);
+    } catch (RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable e) {
+      throw new RuntimeException(String.format("Failed to read the %s member.", this.describe(key)), e);
+    }
+  }
+
+  void set(Object instance, Object key, Object value) {
+    AccessorTarget target = this.target(instance, key);
+    switch (target.kind) {
+      case KIND_INT:     ((int[]) instance)[index(key)] = this.number(instance, key, value).intValue(); return;
+      case KIND_LONG:    ((long[]) instance)[index(key)] = this.number(instance, key, value).longValue(); return;
+      case KIND_DOUBLE:  ((double[]) instance)[index(key)] = this.number(instance, key, value).doubleValue(); return;
+      case KIND_BOOLEAN: ((boolean[]) instance)[index(key)] = this.bool(instance, key, value); return;
+      case KIND_OBJECT:  ((Object[]) instance)[index(key)] = this.element(instance, key, value); return;
+    }
+    if (target.setter == null) {
+      throw new RuntimeException(String.format("The %s member is read only.", this.describe(key)));
+    }
+    value = BeanBinding.coerce(target.valueType, value);
+    try {
+      if (this.member == null) {
+        target.setter.invokeExact(instance, key, value);
+      } else {
+        target.setter.invokeExact(instance, value);
+      }
+    } catch (RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable e) {
+      throw new RuntimeException(String.format("Failed to write the %s member.", this.describe(key)), e);
+    }
+  }
+
+  private AccessorTarget target(Object instance, Object key) {
+    if (instance == null) {
+      throw new RuntimeException(String.format("The %s member can not be accessed on null.", this.describe(key)));
+    }
+
+    Class<?> type = instance.getClass();
+    AccessorTarget[] targets = this.targets;
+    for (AccessorTarget target: targets) {
+      if (target.type == type) {
+        return target;
+      }
+    }
+
+    AccessorTarget target = this.resolve(type, key);
+    if (targets.length < LIMIT) {
+      AccessorTarget[] updated = Arrays.copyOf(targets, targets.length + 1);
+      updated[targets.length] = target;
+      this.targets = updated;
+    }
+    return target;
+  }
+
+  private AccessorTarget resolve(Class<?> type, Object key) {
+    if (this.member == null) {
+      AccessorTarget target = ELEMENTS.get(type);
+      if (target == null) {
+        throw new RuntimeException(String.format("The %s value can not be indexed.", type.getName()));
+      }
+      return target;
+    }
+
+    if (Map.class.isAssignableFrom(type)) {
+      Object name = this.member.getName();
+      return new AccessorTarget(type, MethodHandles.insertArguments(MAP_GET, 1, name).asType(GETTER),
+          MethodHandles.insertArguments(MAP_PUT, 1, name).asType(SETTER), Object.class);
+    } else if (List.class.isAssignableFrom(type) && this.isLength()) {
+      return new AccessorTarget(type, SIZE.asType(GETTER), null, Object.class);
+    } else if (CharSequence.class.isAssignableFrom(type) && this.isLength()) {
+      return new AccessorTarget(type, LENGTH.asType(GETTER), null, Object.class);
+    }
+
+    HostProperty property = HostBinding.bean(type).find(this.member, true);
+    if (property == null || property.getter == null) {
+      throw new RuntimeException(String.format("The %s member does not exist in %s.", this.member, type.getName()));
+    }
+    return new AccessorTarget(type, property.getter, property.setter, property.type);
+  }
+
+  private Number number(Object instance, Object key, Object value) {
+    if (value instanceof Number) {
+      return (Number) value;
+    }
+    throw this.mismatch(instance, key, value);
+  }
+
+  private boolean bool(Object instance, Object key, Object value) {
+    if (value instanceof Boolean) {
+      return (Boolean) value;
+    }
+    throw this.mismatch(instance, key, value);
+  }
+
+  private Object element(Object instance, Object key, Object value) {
+    if (value == null || instance.getClass().getComponentType().isInstance(value)) {
+      return value;
+    }
+    throw this.mismatch(instance, key, value);
+  }
+
+  private RuntimeException mismatch(Object instance, Object key, Object value) {
+    return new RuntimeException(String.format("The %s element of %s can not be assigned. value: %s",
+        this.describe(key), instance.getClass().getComponentType().getName(), value));
+  }
+
+  private boolean isLength() {
+    return "length".equals(this.member.getName()) || "size".equals(this.member.getName());
+  }
+
+  private String describe(Object key) {
+    return this.member == null ? "[" + key + "]" : this.member.getName();
+  }
+
+  private static int index(Object key) {
+    if (key instanceof Integer) {
+      return (Integer) key;
+    } else if (key instanceof Long || key instanceof Short || key instanceof Byte) {
+      return ((Number) key).intValue();
+    }
+    throw new RuntimeException("The reference index should be int.");
+  }
+
+  private static String charAt(CharSequence text, int index) {
+    return String.valueOf(text.charAt(index));
+  }
+}
+
+final class AccessorTarget {
+  final Class<?> type;
+  final MethodHandle getter;
+  final MethodHandle setter;
+  final Class<?> valueType;
+  final int kind;
+
+  AccessorTarget(Class<?> type, MethodHandle getter, MethodHandle setter, Class<?> valueType) {
+    this.type = type;
+    this.getter = getter;
+    this.setter = setter;
+    this.valueType = valueType;
+    this.kind = AccessorSite.KIND_HANDLE;
+  }
+
+  AccessorTarget(Class<?> type, int kind) {
+    this.type = type;
+    this.getter = null;
+    this.setter = null;
+    this.valueType = type.getComponentType();
+    this.kind = kind;
+  }
+}
+
+final class AccessorPath {
+  private static final Object SKIPPED = new Object();
+
+  private final Expression root;
+  private final AccessorSite[] sites;
+  private final boolean[] nullSafe;
+
+  private AccessorPath(Expression root, AccessorSite[] sites, boolean[] nullSafe) {
+    this.root = root;
+    this.sites = sites;
+    this.nullSafe = nullSafe;
+  }
+
+  static AccessorPath of(AccessorExpression expression) {
+    List<AccessorExpression> links = new ArrayList<>();
+    Expression current = expression;
+    while (current instanceof AccessorExpression && !((AccessorExpression) current).isIndexed()) {
+      links.add((AccessorExpression) current);
+      current = ((AccessorExpression) current).getVariable();
+    }
+
+    AccessorSite[] sites = new AccessorSite[links.size()];
+    boolean[] nullSafe = new boolean[sites.length];
+    for (int i = 0; i < sites.length; i++) {
+      AccessorExpression link = links.get(sites.length - 1 - i);
+      sites[i] = AccessorSite.of(link);
+      nullSafe[i] = link.isNullSafe();
+    }
+    return new AccessorPath(current, sites, nullSafe);
+  }
+
+  Expression getRoot() {
+    return root;
+  }
+
+  Object get(Object instance) {
+    return this.getLast(this.parent(instance));
+  }
+
+  void set(Object instance, Object value) {
+    this.setLast(this.parent(instance), value);
+  }
+
+  Object parent(Object instance) {
+    int last = this.sites.length - 1;
+    for (int i = 0; i < last; i++) {
+      if (instance == null && this.nullSafe[i]) {
+        return SKIPPED;
+      }
+      instance = this.sites[i].get(instance, null);
+    }
+    return instance == null && this.nullSafe[last] ? SKIPPED : instance;
+  }
+
+  Object getLast(Object parent) {
+    return parent == SKIPPED ? null : this.sites[this.sites.length - 1].get(parent, null);
+  }
+
+  void setLast(Object parent, Object value) {
+    if (parent != SKIPPED) {
+      this.sites[this.sites.length - 1].set(parent, null, value);
+    }
+  }
+}
+
+final class PathReference extends ReferenceValue {
+  private static final Object UNRESOLVED = new Object();
+
+  private final AccessorPath path;
+  private final Object instance;
+  private Object parent = UNRESOLVED;
+
+  PathReference(AccessorPath path, Object instance) {
+    super(null);
+    this.path = path;
+    this.instance = instance;
+  }
+
+  @Override
+  public Object getValue() {
+    return this.path.getLast(this.parent());
+  }
+
+  @Override
+  public void assign(Object value) {
+    this.path.setLast(this.parent(), valueOf(value));
+  }
+
+  private Object parent() {
+    if (this.parent == UNRESOLVED) {
+      this.parent = this.path.parent(this.instance);
+    }
+    return this.parent;
+  }
+}
+
+final class AccessorReference extends ReferenceValue {
+  private final AccessorSite site;
+  private final Object instance;
+  private final Object key;
+
+  AccessorReference(AccessorSite site, Object instance, Object key) {
+    super(null);
+    this.site = site;
+    this.instance = instance;
+    this.key = key;
+  }
+
+  @Override
+  public Object getValue() {
+    return this.site.get(this.instance, this.key);
+  }
+
+  @Override
+  public void assign(Object value) {
+    this.site.set(this.instance, this.key, valueOf(value));
+  }
+}
@@ -0,0 +1,94 @@
+package org.xq.expression.envaluation;
+
+import org.xq.expression.Symbol;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class Batch {
+  private final int size;
+  private final Map<Symbol, Object> columns = new HashMap<>();
+  private final List<Symbol> names = new ArrayList<>();
+
+  public Batch(int size) {
+    if (size < 0) {
+      throw new RuntimeException(String.format("The batch size should not be negative. size: %d", size));
+    }
+    this.size = size;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public List<Symbol> getNames() {
+    return names;
+  }
+
+  public boolean exist(String name) {
+    return this.columns.containsKey(Symbol.of(name));
+  }
+
+  public void bind(String name, Object column) {
+    this.bind(Symbol.of(name), column);
+  }
+
+  public Object getColumn(String name) {
+    return this.getColumn(Symbol.of(name));
+  }
+
+  public int[] getInts(String name) {
+    return (int[]) this.typed(name, int[].class);
+  }
+
+  public long[] getLongs(String name) {
+    return (long[]) this.typed(name, long[].class);
+  }
+
+  public double[] getDoubles(String name) {
+    return (double[]) this.typed(name, double[].class);
+  }
+
+  public boolean[] getBooleans(String name) {
+    return (boolean[]) this.typed(name, boolean[].class);
+  }
+
+  public Object[] getObjects(String name) {
+    return (Object[]) this.typed(name, Object[].class);
+  }
+
+  void bind(Symbol name, Object column) {
+    if (column == null || !column.getClass().isArray()) {
+      throw new RuntimeException(String.format("The %s column should be an array.", name));
+    }
+    if (Array.getLength(column) != this.size) {
+      throw new RuntimeException(String.format("The %s column size should be %d. actual: %d", name, this.size, Array.getLength(column)));
+    }
+    Class<?> type = column.getClass().getComponentType();
+    if (type.isPrimitive() && type != int.class && type != long.class && type != double.class && type != boolean.class) {
+      throw new RuntimeException(String.format("The %s column type %s is not supported.", name, type));
+    }
+    if (this.columns.put(name, column) == null) {
+      this.names.add(name);
+    }
+  }
+
+  Object getColumn(Symbol name) {
+    Object column = this.columns.get(name);
+    if (column == null) {
+      throw new RuntimeException(String.format("The %s column does not exist.", name));
+    }
+    return column;
+  }
+
+  private Object typed(String name, Class<?> type) {
+    Object column = this.getColumn(Symbol.of(name));
+    if (!type.isInstance(column)) {
+      throw new RuntimeException(String.format("The %s column is not %s.", name, type.getSimpleName()));
+    }
+    return column;
+  }
+}
@@ -0,0 +1,814 @@
+package org.xq.expression.envaluation;
+
+import org.xq.expression.ExpressionBuilder;
+import org.xq.expression.ExpressionVisitor;
+import org.xq.expression.Symbol;
+import org.xq.expression.expressions.*;
+import org.xq.expression.functions.*;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+public class BatchEngine {
+  private final FunctionRegistry registry;
+
+  public BatchEngine() {
+    this(FunctionFactory.REGISTRY);
+  }
+
+  public BatchEngine(FunctionRegistry registry) {
+    this.registry = registry;
+  }
+
+  public Batch evaluate(Batch batch, Expression expression) {
+    Map<Symbol, Object> outputs;
+    if (isVectorizable(expression, false)) {
+      outputs = new LinkedHashMap<>();
+      new BatchEvaluation(batch, this.registry, outputs).visit(expression);
+    } else {
+      outputs = this.evaluateRows(batch, expression);
+    }
+    for (Map.Entry<Symbol, Object> entry: outputs.entrySet()) {
+      batch.bind(entry.getKey(), entry.getValue());
+    }
+    return batch;
+  }
+
+  private Map<Symbol, Object> evaluateRows(Batch batch, Expression expression) {
+    Set<Symbol> targets = new LinkedHashSet<>();
+    Set<Symbol> locals = new HashSet<>();
+    collectTargets(expression, targets, locals);
+    targets.removeAll(locals);
+    Map<Symbol, Object[]> columns = new LinkedHashMap<>();
+    for (Symbol target: targets) {
+      columns.put(target, new Object[batch.size()]);
+    }
+
+    ExpressionEngine engine = new ExpressionEngine(this.registry);
+    for (int row = 0; row < batch.size(); row++) {
+      EvaluationContext context = new EvaluationContext(true);
+      for (Symbol name: batch.getNames()) {
+        context.newVariable(name, Array.get(batch.getColumn(name), row));
+      }
+      for (Symbol target: targets) {
+        if (!context.exist(target)) {
+          context.newVariable(target, null);
+        }
+      }
+      engine.evaluate(context, expression);
+      for (Map.Entry<Symbol, Object[]> entry: columns.entrySet()) {
+        entry.getValue()[row] = context.getVariable(entry.getKey());
+      }
+    }
+
+    Map<Symbol, Object> outputs = new LinkedHashMap<>();
+    for (Map.Entry<Symbol, Object[]> entry: columns.entrySet()) {
+      outputs.put(entry.getKey(), BatchEvaluation.narrow(entry.getValue()));
+    }
+    return outputs;
+  }
+
+  private static boolean isVectorizable(Expression expression, boolean masked) {
+    if (expression instanceof ScopeExpression) {
+      for (Expression statement: ((ScopeExpression) expression).getExpressions()) {
+        if (!isVectorizable(statement, masked)) {
+          return false;
+        }
+      }
+      return true;
+    } else if (expression instanceof DeclareExpression) {
+      Expression declared = ((DeclareExpression) expression).getExpression();
+      return !masked && (declared instanceof VariableExpression
+          || (declared instanceof AssignExpression && isVectorizable(declared, false)));
+    } else if (expression instanceof AssignExpression) {
+      AssignExpression assignExpression = (AssignExpression) expression;
+      return !masked && assignExpression.getVariable() instanceof VariableExpression
+          && isVectorizable(assignExpression.getCalculateExpression(), false);
+    } else if (expression instanceof BinaryExpression) {
+      BinaryExpression binaryExpression = (BinaryExpression) expression;
+      if (binaryExpression.getPriority() == BinaryExpression.ASSIGN_PRIORITY) {
+        return !masked && binaryExpression.getLeft() instanceof VariableExpression
+            && isVectorizable(binaryExpression.getRight(), false);
+      }
+      boolean logical = "&&".equals(binaryExpression.getOp()) || "||".equals(binaryExpression.getOp());
+      return isVectorizable(binaryExpression.getLeft(), masked) && isVectorizable(binaryExpression.getRight(), masked || logical);
+    } else if (expression instanceof TernaryExpression) {
+      TernaryExpression ternaryExpression = (TernaryExpression) expression;
+      return isVectorizable(ternaryExpression.getCondition(), masked)
+          && isVectorizable(ternaryExpression.getTrueExpression(), true)
+          && isVectorizable(ternaryExpression.getFalseExpression(), true);
+    } else if (expression instanceof UnaryExpression) {
+      UnaryExpression unaryExpression = (UnaryExpression) expression;
+      return unaryExpression.isPrefix() && !UnaryExpression.isPostfixOperator(unaryExpression.getOp())
+          && isVectorizable(unaryExpression.getOperand(), masked);
+    } else if (expression instanceof FunctionExpression) {
+      FunctionExpression functionExpression = (FunctionExpression) expression;
+      if ("expose".equalsIgnoreCase(functionExpression.getName())) {
+        return false;
+      }
+      for (Expression param: functionExpression.getParams()) {
+        if (!isVectorizable(param, masked)) {
+          return false;
+        }
+      }
+      return true;
+    }
+    return expression instanceof ConstantExpression || expression instanceof VariableExpression;
+  }
+
+  private static void collectTargets(Expression expression, Set<Symbol> targets, Set<Symbol> locals) {
+    if (expression instanceof ScopeExpression) {
+      for (Expression statement: ((ScopeExpression) expression).getExpressions()) {
+        collectTargets(statement, targets, locals);
+      }
+    } else if (expression instanceof DeclareExpression) {
+      Expression declared = ((DeclareExpression) expression).getExpression();
+      if (declared instanceof AssignExpression) {
+        AssignExpression assignExpression = (AssignExpression) declared;
+        collectTarget(assignExpression.getVariable(), locals);
+        collectTargets(assignExpression.getCalculateExpression(), targets, locals);
+      } else {
+        collectTarget(declared, locals);
+      }
+    } else if (expression instanceof AssignExpression) {
+      AssignExpression assignExpression = (AssignExpression) expression;
+      if (!collectTarget(assignExpression.getVariable(), targets)) {
+        collectTargets(assignExpression.getVariable(), targets, locals);
+      }
+      collectTargets(assignExpression.getCalculateExpression(), targets, locals);
+    } else if (expression instanceof BinaryExpression) {
+      BinaryExpression binaryExpression = (BinaryExpression) expression;
+      if (binaryExpression.getPriority() != BinaryExpression.ASSIGN_PRIORITY || !collectTarget(binaryExpression.getLeft(), targets)) {
+        collectTargets(binaryExpression.getLeft(), targets, locals);
+      }
+      collectTargets(binaryExpression.getRight(), targets, locals);
+    } else if (expression instanceof UnaryExpression) {
+      UnaryExpression unaryExpression = (UnaryExpression) expression;
+      if (!UnaryExpression.isPostfixOperator(unaryExpression.getOp()) || !collectTarget(unaryExpression.getOperand(), targets)) {
+        collectTargets(unaryExpression.getOperand(), targets, locals);
+      }
+    } else if (expression instanceof TernaryExpression) {
+      TernaryExpression ternaryExpression = (TernaryExpression) expression;
+      collectTargets(ternaryExpression.getCondition(), targets, locals);
+      collectTargets(ternaryExpression.getTrueExpression(), targets, locals);
+      collectTargets(ternaryExpression.getFalseExpression(), targets, locals);
+    } else if (expression instanceof IfExpression) {
+      IfExpression ifExpression = (IfExpression) expression;
+      for (Expression condition: ifExpression.getConditions()) {
+        collectTargets(condition, targets, locals);
+      }
+      for (Expression scope: ifExpression.getScopes()) {
+        collectTargets(scope, targets, locals);
+      }
+      collectTargets(ifExpression.getElse(), targets, locals);
+    } else if (expression instanceof WhileExpression) {
+      collectTargets(((WhileExpression) expression).getCondition(), targets, locals);
+      collectTargets(((WhileExpression) expression).getScope(), targets, locals);
+    } else if (expression instanceof FunctionExpression) {
+      for (Expression param: ((FunctionExpression) expression).getParams()) {
+        collectTargets(param, targets, locals);
+      }
+    } else if (expression instanceof AccessorExpression) {
+      collectTargets(((AccessorExpression) expression).getVariable(), targets, locals);
+      for (Expression param: ((AccessorExpression) expression).getParams()) {
+        collectTargets(param, targets, locals);
+      }
+    }
+  }
+
+  private static boolean collectTarget(Expression variable, Set<Symbol> names) {
+    if (variable instanceof VariableExpression) {
+      names.add(((VariableExpression) variable).getSymbol());
+      return true;
+    }
+    return false;
+  }
+}
+
+final class BatchEvaluation extends ExpressionVisitor<Object> {
+  private static final int KIND_INT = 0;
+  private static final int KIND_LONG = 1;
+  private static final int KIND_DOUBLE = 2;
+  private static final int KIND_BOOLEAN = 3;
+  private static final int KIND_OBJECT = 4;
+
+  private final Batch batch;
+  private final int size;
+  private final FunctionRegistry registry;
+  private final Map<Symbol, Object> outputs;
+  private final Map<Symbol, Object> locals = new HashMap<>();
+
+  BatchEvaluation(Batch batch, FunctionRegistry registry, Map<Symbol, Object> outputs) {
+    this.batch = batch;
+    this.size = batch.size();
+    this.registry = registry;
+    this.outputs = outputs;
+  }
+
+  @Override
+  public Object visit(AssignExpression expression) {
+    return this.assign(expression.getVariable(), this.visit(expression.getCalculateExpression()));
+  }
+
+  @Override
+  public Object visit(ConstantExpression expression) {
+    Object value = expression.getValue();
+    if (value instanceof Integer) {
+      int[] column = new int[this.size];
+      Arrays.fill(column, (Integer) value);
+      return column;
+    } else if (value instanceof Long) {
+      long[] column = new long[this.size];
+      Arrays.fill(column, (Long) value);
+      return column;
+    } else if (value instanceof Double) {
+      double[] column = new double[this.size];
+      Arrays.fill(column, (Double) value);
+      return column;
+    } else if (value instanceof Boolean) {
+      boolean[] column = new boolean[this.size];
+      Arrays.fill(column, (Boolean) value);
+      return column;
+    }
+    Object[] column = new Object[this.size];
+    Arrays.fill(column, value);
+    return column;
+  }
+
+  @Override
+  public Object visit(DeclareExpression expression) {
+    if (expression.getExpression() instanceof VariableExpression) {
+      Symbol name = ((VariableExpression) expression.getExpression()).getSymbol();
+      this.locals.put(name, new Object[this.size]);
+      return null;
+    } else if (expression.getExpression() instanceof AssignExpression) {
+      AssignExpression assignExpression = (AssignExpression) expression.getExpression();
+      if (assignExpression.getVariable() instanceof VariableExpression) {
+        Object column = this.visit(assignExpression.getCalculateExpression());
+        this.locals.put(((VariableExpression) assignExpression.getVariable()).getSymbol(), column);
+        return column;
+      }
+    }
+    throw new RuntimeException("Invalid declare statement. Statement: " + new ExpressionBuilder().build(expression));
+  }
+
+  @Override
+  public Object visit(FunctionExpression expression) {
+    if ("expose".equalsIgnoreCase(expression.getName())) {
+      throw this.unsupported(expression);
+    }
+
+    IFunction function = this.registry.getFunction(expression.getSymbol());
+    List<Object> params = new ArrayList<>();
+    for (Expression param: expression.getParams()) {
+      params.add(this.visit(param));
+    }
+
+    if (params.size() == 1 && function instanceof IDoubleFunction1) {
+      IDoubleFunction1 doubleFunction = (IDoubleFunction1) function;
+      double[] a = this.doubles(params.get(0));
+      double[] result = new double[this.size];
+      for (int i = 0; i < this.size; i++) {
+        result[i] = doubleFunction.evaluate(a[i]);
+      }
+      return result;
+    } else if (params.size() == 2 && function instanceof IDoubleFunction2) {
+      IDoubleFunction2 doubleFunction = (IDoubleFunction2) function;
+      double[] a = this.doubles(params.get(0));
+      double[] b = this.doubles(params.get(1));
+      double[] result = new double[this.size];
+      for (int i = 0; i < this.size; i++) {
+        result[i] = doubleFunction.evaluate(a[i], b[i]);
+      }
+      return result;
+    } else if (params.size() == 1 && function instanceof ILongFunction1 && kind(params.get(0)) <= KIND_LONG) {
+      ILongFunction1 longFunction = (ILongFunction1) function;
+      long[] a = this.longs(params.get(0));
+      long[] result = new long[this.size];
+      for (int i = 0; i < this.size; i++) {
+        result[i] = longFunction.evaluate(a[i]);
+      }
+      return result;
+    } else if (params.size() == 2 && function instanceof ILongFunction2 && kind(params.get(0)) <= KIND_LONG && kind(params.get(1)) <= KIND_LONG) {
+      ILongFunction2 longFunction = (ILongFunction2) function;
+      long[] a = this.longs(params.get(0));
+      long[] b = this.longs(params.get(1));
+      long[] result = new long[this.size];
+      for (int i = 0; i < this.size; i++) {
+        result[i] = longFunction.evaluate(a[i], b[i]);
+      }
+      return result;
+    }
+
+    Object[] result = new Object[this.size];
+    for (int i = 0; i < this.size; i++) {
+      Object[] args = new Object[params.size()];
+      for (int j = 0; j < args.length; j++) {
+        args[j] = Array.get(params.get(j), i);
+      }
+      Object value = function.evaluate(args);
+      result[i] = value instanceof CompletableFuture ? new PendingValue((CompletableFuture<?>) value).join() : value;
+    }
+    return narrow(result);
+  }
+
+  @Override
+  public Object visit(BinaryExpression expression) {
+    String op = expression.getOp();
+    if (expression.getPriority() == BinaryExpression.ASSIGN_PRIORITY) {
+      Object left = this.visit(expression.getLeft());
+      Object value = this.binary(op.substring(0, op.length() - 1), left, this.visit(expression.getRight()));
+      return this.assign(expression.getLeft(), value);
+    }
+    if ("&&".equals(op) || "||".equals(op)) {
+      return this.logical(expression);
+    }
+    return this.binary(op, this.visit(expression.getLeft()), this.visit(expression.getRight()));
+  }
+
+  @Override
+  public Object visit(ScopeExpression expression) {
+    for (Expression subExpression: expression.getExpressions()) {
+      this.visit(subExpression);
+    }
+    return null;
+  }
+
+  @Override
+  public Object visit(UnaryExpression expression) {
+    if (!expression.isPrefix() || UnaryExpression.isPostfixOperator(expression.getOp())) {
+      throw this.unsupported(expression);
+    }
+
+    Object operand = this.visit(expression.getOperand());
+    int kind = kind(operand);
+    if ("-".equals(expression.getOp()) && kind <= KIND_DOUBLE) {
+      switch (kind) {
+        case KIND_INT: {
+          int[] a = (int[]) operand;
+          int[] result = new int[this.size];
+          for (int i = 0; i < this.size; i++) {
+            result[i] = -a[i];
+          }
+          return result;
+        }
+        case KIND_LONG: {
+          long[] a = (long[]) operand;
+          long[] result = new long[this.size];
+          for (int i = 0; i < this.size; i++) {
+            result[i] = -a[i];
+          }
+          return result;
+        }
+        default: {
+          double[] a = (double[]) operand;
+          double[] result = new double[this.size];
+          for (int i = 0; i < this.size; i++) {
+            result[i] = -a[i];
+          }
+          return result;
+        }
+      }
+    } else if ("!".equals(expression.getOp()) && kind == KIND_BOOLEAN) {
+      boolean[] a = (boolean[]) operand;
+      boolean[] result = new boolean[this.size];
+      for (int i = 0; i < this.size; i++) {
+        result[i] = !a[i];
+      }
+      return result;
+    } else if ("+".equals(expression.getOp()) && kind <= KIND_DOUBLE) {
+      return operand;
+    }
+
+    Calculator calculator = CalculatorBuilder.unary(expression.getOp(), true);
+    Object[] result = new Object[this.size];
+    for (int i = 0; i < this.size; i++) {
+      result[i] = calculator.calculate(Array.get(operand, i));
+    }
+    return narrow(result);
+  }
+
+  @Override
+  public Object visit(TernaryExpression expression) {
+    boolean[] condition = this.booleans(this.visit(expression.getCondition()));
+    Object trueColumn = this.select(expression.getTrueExpression(), condition, true);
+    Object falseColumn = this.select(expression.getFalseExpression(), condition, false);
+    if (trueColumn == null) {
+      return falseColumn;
+    } else if (falseColumn == null) {
+      return trueColumn;
+    }
+    int kind = Math.max(kind(trueColumn), kind(falseColumn));
+    if (kind <= KIND_DOUBLE) {
+      switch (kind) {
+        case KIND_INT: {
+          int[] a = (int[]) trueColumn;
+          int[] b = (int[]) falseColumn;
+          int[] result = new int[this.size];
+          for (int i = 0; i < this.size; i++) {
+            result[i] = condition[i] ? a[i] : b[i];
+          }
+          return result;
+        }
+        case KIND_LONG: {
+          long[] a = this.longs(trueColumn);
+          long[] b = this.longs(falseColumn);
+          long[] result = new long[this.size];
+          for (int i = 0; i < this.size; i++) {
+            result[i] = condition[i] ? a[i] : b[i];
+          }
+          return result;
+        }
+        default: {
+          double[] a = this.doubles(trueColumn);
+          double[] b = this.doubles(falseColumn);
+          double[] result = new double[this.size];
+          for (int i = 0; i < this.size; i++) {
+            result[i] = condition[i] ? a[i] : b[i];
+          }
+          return result;
+        }
+      }
+    }
+
+    Object[] result = new Object[this.size];
+    for (int i = 0; i < this.size; i++) {
+      result[i] = Array.get(condition[i] ? trueColumn : falseColumn, i);
+    }
+    return narrow(result);
+  }
+
+  @Override
+  public Object visit(VariableExpression expression) {
+    Symbol name = expression.getSymbol();
+    Object column = this.locals.get(name);
+    if (column == null) {
+      column = this.outputs.get(name);
+    }
+    if (column == null) {
+      if (!this.batch.getNames().contains(name)) {
+        throw new RuntimeException(String.format("The %s variable does not exist.", name));
+      }
+      column = this.batch.getColumn(name);
+    }
+    return column;
+  }
+
+  @Override
+  public Object visit(IfExpression expression) {
+    throw this.unsupported(expression);
+  }
+
+  @Override
+  public Object visit(WhileExpression expression) {
+    throw this.unsupported(expression);
+  }
+
+  @Override
+  public Object visit(AccessorExpression expression) {
+    throw this.unsupported(expression);
+  }
+
+  private Object assign(Expression variable, Object column) {
+    if (!(variable instanceof VariableExpression)) {
+      throw new RuntimeException(String.format("The %s should be a variable.", new ExpressionBuilder().build(variable)));
+    }
+    Symbol name = ((VariableExpression) variable).getSymbol();
+    if (this.locals.containsKey(name)) {
+      this.locals.put(name, column);
+    } else {
+      this.outputs.put(name, column);
+    }
+    return column;
+  }
+
+  private boolean[] logical(BinaryExpression expression) {
+    boolean and = "&&".equals(expression.getOp());
+    boolean[] left = this.booleans(this.visit(expression.getLeft()));
+    boolean[] result = Arrays.copyOf(left, this.size);
+    Object right = this.select(expression.getRight(), left, and);
+    if (right == null) {
+      return result;
+    }
+    for (int i = 0; i < this.size; i++) {
+      if (left[i] == and) {
+        result[i] = right instanceof boolean[] ? ((boolean[]) right)[i] : CalculatorBuilder.condition(Array.get(right, i));
+      }
+    }
+    return result;
+  }
+
+  private Object select(Expression expression, boolean[] mask, boolean expected) {
+    int count = 0;
+    for (boolean value: mask) {
+      if (value == expected) {
+        count++;
+      }
+    }
+    if (count == this.size) {
+      return this.visit(expression);
+    } else if (count == 0) {
+      return null;
+    }
+
+    int[] rows = new int[count];
+    for (int i = 0, j = 0; i < this.size; i++) {
+      if (mask[i] == expected) {
+        rows[j++] = i;
+      }
+    }
+    Batch subset = new Batch(count);
+    for (Symbol name: this.batch.getNames()) {
+      subset.bind(name, gather(this.batch.getColumn(name), rows));
+    }
+    for (Map.Entry<Symbol, Object> entry: this.outputs.entrySet()) {
+      subset.bind(entry.getKey(), gather(entry.getValue(), rows));
+    }
+    for (Map.Entry<Symbol, Object> entry: this.locals.entrySet()) {
+      subset.bind(entry.getKey(), gather(entry.getValue(), rows));
+    }
+
+    BatchEvaluation evaluation = new BatchEvaluation(subset, this.registry, new LinkedHashMap<>());
+    Object column = evaluation.visit(expression);
+    if (!evaluation.outputs.isEmpty() || !evaluation.locals.isEmpty()) {
+      throw this.unsupported(expression);
+    }
+    return this.scatter(column, rows);
+  }
+
+  private static Object gather(Object column, int[] rows) {
+    Object result = Array.newInstance(column.getClass().getComponentType(), rows.length);
+    switch (kind(column)) {
+      case KIND_INT:
+        for (int j = 0; j < rows.length; j++) ((int[]) result)[j] = ((int[]) column)[rows[j]];
+        break;
+      case KIND_LONG:
+        for (int j = 0; j < rows.length; j++) ((long[]) result)[j] = ((long[]) column)[rows[j]];
+        break;
+      case KIND_DOUBLE:
+        for (int j = 0; j < rows.length; j++) ((double[]) result)[j] = ((double[]) column)[rows[j]];
+        break;
+      case KIND_BOOLEAN:
+        for (int j = 0; j < rows.length; j++) ((boolean[]) result)[j] = ((boolean[]) column)[rows[j]];
+        break;
+      default:
+        for (int j = 0; j < rows.length; j++) ((Object[]) result)[j] = ((Object[]) column)[rows[j]];
+        break;
+    }
+    return result;
+  }
+
+  private Object scatter(Object column, int[] rows) {
+    Object result = Array.newInstance(column.getClass().getComponentType(), this.size);
+    switch (kind(column)) {
+      case KIND_INT:
+        for (int j = 0; j < rows.length; j++) ((int[]) result)[rows[j]] = ((int[]) column)[j];
+        break;
+      case KIND_LONG:
+        for (int j = 0; j < rows.length; j++) ((long[]) result)[rows[j]] = ((long[]) column)[j];
+        break;
+      case KIND_DOUBLE:
+        for (int j = 0; j < rows.length; j++) ((double[]) result)[rows[j]] = ((double[]) column)[j];
+        break;
+      case KIND_BOOLEAN:
+        for (int j = 0; j < rows.length; j++) ((boolean[]) result)[rows[j]] = ((boolean[]) column)[j];
+        break;
+      default:
+        for (int j = 0; j < rows.length; j++) ((Object[]) result)[rows[j]] = ((Object[]) column)[j];
+        break;
+    }
+    return result;
+  }
+
+  private Object binary(String op, Object left, Object right) {
+    int leftKind = kind(left);
+    int rightKind = kind(right);
+    int kind = Math.max(leftKind, rightKind);
+    switch (op) {
+      case "+":
+      case "-":
+      case "*":
+      case "/":
+      case "%":
+        if (kind <= KIND_DOUBLE) {
+          return this.arithmetic(op.charAt(0), kind, left, right);
+        }
+        break;
+      case ">":
+      case ">=":
+      case "<":
+      case "<=":
+      case "==":
+      case "!=":
+        if (kind <= KIND_DOUBLE) {
+          return this.compare(op, kind, left, right);
+        } else if (leftKind == KIND_BOOLEAN && rightKind == KIND_BOOLEAN && op.length() == 2 && op.charAt(1) == '=') {
+          boolean[] a = (boolean[]) left;
+          boolean[] b = (boolean[]) right;
+          boolean equal = "==".equals(op);
+          boolean[] result = new boolean[this.size];
+          for (int i = 0; i < this.size; i++) {
+            result[i] = (a[i] == b[i]) == equal;
+          }
+          return result;
+        }
+        break;
+    }
+
+    Calculator calculator = CalculatorBuilder.binary(op);
+    Object[] result = new Object[this.size];
+    for (int i = 0; i < this.size; i++) {
+      result[i] = calculator.calculate(Array.get(left, i), Array.get(right, i));
+    }
+    return narrow(result);
+  }
+
+  private Object arithmetic(char op, int kind, Object left, Object right) {
+    switch (kind) {
+      case KIND_INT: {
+        int[] a = (int[]) left;
+        int[] b = (int[]) right;
+        int[] result = new int[this.size];
+        switch (op) {
+          case '+': for (int i = 0; i < this.size; i++) result[i] = a[i] + b[i]; break;
+          case '-': for (int i = 0; i < this.size; i++) result[i] = a[i] - b[i]; break;
+          case '*': for (int i = 0; i < this.size; i++) result[i] = a[i] * b[i]; break;
+          case '/': for (int i = 0; i < this.size; i++) result[i] = a[i] / b[i]; break;
+          default:  for (int i = 0; i < this.size; i++) result[i] = a[i] % b[i]; break;
+        }
+        return result;
+      }
+      case KIND_LONG: {
+        long[] a = this.longs(left);
+        long[] b = this.longs(right);
+        long[] result = new long[this.size];
+        switch (op) {
+          case '+': for (int i = 0; i < this.size; i++) result[i] = a[i] + b[i]; break;
+          case '-': for (int i = 0; i < this.size; i++) result[i] = a[i] - b[i]; break;
+          case '*': for (int i = 0; i < this.size; i++) result[i] = a[i] * b[i]; break;
+          case '/': for (int i = 0; i < this.size; i++) result[i] = a[i] / b[i]; break;
+          default:  for (int i = 0; i < this.size; i++) result[i] = a[i] % b[i]; break;
+        }
+        return result;
+      }
+      default: {
+        double[] a = this.doubles(left);
+        double[] b = this.doubles(right);
+        double[] result = new double[this.size];
+        switch (op) {
+          case '+': for (int i = 0; i < this.size; i++) result[i] = a[i] + b[i]; break;
+          case '-': for (int i = 0; i < this.size; i++) result[i] = a[i] - b[i]; break;
+          case '*': for (int i = 0; i < this.size; i++) result[i] = a[i] * b[i]; break;
+          case '/': for (int i = 0; i < this.size; i++) result[i] = a[i] / b[i]; break;
+          default:  for (int i = 0; i < this.size; i++) result[i] = a[i] % b[i]; break;
+        }
+        return result;
+      }
+    }
+  }
+
+  private boolean[] compare(String op, int kind, Object left, Object right) {
+    boolean[] result = new boolean[this.size];
+    if (kind == KIND_DOUBLE) {
+      double[] a = this.doubles(left);
+      double[] b = this.doubles(right);
+      switch (op) {
+        case ">":  for (int i = 0; i < this.size; i++) result[i] = a[i] > b[i]; break;
+        case ">=": for (int i = 0; i < this.size; i++) result[i] = a[i] >= b[i]; break;
+        case "<":  for (int i = 0; i < this.size; i++) result[i] = a[i] < b[i]; break;
+        case "<=": for (int i = 0; i < this.size; i++) result[i] = a[i] <= b[i]; break;
+        case "==": for (int i = 0; i < this.size; i++) result[i] = a[i] == b[i]; break;
+        default:   for (int i = 0; i < this.size; i++) result[i] = a[i] != b[i]; break;
+      }
+      return result;
+    }
+
+    long[] a = this.longs(left);
+    long[] b = this.longs(right);
+    switch (op) {
+      case ">":  for (int i = 0; i < this.size; i++) result[i] = a[i] > b[i]; break;
+      case ">=": for (int i = 0; i < this.size; i++) result[i] = a[i] >= b[i]; break;
+      case "<":  for (int i = 0; i < this.size; i++) result[i] = a[i] < b[i]; break;
+      case "<=": for (int i = 0; i < this.size; i++) result[i] = a[i] <= b[i]; break;
+      case "==": for (int i = 0; i < this.size; i++) result[i] = a[i] == b[i]; break;
+      default:   for (int i = 0; i < this.size; i++) result[i] = a[i] != b[i]; break;
+    }
+    return result;
+  }
+
+  private long[] longs(Object column) {
+    if (column instanceof long[]) {
+      return (long[]) column;
+    }
+    long[] result = new long[this.size];
+    if (column instanceof int[]) {
+      int[] values = (int[]) column;
+      for (int i = 0; i < this.size; i++) {
+        result[i] = values[i];
+      }
+    } else {
+      for (int i = 0; i < this.size; i++) {
+        result[i] = IFunction.toLong(Array.get(column, i));
+      }
+    }
+    return result;
+  }
+
+  private double[] doubles(Object column) {
+    if (column instanceof double[]) {
+      return (double[]) column;
+    }
+    double[] result = new double[this.size];
+    if (column instanceof int[]) {
+      int[] values = (int[]) column;
+      for (int i = 0; i < this.size; i++) {
+        result[i] = values[i];
+      }
+    } else if (column instanceof long[]) {
+      long[] values = (long[]) column;
+      for (int i = 0; i < this.size; i++) {
+        result[i] = values[i];
+      }
+    } else {
+      for (int i = 0; i < this.size; i++) {
+        result[i] = IFunction.toDouble(Array.get(column, i));
+      }
+    }
+    return result;
+  }
+
+  private boolean[] booleans(Object column) {
+    if (column instanceof boolean[]) {
+      return (boolean[]) column;
+    }
+    boolean[] result = new boolean[this.size];
+    for (int i = 0; i < this.size; i++) {
+      result[i] = CalculatorBuilder.condition(Array.get(column, i));
+    }
+    return result;
+  }
+
+  private RuntimeException unsupported(Expression expression) {
+    return new RuntimeException(String.format("The %s statement is not supported in batch evaluation.", new ExpressionBuilder().build(expression)));
+  }
+
+  private static int kind(Object column) {
+    if (column instanceof int[]) {
+      return KIND_INT;
+    } else if (column instanceof long[]) {
+      return KIND_LONG;
+    } else if (column instanceof double[]) {
+      return KIND_DOUBLE;
+    } else if (column instanceof boolean[]) {
+      return KIND_BOOLEAN;
+    }
+    return KIND_OBJECT;
+  }
+
+  static Object narrow(Object[] column) {
+    if (column.length == 0 || column[0] == null) {
+      return column;
+    }
+    Class<?> type = column[0].getClass();
+    for (Object value: column) {
+      if (value == null || value.getClass() != type) {
+        return column;
+      }
+    }
+    if (type == Integer.class) {
+      int[] result = new int[column.length];
+      for (int i = 0; i < column.length; i++) {
+        result[i] = (Integer) column[i];
+      }
+      return result;
+    } else if (type == Long.class) {
+      long[] result = new long[column.length];
+      for (int i = 0; i < column.length; i++) {
+        result[i] = (Long) column[i];
+      }
+      return result;
+    } else if (type == Double.class) {
+      double[] result = new double[column.length];
+      for (int i = 0; i < column.length; i++) {
+        result[i] = (Double) column[i];
+      }
+      return result;
+    } else if (type == Boolean.class) {
+      boolean[] result = new boolean[column.length];
+      for (int i = 0; i < column.length; i++) {
+        result[i] = (Boolean) column[i];
+      }
+      return result;
+    }
+    return column;
+  }
+}
@@ -0,0 +1,104 @@
+package org.xq.expression.envaluation;
+
+import org.xq.expression.Symbol;
+
+import java.nio.ByteBuffer;
+
+public class BufferRecord {
+  private final RecordSchema schema;
+  private final ByteBuffer buffer;
+  private int base;
+
+  BufferRecord(RecordSchema schema, ByteBuffer buffer) {
+    if (schema.getRecordSize() == 0) {
+      throw new RuntimeException("The record schema does not have any field.");
+    }
+    this.schema = schema;
+    this.buffer = buffer;
+  }
+
+  public RecordSchema getSchema() {
+    return schema;
+  }
+
+  public ByteBuffer getBuffer() {
+    return buffer;
+  }
+
+  public int getBase() {
+    return base;
+  }
+
+  public void setBase(int base) {
+    if (base < 0 || base + this.schema.getRecordSize() > this.buffer.limit()) {
+      throw new RuntimeException(String.format("The record at %d is out of the buffer. limit: %d", base, this.buffer.limit()));
+    }
+    this.base = base;
+  }
+
+  public int count() {
+    return this.buffer.limit() / this.schema.getRecordSize();
+  }
+
+  public void moveTo(int index) {
+    this.setBase(index * this.schema.getRecordSize());
+  }
+
+  public int getInt(String name) {
+    return this.buffer.getInt(this.base + this.field(name, RecordSchema.TYPE_INT).offset);
+  }
+
+  public long getLong(String name) {
+    return this.buffer.getLong(this.base + this.field(name, RecordSchema.TYPE_LONG).offset);
+  }
+
+  public double getDouble(String name) {
+    return this.buffer.getDouble(this.base + this.field(name, RecordSchema.TYPE_DOUBLE).offset);
+  }
+
+  public boolean getBoolean(String name) {
+    return this.buffer.get(this.base + this.field(name, RecordSchema.TYPE_BOOLEAN).offset) != 0;
+  }
+
+  Object get(RecordField field) {
+    int position = this.base + field.offset;
+    switch (field.type) {
+      case RecordSchema.TYPE_INT:    return this.buffer.getInt(position);
+      case RecordSchema.TYPE_LONG:   return this.buffer.getLong(position);
+      case RecordSchema.TYPE_DOUBLE: return this.buffer.getDouble(position);
+      default:                       return this.buffer.get(position) != 0;
+    }
+  }
+
+  void set(RecordField field, Object value) {
+    int position = this.base + field.offset;
+    if (field.type == RecordSchema.TYPE_BOOLEAN) {
+      if (!(value instanceof Boolean)) {
+        throw new RuntimeException(String.format("The record field requires a boolean. actual: %s", value));
+      }
+      this.buffer.put(position, (byte) ((Boolean) value ? 1 : 0));
+      return;
+    }
+    if (!(value instanceof Number)) {
+      throw new RuntimeException(String.format("The record field requires a number. actual: %s", value));
+    }
+
+    Number number = (Number) value;
+    switch (field.type) {
+      case RecordSchema.TYPE_INT:  this.buffer.putInt(position, number.intValue()); break;
+      case RecordSchema.TYPE_LONG: this.buffer.putLong(position, number.longValue()); break;
+      default:                     this.buffer.putDouble(position, number.doubleValue()); break;
+    }
+  }
+
+  private RecordField field(String name, int type) {
+    RecordField field = this.schema.find(Symbol.of(name), true);
+    if (field == null) {
+      throw new RuntimeException(String.format("The %s field does not exist.", name));
+    }
+    if (field.type != type) {
+      throw new RuntimeException(String.format("The %s field type does not match.", name));
+    }
+    return field;
+  }
+}
@@ -0,0 +1,59 @@
+package org.xq.expression.envaluation;
+
+import org.xq.expression.ExpressionCache;
+import org.xq.expression.ExpressionParser;
+import org.xq.expression.LoadingCache;
+import org.xq.expression.expressions.Expression;
+import org.xq.expression.functions.FunctionRegistry;
+
+import java.util.function.Supplier;
+
+public class CompiledEngine implements IEngine {
+  public static final int DEFAULT_CACHE_SIZE = 1024;
+
+  private final ExpressionCache<CompiledScript> sourceCache;
+  private final LoadingCache<Expression, CompiledScript> scriptCache;
+
+  public CompiledEngine() {
+    this(ExpressionCompiler::new);
+  }
+
+  public CompiledEngine(FunctionRegistry registry) {
+    this(() -> new ExpressionCompiler(registry));
+  }
+
+  public CompiledEngine(Supplier<ICompiler> compilerFactory) {
+    this(compilerFactory, DEFAULT_CACHE_SIZE);
+  }
+
+  public CompiledEngine(Supplier<ICompiler> compilerFactory, int cacheSize) {
+    ExpressionParser parser = new ExpressionParser();
+    this.scriptCache = new LoadingCache<>(cacheSize, true, (expression) -> compilerFactory.get().compile(expression));
+    this.sourceCache = new ExpressionCache<>(cacheSize, (source) -> compilerFactory.get().compile(new ExpressionOptimizer().optimize(parser.parse(source))));
+  }
+
+  @Override
+  public EvaluationContext evaluate(EvaluationContext context, Expression expression) {
+    return this.compile(expression).evaluate(context);
+  }
+
+  public EvaluationContext evaluate(EvaluationContext context, String source) {
+    return this.compile(source).evaluate(context);
+  }
+
+  public CompiledScript compile(String source) {
+    return this.sourceCache.get(source);
+  }
+
+  public ExpressionCache<CompiledScript> getSourceCache() {
+    return sourceCache;
+  }
+
+  public LoadingCache<Expression, CompiledScript> getScriptCache() {
+    return scriptCache;
+  }
+
+  public CompiledScript compile(Expression expression) {
+    return this.scriptCache.get(expression);
+  }
+}
@@ -0,0 +1,18 @@
+package org.xq.expression.envaluation;
+
+public abstract class CompiledScript {
+  protected final Object[] constants;
+
+  protected CompiledScript(Object[] constants) {
+    this.constants = constants;
+  }
+
+  public EvaluationContext evaluate(EvaluationContext context) {
+    ExecutionFrame frame = new ExecutionFrame(context);
+    this.execute(frame);
+    frame.settle();
+    return context;
+  }
+
+  protected abstract void execute(ExecutionFrame frame);
+}
@@ -1,5 +1,6 @@
 package org.xq.expression.envaluation;
 
+import org.xq.expression.Symbol;
 import org.xq.expression.functions.IFunction;
 import org.xq.expression.functions.FunctionFactory;
 
@@ -7,8 +8,11 @@ import java.util.HashMap;
 
 public class EvaluationContext {
   public EvaluationContext parent;
-  public HashMap<String, Object> values;
+  public HashMap<Symbol, Object> values;
   private boolean caseSensitive = true;
+  private Object host;
+  private HostBinding binding;
+  boolean local;
 
   private EvaluationContext(EvaluationContext parent, boolean caseSensitive) {
     this.caseSensitive = caseSensitive;
@@ -24,6 +28,10 @@ public class EvaluationContext {
     this(parent, parent.caseSensitive);
   }
 
+  public boolean isCaseSensitive() {
+    return caseSensitive;
+  }
+
   public EvaluationContext pushContext() {
     return new EvaluationContext(this);
   }
@@ -36,45 +44,177 @@ public class EvaluationContext {
   }
 
   public Object getVariable(String variableName) {
-    String key = getKey(variableName);
-    if (values.containsKey(key)) {
-      return values.get(key);
-    } else {
-      return parent == null ? null : parent.getVariable(variableName);
+    return getVariable(Symbol.of(variableName));
+  }
+
+  public Object getVariable(Symbol variable) {
+    Symbol key = getKey(variable);
+    for (EvaluationContext context = this; context != null; context = context.parent) {
+      Object value = context.values.get(key);
+      if (value != null || context.values.containsKey(key)) {
+        return value;
+      }
+      if (context.binding != null) {
+        value = context.binding.get(context.host, key, caseSensitive);
+        if (value != HostBinding.MISSING) {
+          return value;
+        }
+      }
     }
+    return null;
   }
 
   public boolean exist(String variableName) {
-    String key = getKey(variableName);
-    if (values.containsKey(key)) {
-      return true;
-    } else {
-      return parent != null && parent.exist(variableName);
+    return exist(Symbol.of(variableName));
+  }
+
+  public boolean exist(Symbol variable) {
+    Symbol key = getKey(variable);
+    for (EvaluationContext context = this; context != null; context = context.parent) {
+      if (context.values.containsKey(key)) {
+        return true;
+      }
+      if (context.binding != null && context.binding.get(context.host, key, caseSensitive) != HostBinding.MISSING) {
+        return true;
+      }
     }
+    return false;
   }
 
   public boolean hasValue(String variableName) {
-    Object value = getVariable( variableName);
+    return hasValue(Symbol.of(variableName));
+  }
+
+  public boolean hasValue(Symbol variable) {
+    Object value = getVariable(variable);
     return value != null;
   }
 
   public void setVariable(String variableName, Object value) {
-    String key = getKey(variableName);
-    if (values.containsKey(key)) {
-      values.put(key, value);
-    } else if (parent != null) {
-      parent.setVariable(variableName, value);
-    } else {
-      throw new RuntimeException(String.format("The %s variable does not exist.", variableName));
+    setVariable(Symbol.of(variableName), value);
+  }
+
+  public void setVariable(Symbol variable, Object value) {
+    Symbol key = getKey(variable);
+    for (EvaluationContext context = this; context != null; context = context.parent) {
+      if (context.values.containsKey(key)) {
+        context.values.put(key, context.local ? value : PendingValue.await(value));
+        return;
+      }
+      if (context.binding != null && context.binding.set(context.host, key, caseSensitive, PendingValue.await(value))) {
+        return;
+      }
     }
+    throw new RuntimeException(String.format("The %s variable does not exist.", variable));
   }
 
   public void newVariable(String variableName, Object value) {
-    if (hasValue(variableName)) {
-      throw new RuntimeException(String.format("The %s variable exist.", variableName));
+    newVariable(Symbol.of(variableName), value);
+  }
+
+  public void newVariable(Symbol variable, Object value) {
+    if (hasValue(variable)) {
+      throw new RuntimeException(String.format("The %s variable exist.", variable));
     }
 
-    values.put(getKey(variableName), value);
+    values.put(getKey(variable), local ? value : PendingValue.await(value));
+  }
+
+  public void bind(Object host) {
+    this.binding = HostBinding.of(host);
+    this.host = host;
+  }
+
+  // Typed convenience accessors. Values are boxed into the variable map; hot callers should pass
+  // a Symbol to skip interning the name on every call.
+  public void setInt(String variableName, int value) {
+    this.put(Symbol.of(variableName), value);
+  }
+
+  public void setInt(Symbol variable, int value) {
+    this.put(variable, value);
+  }
+
+  public void setLong(String variableName, long value) {
+    this.put(Symbol.of(variableName), value);
+  }
+
+  public void setLong(Symbol variable, long value) {
+    this.put(variable, value);
+  }
+
+  public void setDouble(String variableName, double value) {
+    this.put(Symbol.of(variableName), value);
+  }
+
+  public void setDouble(Symbol variable, double value) {
+    this.put(variable, value);
+  }
+
+  public void setBoolean(String variableName, boolean value) {
+    this.put(Symbol.of(variableName), value);
+  }
+
+  public void setBoolean(Symbol variable, boolean value) {
+    this.put(variable, value);
+  }
+
+  public int getInt(String variableName) {
+    return this.getNumber(Symbol.of(variableName)).intValue();
+  }
+
+  public int getInt(Symbol variable) {
+    return this.getNumber(variable).intValue();
+  }
+
+  public long getLong(String variableName) {
+    return this.getNumber(Symbol.of(variableName)).longValue();
+  }
+
+  public long getLong(Symbol variable) {
+    return this.getNumber(variable).longValue();
+  }
+
+  public double getDouble(String variableName) {
+    return this.getNumber(Symbol.of(variableName)).doubleValue();
+  }
+
+  public double getDouble(Symbol variable) {
+    return this.getNumber(variable).doubleValue();
+  }
+
+  public boolean getBoolean(String variableName) {
+    return this.getBoolean(Symbol.of(variableName));
+  }
+
+  public boolean getBoolean(Symbol variable) {
+    Object value = getVariable(variable);
+    if (!(value instanceof Boolean)) {
+      throw new RuntimeException(String.format("The %s variable is not a bool value.", variable));
+    }
+    return (Boolean) value;
+  }
+
+  private void put(Symbol variable, Object value) {
+    Symbol key = getKey(variable);
+    for (EvaluationContext context = this; context != null; context = context.parent) {
+      if (context.values.containsKey(key)) {
+        context.values.put(key, value);
+        return;
+      }
+      if (context.binding != null && context.binding.set(context.host, key, caseSensitive, value)) {
+        return;
+      }
+    }
+    this.values.put(key, value);
+  }
+
+  private Number getNumber(Symbol variable) {
+    Object value = getVariable(variable);
+    if (!(value instanceof Number)) {
+      throw new RuntimeException(String.format("The %s variable is not a number.", variable));
+    }
+    return (Number) value;
   }
 
   public Object executeFunction(String name, Object... params) {
@@ -83,37 +223,35 @@ public class EvaluationContext {
   }
 
   public void levelUpVariable(String variableName) {
-    String key = getKey(variableName);
+    levelUpVariable(Symbol.of(variableName));
+  }
+
+  public void levelUpVariable(Symbol variable) {
+    Symbol key = getKey(variable);
     if (!values.containsKey(key)) {
-      throw new RuntimeException(String.format("The %s variable does not exist in this scope.", variableName));
+      throw new RuntimeException(String.format("The %s variable does not exist in this scope.", variable));
     }
 
     if (this.parent == null) {
       throw new RuntimeException("The parent context is null.");
     }
 
-    if (this.parent.hasValue(variableName)) {
-      throw new RuntimeException(String.format("The parent contains the %s variable.", variableName));
+    if (this.parent.hasValue(key)) {
+      throw new RuntimeException(String.format("The parent contains the %s variable.", variable));
     }
 
-    Object value = this.getVariable(key);
-    this.values.remove(key);
+    Object value = this.values.remove(key);
     this.parent.newVariable(key, value);
   }
 
-  private String getKey(String variableName) {
-    String key = variableName;
-    if (!this.caseSensitive) {
-      key = variableName.toLowerCase();
-    }
-
-    return key;
+  private Symbol getKey(Symbol variable) {
+    return this.caseSensitive ? variable : variable.fold();
   }
 
   @Override
   public String toString() {
     StringBuilder builder = new StringBuilder();
-    for (String key: this.values.keySet()) {
+    for (Symbol key: this.values.keySet()) {
       Object value = getVariable(key);
       builder.append("Name: ").append(key).append(", Value: ").append(value.toString()).append("\r\n");
     }
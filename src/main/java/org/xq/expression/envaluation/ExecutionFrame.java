@@ -0,0 +1,368 @@
+package org.xq.expression.envaluation;
+
+import org.xq.expression.Symbol;
+import org.xq.expression.functions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+public class ExecutionFrame {
+  private static final byte HOST_MISSING = 0;
+  private static final byte HOST_BOUND = 1;
+  private static final byte HOST_DIRTY = 2;
+  private static final byte HOST_NEW = 3;
+
+  private final EvaluationContext root;
+  private EvaluationContext current;
+  private EvaluationContext[] scopes;
+  private int depth;
+  Object[][] slots;
+  private Symbol[] hostNames;
+  private byte[] hostStates;
+  private List<PendingValue> pendings;
+
+  public ExecutionFrame(EvaluationContext context) {
+    this.root = context;
+    this.current = context;
+    this.scopes = new EvaluationContext[8];
+    this.scopes[0] = context;
+  }
+
+  public EvaluationContext getRoot() {
+    return root;
+  }
+
+  public void pushScope() {
+    if (++this.depth == this.scopes.length) {
+      this.scopes = Arrays.copyOf(this.scopes, this.depth * 2);
+    }
+  }
+
+  public void popScope() {
+    if (this.depth == 0) {
+      throw new RuntimeException("The parent is null.");
+    }
+    if (this.scopes[this.depth] != null) {
+      this.current = this.scopes[this.depth].parent;
+      this.scopes[this.depth] = null;
+    }
+    this.depth--;
+  }
+
+  EvaluationContext current() {
+    return this.current;
+  }
+
+  private EvaluationContext scope(int depth) {
+    EvaluationContext context = this.scopes[depth];
+    if (context != null) {
+      return context;
+    }
+
+    int parent = depth - 1;
+    while (this.scopes[parent] == null) {
+      parent--;
+    }
+    context = new EvaluationContext(this.scopes[parent]);
+    context.local = true;
+    this.scopes[depth] = context;
+    for (int i = depth + 1; i <= this.depth; i++) {
+      if (this.scopes[i] != null) {
+        this.scopes[i].parent = context;
+        return context;
+      }
+    }
+    this.current = context;
+    return context;
+  }
+
+  public Object reference(Symbol name) {
+    ReferenceValue referenceValue = new ReferenceValue(this.current);
+    referenceValue.name = name;
+    return referenceValue;
+  }
+
+  public Object load(int depth, int slot) {
+    return this.slots[depth][slot];
+  }
+
+  public Object reference(int depth, int slot) {
+    return new SlotReference(this, depth, slot);
+  }
+
+  public Object assign(int depth, int slot, Object value) {
+    value = ReferenceValue.deferred(value);
+    this.write(depth, slot, value);
+    return value;
+  }
+
+  public Object declare(Symbol name, int depth, int slot, int visibleDepth, int visibleSlot, Object value) {
+    value = ReferenceValue.deferred(value);
+    if (this.slots[visibleDepth][visibleSlot] != null) {
+      throw new RuntimeException(String.format("The %s variable exist.", name));
+    }
+    this.declare(depth, slot, value);
+    return value;
+  }
+
+  public void clear(int depth, int size) {
+    Arrays.fill(this.slots[depth], 0, size, null);
+  }
+
+  void bind(Symbol[] names, int[] sizes) {
+    Object[] hosts = new Object[names.length];
+    byte[] states = new byte[names.length];
+    for (int i = 0; i < names.length; i++) {
+      if (this.root.exist(names[i])) {
+        hosts[i] = this.root.getVariable(names[i]);
+        states[i] = HOST_BOUND;
+      }
+    }
+    this.slots = new Object[sizes.length][];
+    this.slots[0] = hosts;
+    for (int i = 1; i < sizes.length; i++) {
+      this.slots[i] = new Object[sizes[i]];
+    }
+    this.hostNames = names;
+    this.hostStates = states;
+  }
+
+  void unbind() {
+    Object[] hosts = this.slots[0];
+    for (int i = 0; i < this.hostNames.length; i++) {
+      if (this.hostStates[i] == HOST_DIRTY) {
+        this.root.setVariable(this.hostNames[i], hosts[i]);
+      } else if (this.hostStates[i] == HOST_NEW) {
+        this.root.newVariable(this.hostNames[i], hosts[i]);
+      }
+    }
+    this.slots = null;
+  }
+
+  void write(int depth, int slot, Object value) {
+    if (depth == 0) {
+      value = PendingValue.await(value);
+      if (this.hostStates[slot] == HOST_MISSING) {
+        throw new RuntimeException(String.format("The %s variable does not exist.", this.hostNames[slot]));
+      } else if (this.hostStates[slot] == HOST_BOUND) {
+        this.hostStates[slot] = HOST_DIRTY;
+      }
+    }
+    this.slots[depth][slot] = value;
+  }
+
+  void declare(int depth, int slot, Object value) {
+    if (depth == 0) {
+      value = PendingValue.await(value);
+      this.hostStates[slot] = HOST_NEW;
+    }
+    this.slots[depth][slot] = value;
+  }
+
+  public Object accessor(Object parent, Object site, Object key) {
+    return new AccessorReference((AccessorSite) site, ReferenceValue.valueOf(parent), ReferenceValue.valueOf(key));
+  }
+
+  public Object path(Object root, Object path) {
+    return new PathReference((AccessorPath) path, ReferenceValue.valueOf(root));
+  }
+
+  public Object assign(Object reference, Object value) {
+    toReference(reference).assign(value);
+    return value;
+  }
+
+  public Object declare(Object reference, Object value) {
+    ReferenceValue referenceValue = toReference(reference);
+    referenceValue.context = this.scope(this.depth);
+    referenceValue.isNew = true;
+    referenceValue.assign(value);
+    return value;
+  }
+
+  public void expose(Symbol name) {
+    EvaluationContext context = this.scopes[this.depth];
+    if (context == null) {
+      throw new RuntimeException(String.format("The %s variable does not exist in this scope.", name));
+    }
+    if (this.depth > 0) {
+      this.scope(this.depth - 1);
+    }
+    context.levelUpVariable(name);
+  }
+
+  public Object call(IFunction function) {
+    if (function instanceof IFunction0) {
+      return this.pending(((IFunction0) function).evaluate());
+    }
+    return this.pending(function.evaluate());
+  }
+
+  public Object call(IFunction function, Object a) {
+    a = ReferenceValue.valueOf(a);
+    if (function instanceof IFunction1) {
+      return this.pending(((IFunction1) function).evaluate(a));
+    } else if (function instanceof IDoubleFunction1) {
+      return ((IDoubleFunction1) function).evaluate(IFunction.toDouble(a));
+    } else if (function instanceof ILongFunction1) {
+      return ((ILongFunction1) function).evaluate(IFunction.toLong(a));
+    }
+    return this.pending(function.evaluate(a));
+  }
+
+  public Object call(IFunction function, Object a, Object b) {
+    a = ReferenceValue.valueOf(a);
+    b = ReferenceValue.valueOf(b);
+    if (function instanceof IFunction2) {
+      return this.pending(((IFunction2) function).evaluate(a, b));
+    } else if (function instanceof IDoubleFunction2) {
+      return ((IDoubleFunction2) function).evaluate(IFunction.toDouble(a), IFunction.toDouble(b));
+    } else if (function instanceof ILongFunction2) {
+      return ((ILongFunction2) function).evaluate(IFunction.toLong(a), IFunction.toLong(b));
+    }
+    return this.pending(function.evaluate(a, b));
+  }
+
+  public Object call(IFunction function, Object a, Object b, Object c) {
+    a = ReferenceValue.valueOf(a);
+    b = ReferenceValue.valueOf(b);
+    c = ReferenceValue.valueOf(c);
+    if (function instanceof IFunction3) {
+      return this.pending(((IFunction3) function).evaluate(a, b, c));
+    }
+    return this.pending(function.evaluate(a, b, c));
+  }
+
+  public Object call(IFunction function, Object a, Object b, Object c, Object d) {
+    a = ReferenceValue.valueOf(a);
+    b = ReferenceValue.valueOf(b);
+    c = ReferenceValue.valueOf(c);
+    d = ReferenceValue.valueOf(d);
+    if (function instanceof IFunction4) {
+      return this.pending(((IFunction4) function).evaluate(a, b, c, d));
+    }
+    return this.pending(function.evaluate(a, b, c, d));
+  }
+
+  public Object invoke(IFunction function, Object[] params) {
+    for (int i = 0; i < params.length; i++) {
+      params[i] = ReferenceValue.valueOf(params[i]);
+    }
+    return this.pending(function.evaluate(params));
+  }
+
+  void settle() {
+    if (this.pendings != null) {
+      for (PendingValue pending: this.pendings) {
+        pending.join();
+      }
+      this.pendings = null;
+    }
+  }
+
+  private Object pending(Object value) {
+    if (!(value instanceof CompletableFuture)) {
+      return value;
+    }
+    if (this.pendings == null) {
+      this.pendings = new ArrayList<>();
+    }
+    PendingValue pending = new PendingValue((CompletableFuture<?>) value);
+    this.pendings.add(pending);
+    return pending;
+  }
+
+  public Object calculate(Object calculator, Object operand) {
+    return ((Calculator) calculator).calculate(operand);
+  }
+
+  public Object calculate(Object calculator, Object left, Object right) {
+    return ((Calculator) calculator).calculate(left, right);
+  }
+
+  public Object calculateNumeric(Object calculator, Object left, Object right) {
+    left = ReferenceValue.valueOf(left);
+    right = ReferenceValue.valueOf(right);
+    if (left instanceof Integer && right instanceof Integer) {
+      return ((Calculator) calculator).calculateInt((Integer) left, (Integer) right);
+    } else if (SpecializedBinaryNode.isLong(left, right)) {
+      return ((Calculator) calculator).calculateLong(((Number) left).longValue(), ((Number) right).longValue());
+    } else if (SpecializedBinaryNode.isDouble(left, right)) {
+      return ((Calculator) calculator).calculateDouble(((Number) left).doubleValue(), ((Number) right).doubleValue());
+    }
+    return ((Calculator) calculator).calculate(left, right);
+  }
+
+  public Object shortCircuit(String operator, Object left) {
+    return CalculatorBuilder.shortCircuit(operator, left);
+  }
+
+  public boolean condition(Object value) {
+    return CalculatorBuilder.condition(value);
+  }
+
+  public Object value(Object value) {
+    return ReferenceValue.valueOf(value);
+  }
+
+  public boolean test(Object value) {
+    value = ReferenceValue.valueOf(value);
+    if (value instanceof Boolean) {
+      return (Boolean) value;
+    }
+    throw new RuntimeException("The If Expression should return bool for condition expression");
+  }
+
+  private ReferenceValue toReference(Object reference) {
+    if (!(reference instanceof ReferenceValue)) {
+      throw new RuntimeException(String.format("The %s should be a variable.", reference));
+    }
+    return (ReferenceValue) reference;
+  }
+}
+
+final class SlotReference extends ReferenceValue {
+  private final ExecutionFrame frame;
+  private final int depth;
+  private final int slot;
+
+  SlotReference(ExecutionFrame frame, int depth, int slot) {
+    super(null);
+    this.frame = frame;
+    this.depth = depth;
+    this.slot = slot;
+  }
+
+  @Override
+  public Object getValue() {
+    return this.frame.slots[this.depth][this.slot];
+  }
+
+  @Override
+  public void assign(Object value) {
+    this.frame.write(this.depth, this.slot, deferred(value));
+  }
+}
+
+final class PendingValue {
+  private final CompletableFuture<?> future;
+
+  PendingValue(CompletableFuture<?> future) {
+    this.future = future;
+  }
+
+  static Object await(Object value) {
+    return value instanceof PendingValue ? ((PendingValue) value).join() : value;
+  }
+
+  Object join() {
+    try {
+      return this.future.join();
+    } catch (CompletionException e) {
+      throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+    }
+  }
+}
@@ -0,0 +1,644 @@
+package org.xq.expression.envaluation;
+
+import org.xq.expression.Symbol;
+import org.xq.expression.functions.Builtins;
+import org.xq.expression.functions.FunctionLink;
+import org.xq.expression.functions.IFunction;
+
+import java.util.Arrays;
+
+public abstract class ExecutionNode {
+  public abstract Object execute(ExecutionFrame frame);
+
+  public Object executeValue(ExecutionFrame frame) {
+    return ReferenceValue.valueOf(this.execute(frame));
+  }
+
+  public Object executeDeferred(ExecutionFrame frame) {
+    return ReferenceValue.deferred(this.execute(frame));
+  }
+
+  static Object[] executeAll(ExecutionNode[] nodes, ExecutionFrame frame) {
+    Object[] values = new Object[nodes.length];
+    for (int i = 0; i < nodes.length; i++) {
+      values[i] = nodes[i].executeValue(frame);
+    }
+    return values;
+  }
+}
+
+final class ConstantNode extends ExecutionNode {
+  private final Object value;
+
+  ConstantNode(Object value) {
+    this.value = value;
+  }
+
+  @Override
+  public Object execute(ExecutionFrame frame) {
+    return this.value;
+  }
+}
+
+final class SlotNode extends ExecutionNode {
+  private final int depth;
+  private final int slot;
+
+  SlotNode(int depth, int slot) {
+    this.depth = depth;
+    this.slot = slot;
+  }
+
+  @Override
+  public Object execute(ExecutionFrame frame) {
+    return frame.slots[this.depth][this.slot];
+  }
+
+  @Override
+  public Object executeValue(ExecutionFrame frame) {
+    return PendingValue.await(frame.slots[this.depth][this.slot]);
+  }
+}
+
+final class SlotReferenceNode extends ExecutionNode {
+  private final int depth;
+  private final int slot;
+
+  SlotReferenceNode(int depth, int slot) {
+    this.depth = depth;
+    this.slot = slot;
+  }
+
+  @Override
+  public Object execute(ExecutionFrame frame) {
+    return new SlotReference(frame, this.depth, this.slot);
+  }
+
+  @Override
+  public Object executeValue(ExecutionFrame frame) {
+    return PendingValue.await(frame.slots[this.depth][this.slot]);
+  }
+
+  @Override
+  public Object executeDeferred(ExecutionFrame frame) {
+    return frame.slots[this.depth][this.slot];
+  }
+}
+
+final class SlotAssignNode extends ExecutionNode {
+  private final int depth;
+  private final int slot;
+  private final ExecutionNode value;
+
+  SlotAssignNode(int depth, int slot, ExecutionNode value) {
+    this.depth = depth;
+    this.slot = slot;
+    this.value = value;
+  }
+
+  @Override
+  public Object execute(ExecutionFrame frame) {
+    Object value = this.value.executeDeferred(frame);
+    frame.write(this.depth, this.slot, value);
+    return value;
+  }
+}
+
+final class SlotDeclareNode extends ExecutionNode {
+  private final Symbol name;
+  private final int depth;
+  private final int slot;
+  private final int visibleDepth;
+  private final int visibleSlot;
+  private final ExecutionNode value;
+
+  SlotDeclareNode(Symbol name, int depth, int slot, int visibleDepth, int visibleSlot, ExecutionNode value) {
+    this.name = name;
+    this.depth = depth;
+    this.slot = slot;
+    this.visibleDepth = visibleDepth;
+    this.visibleSlot = visibleSlot;
+    this.value = value;
+  }
+
+  @Override
+  public Object execute(ExecutionFrame frame) {
+    Object value = this.value == null ? null : this.value.executeDeferred(frame);
+    return frame.declare(this.name, this.depth, this.slot, this.visibleDepth, this.visibleSlot, value);
+  }
+}
+
+final class ExposeNode extends ExecutionNode {
+  private final Symbol name;
+  private final int depth;
+  private final int slot;
+  private final int targetDepth;
+  private final int targetSlot;
+  private final int visibleDepth;
+  private final int visibleSlot;
+
+  ExposeNode(Symbol name, int depth, int slot, int targetDepth, int targetSlot, int visibleDepth, int visibleSlot) {
+    this.name = name;
+    this.depth = depth;
+    this.slot = slot;
+    this.targetDepth = targetDepth;
+    this.targetSlot = targetSlot;
+    this.visibleDepth = visibleDepth;
+    this.visibleSlot = visibleSlot;
+  }
+
+  @Override
+  public Object execute(ExecutionFrame frame) {
+    if (this.slot < 0) {
+      throw new RuntimeException(String.format("The %s variable does not exist in this scope.", this.name));
+    }
+    if (this.targetDepth < 0) {
+      throw new RuntimeException("The parent context is null.");
+    }
+    if (frame.slots[this.visibleDepth][this.visibleSlot] != null) {
+      throw new RuntimeException(String.format("The parent contains the %s variable.", this.name));
+    }
+
+    Object[] slots = frame.slots[this.depth];
+    frame.declare(this.targetDepth, this.targetSlot, slots[this.slot]);
+    slots[this.slot] = null;
+    return null;
+  }
+}
+
+final class SequenceNode extends ExecutionNode {
+  private final ExecutionNode[] nodes;
+
+  SequenceNode(ExecutionNode[] nodes) {
+    this.nodes = nodes;
+  }
+
+  @Override
+  public Object execute(ExecutionFrame frame) {
+    for (ExecutionNode node: this.nodes) {
+      node.execute(frame);
+    }
+    return null;
+  }
+}
+
+final class AccessorNode extends ExecutionNode {
+  private final AccessorSite site;
+  private final ExecutionNode parent;
+  private final ExecutionNode key;
+
+  AccessorNode(AccessorSite site, ExecutionNode parent, ExecutionNode key) {
+    this.site = site;
+    this.parent = parent;
+    this.key = key;
+  }
+
+  @Override
+  public Object execute(ExecutionFrame frame) {
+    Object parentValue = this.parent.executeValue(frame);
+    return new AccessorReference(this.site, parentValue, this.key == null ? null : this.key.executeValue(frame));
+  }
+}
+
+final class AccessorValueNode extends ExecutionNode {
+  private final AccessorSite site;
+  private final ExecutionNode parent;
+  private final ExecutionNode key;
+
+  AccessorValueNode(AccessorSite site, ExecutionNode parent, ExecutionNode key) {
+    this.site = site;
+    this.parent = parent;
+    this.key = key;
+  }
+
+  @Override
+  public Object execute(ExecutionFrame frame) {
+    Object parentValue = this.parent.executeValue(frame);
+    return this.site.get(parentValue, this.key == null ? null : this.key.executeValue(frame));
+  }
+}
+
+final class PathNode extends ExecutionNode {
+  private final AccessorPath path;
+  private final ExecutionNode root;
+  private final boolean reference;
+
+  PathNode(AccessorPath path, ExecutionNode root, boolean reference) {
+    this.path = path;
+    this.root = root;
+    this.reference = reference;
+  }
+
+  @Override
+  public Object execute(ExecutionFrame frame) {
+    Object rootValue = this.root.executeValue(frame);
+    return this.reference ? new PathReference(this.path, rootValue) : this.path.get(rootValue);
+  }
+}
+
+final class AssignNode extends ExecutionNode {
+  private final ExecutionNode variable;
+  private final ExecutionNode value;
+
+  AssignNode(ExecutionNode variable, ExecutionNode value) {
+    this.variable = variable;
+    this.value = value;
+  }
+
+  @Override
+  public Object execute(ExecutionFrame frame) {
+    Object reference = this.variable.execute(frame);
+    return frame.assign(reference, this.value.execute(frame));
+  }
+}
+
+final class FunctionNode extends ExecutionNode {
+  private final FunctionLink link;
+  private final ExecutionNode[] params;
+
+  FunctionNode(FunctionLink link, ExecutionNode[] params) {
+    this.link = link;
+    this.params = params;
+  }
+
+  @Override
+  public Object execute(ExecutionFrame frame) {
+    IFunction function = this.link.get();
+    ExecutionNode[] params = this.params;
+    switch (params.length) {
+      case 0: return frame.call(function);
+      case 1: return frame.call(function, params[0].execute(frame));
+      case 2: return frame.call(function, params[0].execute(frame), params[1].execute(frame));
+      case 3: return frame.call(function, params[0].execute(frame), params[1].execute(frame), params[2].execute(frame));
+      case 4: return frame.call(function, params[0].execute(frame), params[1].execute(frame), params[2].execute(frame), params[3].execute(frame));
+      default: return frame.invoke(function, executeAll(params, frame));
+    }
+  }
+}
+
+final class IntrinsicNode extends ExecutionNode {
+  private static final int SQRT = 0;
+  private static final int EXP = 1;
+  private static final int LOG = 2;
+  private static final int FLOOR = 3;
+  private static final int CEIL = 4;
+  private static final int ABS = 5;
+  private static final int ROUND = 6;
+  private static final int LEN = 7;
+  private static final int MIN = 8;
+  private static final int MAX = 9;
+  private static final int POW = 10;
+  private static final int INDEX_OF = 11;
+
+  private final int intrinsic;
+  private final IFunction function;
+  private final FunctionLink link;
+  private final ExecutionNode first;
+  private final ExecutionNode second;
+  private final ExecutionNode fallback;
+
+  private IntrinsicNode(int intrinsic, IFunction function, FunctionLink link, ExecutionNode[] params, ExecutionNode fallback) {
+    this.intrinsic = intrinsic;
+    this.function = function;
+    this.link = link;
+    this.first = params[0];
+    this.second = params.length > 1 ? params[1] : null;
+    this.fallback = fallback;
+  }
+
+  static ExecutionNode of(IFunction function, FunctionLink link, ExecutionNode[] params) {
+    ExecutionNode node = new FunctionNode(link, params);
+    int intrinsic = -1;
+    if (params.length == 1) {
+      if (function == Builtins.SQRT) {
+        intrinsic = SQRT;
+      } else if (function == Builtins.EXP) {
+        intrinsic = EXP;
+      } else if (function == Builtins.LOG) {
+        intrinsic = LOG;
+      } else if (function == Builtins.FLOOR) {
+        intrinsic = FLOOR;
+      } else if (function == Builtins.CEIL) {
+        intrinsic = CEIL;
+      } else if (function == Builtins.ABS) {
+        intrinsic = ABS;
+      } else if (function == Builtins.ROUND) {
+        intrinsic = ROUND;
+      } else if (function == Builtins.LEN) {
+        intrinsic = LEN;
+      }
+    } else if (params.length == 2) {
+      if (function == Builtins.MIN) {
+        intrinsic = MIN;
+      } else if (function == Builtins.MAX) {
+        intrinsic = MAX;
+      } else if (function == Builtins.POW) {
+        intrinsic = POW;
+      } else if (function == Builtins.INDEX_OF) {
+        intrinsic = INDEX_OF;
+      }
+    }
+    return intrinsic < 0 ? node : new IntrinsicNode(intrinsic, function, link, params, node);
+  }
+
+  @Override
+  public Object execute(ExecutionFrame frame) {
+    if (this.link.get() != this.function) {
+      return this.fallback.execute(frame);
+    }
+
+    Object a = this.first.executeValue(frame);
+    switch (this.intrinsic) {
+      case SQRT:  return Math.sqrt(toDouble(a));
+      case EXP:   return Math.exp(toDouble(a));
+      case LOG:   return Math.log(toDouble(a));
+      case FLOOR: return Math.floor(toDouble(a));
+      case CEIL:  return Math.ceil(toDouble(a));
+      case ABS:
+        if (a instanceof Integer) {
+          return Math.abs((int) a);
+        } else if (a instanceof Double) {
+          return Math.abs((double) a);
+        }
+        return frame.call(this.function, a);
+      case ROUND:
+        if (a instanceof Double) {
+          return Math.round((double) a);
+        }
+        return frame.call(this.function, a);
+      case LEN:
+        if (a instanceof String) {
+          return ((String) a).length();
+        }
+        return frame.call(this.function, a);
+    }
+
+    Object b = this.second.executeValue(frame);
+    switch (this.intrinsic) {
+      case MIN:
+        if (a instanceof Integer && b instanceof Integer) {
+          return (int) a <= (int) b ? a : b;
+        } else if (a instanceof Double && b instanceof Double) {
+          return Double.compare((double) a, (double) b) <= 0 ? a : b;
+        }
+        return frame.call(this.function, a, b);
+      case MAX:
+        if (a instanceof Integer && b instanceof Integer) {
+          return (int) a >= (int) b ? a : b;
+        } else if (a instanceof Double && b instanceof Double) {
+          return Double.compare((double) a, (double) b) >= 0 ? a : b;
+        }
+        return frame.call(this.function, a, b);
+      case POW:
+        return Math.pow(toDouble(a), toDouble(b));
+      case INDEX_OF:
+        if (a instanceof String && b instanceof String) {
+          return ((String) a).indexOf((String) b);
+        }
+        return frame.call(this.function, a, b);
+      default:
+        return frame.call(this.function, a, b);
+    }
+  }
+
+  private static double toDouble(Object value) {
+    return value instanceof Double ? (double) value : IFunction.toDouble(value);
+  }
+}
+
+final class BinaryNode extends ExecutionNode {
+  private final Calculator calculator;
+  private final ExecutionNode left;
+  private final ExecutionNode right;
+
+  BinaryNode(Calculator calculator, ExecutionNode left, ExecutionNode right) {
+    this.calculator = calculator;
+    this.left = left;
+    this.right = right;
+  }
+
+  @Override
+  public Object execute(ExecutionFrame frame) {
+    Object leftValue = this.left.execute(frame);
+    return this.calculator.calculate(leftValue, this.right.execute(frame));
+  }
+}
+
+final class SpecializedBinaryNode extends ExecutionNode {
+  private static final int STATE_UNINITIALIZED = 0;
+  private static final int STATE_INT = 1;
+  private static final int STATE_LONG = 2;
+  private static final int STATE_DOUBLE = 3;
+  private static final int STATE_GENERIC = 4;
+
+  private final Calculator calculator;
+  private final ExecutionNode left;
+  private final ExecutionNode right;
+  private volatile int state;
+
+  SpecializedBinaryNode(Calculator calculator, ExecutionNode left, ExecutionNode right) {
+    this.calculator = calculator;
+    this.left = left;
+    this.right = right;
+    this.state = STATE_UNINITIALIZED;
+  }
+
+  @Override
+  public Object execute(ExecutionFrame frame) {
+    Object leftValue = this.left.executeDeferred(frame);
+    Object rightValue = this.right.executeValue(frame);
+    if (leftValue instanceof PendingValue) {
+      leftValue = ((PendingValue) leftValue).join();
+    }
+    switch (this.state) {
+      case STATE_INT:
+        if (leftValue instanceof Integer && rightValue instanceof Integer) {
+          return this.calculator.calculateInt((Integer) leftValue, (Integer) rightValue);
+        }
+        break;
+      case STATE_LONG:
+        if (isLong(leftValue, rightValue)) {
+          return this.calculator.calculateLong(((Number) leftValue).longValue(), ((Number) rightValue).longValue());
+        }
+        break;
+      case STATE_DOUBLE:
+        if (isDouble(leftValue, rightValue)) {
+          return this.calculator.calculateDouble(((Number) leftValue).doubleValue(), ((Number) rightValue).doubleValue());
+        }
+        break;
+      case STATE_GENERIC:
+        return this.calculator.calculate(leftValue, rightValue);
+      default:
+        return this.specialize(leftValue, rightValue);
+    }
+
+    this.state = STATE_GENERIC;
+    return this.calculator.calculate(leftValue, rightValue);
+  }
+
+  private Object specialize(Object leftValue, Object rightValue) {
+    int state;
+    if (leftValue instanceof Integer && rightValue instanceof Integer) {
+      state = STATE_INT;
+    } else if (isLong(leftValue, rightValue)) {
+      state = STATE_LONG;
+    } else if (isDouble(leftValue, rightValue)) {
+      state = STATE_DOUBLE;
+    } else {
+      state = STATE_GENERIC;
+    }
+    this.state = state;
+    switch (state) {
+      case STATE_INT:    return this.calculator.calculateInt((Integer) leftValue, (Integer) rightValue);
+      case STATE_LONG:   return this.calculator.calculateLong(((Number) leftValue).longValue(), ((Number) rightValue).longValue());
+      case STATE_DOUBLE: return this.calculator.calculateDouble(((Number) leftValue).doubleValue(), ((Number) rightValue).doubleValue());
+      default:           return this.calculator.calculate(leftValue, rightValue);
+    }
+  }
+
+  static boolean isLong(Object leftValue, Object rightValue) {
+    return (leftValue instanceof Long || rightValue instanceof Long)
+        && (leftValue instanceof Long || leftValue instanceof Integer)
+        && (rightValue instanceof Long || rightValue instanceof Integer);
+  }
+
+  static boolean isDouble(Object leftValue, Object rightValue) {
+    return (leftValue instanceof Double || rightValue instanceof Double)
+        && (leftValue instanceof Double || leftValue instanceof Integer)
+        && (rightValue instanceof Double || rightValue instanceof Integer);
+  }
+}
+
+final class LogicalNode extends ExecutionNode {
+  private final String operator;
+  private final Calculator calculator;
+  private final ExecutionNode left;
+  private final ExecutionNode right;
+
+  LogicalNode(String operator, Calculator calculator, ExecutionNode left, ExecutionNode right) {
+    this.operator = operator;
+    this.calculator = calculator;
+    this.left = left;
+    this.right = right;
+  }
+
+  @Override
+  public Object execute(ExecutionFrame frame) {
+    Object leftValue = this.left.execute(frame);
+    Object value = frame.shortCircuit(this.operator, leftValue);
+    if (value != null) {
+      return value;
+    }
+    return this.calculator.calculate(leftValue, this.right.execute(frame));
+  }
+}
+
+final class UnaryNode extends ExecutionNode {
+  private final Calculator calculator;
+  private final ExecutionNode operand;
+
+  UnaryNode(Calculator calculator, ExecutionNode operand) {
+    this.calculator = calculator;
+    this.operand = operand;
+  }
+
+  @Override
+  public Object execute(ExecutionFrame frame) {
+    return this.calculator.calculate(this.operand.execute(frame));
+  }
+}
+
+final class TernaryNode extends ExecutionNode {
+  private final ExecutionNode condition;
+  private final ExecutionNode trueNode;
+  private final ExecutionNode falseNode;
+
+  TernaryNode(ExecutionNode condition, ExecutionNode trueNode, ExecutionNode falseNode) {
+    this.condition = condition;
+    this.trueNode = trueNode;
+    this.falseNode = falseNode;
+  }
+
+  @Override
+  public Object execute(ExecutionFrame frame) {
+    if (frame.condition(this.condition.execute(frame))) {
+      return frame.value(this.trueNode.execute(frame));
+    }
+    return frame.value(this.falseNode.execute(frame));
+  }
+}
+
+final class ScopeNode extends ExecutionNode {
+  private final int depth;
+  private final int size;
+  private final ExecutionNode[] statements;
+
+  ScopeNode(int depth, int size, ExecutionNode[] statements) {
+    this.depth = depth;
+    this.size = size;
+    this.statements = statements;
+  }
+
+  @Override
+  public Object execute(ExecutionFrame frame) {
+    if (this.size > 0) {
+      Arrays.fill(frame.slots[this.depth], 0, this.size, null);
+    }
+    for (ExecutionNode statement: this.statements) {
+      statement.execute(frame);
+    }
+    return null;
+  }
+}
+
+final class IfNode extends ExecutionNode {
+  private final int depth;
+  private final int size;
+  private final ExecutionNode[] conditions;
+  private final ExecutionNode[] scopes;
+  private final ExecutionNode elseScope;
+
+  IfNode(int depth, int size, ExecutionNode[] conditions, ExecutionNode[] scopes, ExecutionNode elseScope) {
+    this.depth = depth;
+    this.size = size;
+    this.conditions = conditions;
+    this.scopes = scopes;
+    this.elseScope = elseScope;
+  }
+
+  @Override
+  public Object execute(ExecutionFrame frame) {
+    if (this.size > 0) {
+      Arrays.fill(frame.slots[this.depth], 0, this.size, null);
+    }
+    for (int i = 0; i < this.conditions.length; i++) {
+      if (frame.test(this.conditions[i].executeValue(frame))) {
+        this.scopes[i].execute(frame);
+        return null;
+      }
+    }
+
+    if (this.elseScope != null) {
+      this.elseScope.execute(frame);
+    }
+    return null;
+  }
+}
+
+final class WhileNode extends ExecutionNode {
+  private final ExecutionNode condition;
+  private final ExecutionNode scope;
+
+  WhileNode(ExecutionNode condition, ExecutionNode scope) {
+    this.condition = condition;
+    this.scope = scope;
+  }
+
+  @Override
+  public Object execute(ExecutionFrame frame) {
+    while (frame.test(this.condition.executeValue(frame))) {
+      this.scope.execute(frame);
+    }
+    return null;
+  }
+}
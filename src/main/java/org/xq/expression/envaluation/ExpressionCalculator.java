@@ -1,6 +1,7 @@
 package org.xq.expression.envaluation;
 
-import java.lang.reflect.Array;
+import org.xq.expression.Symbol;
+
 import java.math.BigDecimal;
 import java.util.*;
 
@@ -20,11 +21,8 @@ import java.util.*;
 // 13 assignment            	= += -= *= /= %= &= ^= |= <<= >>= >>>=
 
 abstract class Calculator {
-  protected Object[] parameters;
-  protected int current;
-  protected int parameterCount;
-  protected String op;
-  private int priority;
+  protected final int parameterCount;
+  protected final String op;
   protected static final int TYPE_BIT = 0;
 //  protected static final int TYPE_TINY_INT = 1;
 //  protected static final int TYPE_SMALL_INT = 2;
@@ -38,12 +36,9 @@ abstract class Calculator {
   protected static final int TYPE_OBJECT = 10;
   protected static final int TYPE_STRING = 11;
 
-  protected Calculator(String op, int parameterCount, int priority) {
+  protected Calculator(String op, int parameterCount) {
     this.parameterCount = parameterCount;
-    this.parameters = new Object[parameterCount];
-    this.current = 0;
     this.op = op;
-    this.priority = priority;
   }
 
   public int getParameterCount() {
@@ -54,39 +49,36 @@ abstract class Calculator {
     return this.op;
   }
 
-  public void push(Object value) {
-    if (this.current < this.parameterCount) {
-      this.parameters[this.parameterCount - this.current - 1] = value;
-      this.current ++;
-    } else {
-      throw new RuntimeException(String.format("The operator %s's parameter count is reached. count: %d", this.op, this.parameterCount));
-    }
+  public Object calculate(Object operand) {
+    return this.calculate(operand, null);
   }
 
-  public Object[] getParameters() {
-    return this.parameters;
+  public abstract Object calculate(Object left, Object right);
+
+  public boolean isSpecializable() {
+    return false;
   }
 
-  public abstract Object calculate();
+  public Object calculateInt(int left, int right) {
+    throw new RuntimeException(String.format("%s is not support in %s.", this.op, getTypeName(TYPE_INT)));
+  }
 
-  @Override
-  public String toString() {
-    if (this.parameterCount == 1) {
-      return this.op + this.convertValue(0, TYPE_OBJECT);
-    } else if (this.parameterCount == 2) {
-      return this.convertValue(0, TYPE_OBJECT) + this.op + this.convertValue(1, TYPE_OBJECT);
-    } else {
-      return "";
-    }
+  public Object calculateLong(long left, long right) {
+    throw new RuntimeException(String.format("%s is not support in %s.", this.op, getTypeName(TYPE_LONG)));
   }
 
-  public int getPriority() {
-    return this.priority;
+  public Object calculateDouble(double left, double right) {
+    throw new RuntimeException(String.format("%s is not support in %s.", this.op, getTypeName(TYPE_DOUBLE)));
+  }
+
+  @Override
+  public String toString() {
+    return this.op;
   }
 
   public int getTypeCode(Object value) {
-    if (value instanceof ReferenceValue) {
-      return this.getTypeCode(((ReferenceValue)value).getValue());
+    if (value instanceof ReferenceValue || value instanceof PendingValue) {
+      return this.getTypeCode(ReferenceValue.valueOf(value));
     } else if (value instanceof Byte) {
       return TYPE_BIT;
     } else if (value instanceof Integer) {
@@ -110,33 +102,25 @@ abstract class Calculator {
     }
   }
 
-  public int getReturnType() {
-    int maxType = -1;
-    for (int i = 0; i < this.parameters.length; i++) {
-      Object param = this.parameters[i];
-      int currentType = getTypeCode(param);
-      if (i == 0) {
-        maxType = currentType;
+  public int getReturnType(Object left, Object right) {
+    int maxType = getTypeCode(left);
+    if (this.parameterCount == 1) {
+      return maxType;
+    }
+
+    int currentType = getTypeCode(right);
+    if (currentType > maxType) {
+      if (currentType > TYPE_DOUBLE) {
+        maxType = TYPE_STRING;
       } else {
-        if (currentType > maxType) {
-          if (currentType > TYPE_DOUBLE) {
-            maxType = TYPE_STRING;
-          } else {
-            maxType = currentType;
-          }
-        }
+        maxType = currentType;
       }
     }
-
     return maxType;
   }
 
-  protected <T> T convertValue(int index, int typeCode) {
-    Object value = this.parameters[index];
-    if (value instanceof ReferenceValue) {
-      ReferenceValue referenceValue = (ReferenceValue) value;
-      value = referenceValue.getValue();
-    }
+  protected <T> T convertValue(Object value, int typeCode) {
+    value = ReferenceValue.valueOf(value);
     switch (typeCode) {
 
 //      case TYPE_TINY_INT: return ;
@@ -179,6 +163,8 @@ abstract class Calculator {
           return (T) value;
         } else if (value instanceof BigDecimal) {
           return (T) (Float) ((BigDecimal)value).floatValue();
+        } else if (value instanceof Long) {
+          return (T) (Float) ((Long)value).floatValue();
         } else if (value instanceof Integer) {
           return (T) (Float) ((Integer)value).floatValue();
         } else if (value instanceof Byte) {
@@ -194,6 +180,8 @@ abstract class Calculator {
           return (T) (Double)((Float) value).doubleValue();
         } else if (value instanceof BigDecimal) {
           return (T) (Double) ((BigDecimal)value).doubleValue();
+        } else if (value instanceof Long) {
+          return (T) (Double) ((Long)value).doubleValue();
         } else if (value instanceof Integer) {
           return (T) (Double) ((Integer)value).doubleValue();
         } else if (value instanceof Byte) {
@@ -244,16 +232,16 @@ abstract class Calculator {
 }
 
 class Increase extends Calculator {
-  private boolean opFirst;
+  private final boolean opFirst;
 
   protected Increase(boolean opFirst) {
-    super("++", 1, opFirst ? 2 : 1);
+    super("++", 1);
     this.opFirst = opFirst;
   }
 
   @Override
-  public Object calculate() {
-    int type = getReturnType();
+  public Object calculate(Object left, Object right) {
+    int type = getReturnType(left, right);
     Object value;
     switch (type) {
       case TYPE_BIT:
@@ -262,15 +250,15 @@ class Increase extends Calculator {
       case TYPE_OBJECT:
       case TYPE_STRING:
       default:             throw new RuntimeException(String.format("%s is not support in %s.", this.getOperator(), getTypeName(type)));
-      case TYPE_INT:       value = (Integer) convertValue(0, TYPE_INT)   + 1; break;
-      case TYPE_LONG:      value = (Long) convertValue(0, TYPE_LONG)     + 1; break;
-      case TYPE_FLOAT:     value = (Float) convertValue(0, TYPE_FLOAT)   + 1; break;
-      case TYPE_DOUBLE:    value = (Double) convertValue(0, TYPE_DOUBLE) + 1; break;
-      case TYPE_DECIMAL:   value = ((BigDecimal) convertValue(0, TYPE_DECIMAL)).add(new BigDecimal(1)); break;
+      case TYPE_INT:       value = (Integer) convertValue(left, TYPE_INT)   + 1; break;
+      case TYPE_LONG:      value = (Long) convertValue(left, TYPE_LONG)     + 1; break;
+      case TYPE_FLOAT:     value = (Float) convertValue(left, TYPE_FLOAT)   + 1; break;
+      case TYPE_DOUBLE:    value = (Double) convertValue(left, TYPE_DOUBLE) + 1; break;
+      case TYPE_DECIMAL:   value = ((BigDecimal) convertValue(left, TYPE_DECIMAL)).add(new BigDecimal(1)); break;
     }
 
-    Object parameter = this.getParameters()[0];
-    Object retValue = convertValue(0, TYPE_OBJECT);
+    Object parameter = left;
+    Object retValue = convertValue(left, TYPE_OBJECT);
     if (parameter instanceof ReferenceValue) {
       ((ReferenceValue)parameter).assign(value);
     } else {
@@ -279,24 +267,19 @@ class Increase extends Calculator {
 
     return this.opFirst ? value : retValue;
   }
-
-  @Override
-  public String toString() {
-    return opFirst ? "++" + this.getParameters()[0] : this.getParameters()[0] + "++";
-  }
 }
 
 class Decrease extends Calculator {
-  private boolean opFirst;
+  private final boolean opFirst;
 
   protected Decrease(boolean opFirst) {
-    super("--", 1, opFirst ? 2 : 1);
+    super("--", 1);
     this.opFirst = opFirst;
   }
 
   @Override
-  public Object calculate() {
-    int type = getReturnType();
+  public Object calculate(Object left, Object right) {
+    int type = getReturnType(left, right);
     Object value;
     switch (type) {
       case TYPE_BIT:
@@ -305,15 +288,15 @@ class Decrease extends Calculator {
       case TYPE_OBJECT:
       case TYPE_STRING:
       default:             throw new RuntimeException(String.format("%s is not support in %s.", this.getOperator(), getTypeName(type)));
-      case TYPE_INT:       value = (Integer) convertValue(0, TYPE_INT)   - 1; break;
-      case TYPE_LONG:      value = (Long) convertValue(0, TYPE_LONG)     - 1; break;
-      case TYPE_FLOAT:     value = (Float) convertValue(0, TYPE_FLOAT)   - 1; break;
-      case TYPE_DOUBLE:    value = (Double) convertValue(0, TYPE_DOUBLE) - 1; break;
-      case TYPE_DECIMAL:   value = ((BigDecimal) convertValue(0, TYPE_DECIMAL)).subtract(new BigDecimal(1)); break;
+      case TYPE_INT:       value = (Integer) convertValue(left, TYPE_INT)   - 1; break;
+      case TYPE_LONG:      value = (Long) convertValue(left, TYPE_LONG)     - 1; break;
+      case TYPE_FLOAT:     value = (Float) convertValue(left, TYPE_FLOAT)   - 1; break;
+      case TYPE_DOUBLE:    value = (Double) convertValue(left, TYPE_DOUBLE) - 1; break;
+      case TYPE_DECIMAL:   value = ((BigDecimal) convertValue(left, TYPE_DECIMAL)).subtract(new BigDecimal(1)); break;
     }
 
-    Object parameter = this.getParameters()[0];
-    Object retValue = convertValue(0, TYPE_OBJECT);
+    Object parameter = left;
+    Object retValue = convertValue(left, TYPE_OBJECT);
     if (parameter instanceof ReferenceValue) {
       ((ReferenceValue)parameter).assign(value);
     } else {
@@ -322,21 +305,16 @@ class Decrease extends Calculator {
 
     return this.opFirst ? value : retValue;
   }
-
-  @Override
-  public String toString() {
-    return "--" + this.getParameters()[0];
-  }
 }
 
 class NOT extends Calculator {
   protected NOT() {
-    super("!", 1, 2);
+    super("!", 1);
   }
 
   @Override
-  public Object calculate() {
-    int type = getReturnType();
+  public Object calculate(Object left, Object right) {
+    int type = getReturnType(left, right);
     switch (type) {
       case TYPE_OBJECT:
       case TYPE_FLOAT:
@@ -348,24 +326,19 @@ class NOT extends Calculator {
       case TYPE_LONG:
       case TYPE_STRING:
       default:           throw new RuntimeException(String.format("%s is not support in %s.", this.getOperator(), getTypeName(type)));
-      case TYPE_BOOLEAN: return !(Boolean) convertValue(0, TYPE_BOOLEAN);
+      case TYPE_BOOLEAN: return !(Boolean) convertValue(left, TYPE_BOOLEAN);
     }
   }
-
-  @Override
-  public String toString() {
-    return "!" + this.getParameters()[0];
-  }
 }
 
 class Subtract extends Calculator {
   protected Subtract(boolean isSingle) {
-    super("-", isSingle ? 1 : 2, isSingle ? 2 : 3);
+    super("-", isSingle ? 1 : 2);
   }
 
   @Override
-  public Object calculate() {
-    int type = getReturnType();
+  public Object calculate(Object left, Object right) {
+    int type = getReturnType(left, right);
     if (this.getParameterCount() == 1) {
       switch (type) {
         case TYPE_BIT:
@@ -374,11 +347,11 @@ class Subtract extends Calculator {
         case TYPE_OBJECT:
         case TYPE_STRING:
         default:           throw new RuntimeException(String.format("%s is not support in %s.", this.getOperator(), getTypeName(type)));
-        case TYPE_INT:     return - (Integer) convertValue(0, TYPE_INT);
-        case TYPE_LONG:    return - (Long) convertValue(0, TYPE_LONG);
-        case TYPE_FLOAT:   return - (Float) convertValue(0, TYPE_FLOAT);
-        case TYPE_DOUBLE:  return - (Double) convertValue(0, TYPE_DOUBLE);
-        case TYPE_DECIMAL: return (new BigDecimal(0)).subtract((BigDecimal) convertValue(0, TYPE_DECIMAL));
+        case TYPE_INT:     return - (Integer) convertValue(left, TYPE_INT);
+        case TYPE_LONG:    return - (Long) convertValue(left, TYPE_LONG);
+        case TYPE_FLOAT:   return - (Float) convertValue(left, TYPE_FLOAT);
+        case TYPE_DOUBLE:  return - (Double) convertValue(left, TYPE_DOUBLE);
+        case TYPE_DECIMAL: return (new BigDecimal(0)).subtract((BigDecimal) convertValue(left, TYPE_DECIMAL));
       }
     } else {
       switch (type) {
@@ -388,33 +361,44 @@ class Subtract extends Calculator {
         case TYPE_OBJECT:
         case TYPE_STRING:
         default:           throw new RuntimeException(String.format("%s is not support in %s.", this.getOperator(), getTypeName(type)));
-        case TYPE_INT:     return (Integer) convertValue(0, TYPE_INT)   - (Integer) convertValue(1, TYPE_INT);
-        case TYPE_LONG:    return (Long) convertValue(0, TYPE_LONG)     - (Long) convertValue(1, TYPE_LONG);
-        case TYPE_FLOAT:   return (Float) convertValue(0, TYPE_FLOAT)   - (Float) convertValue(1, TYPE_FLOAT);
-        case TYPE_DOUBLE:  return (Double) convertValue(0, TYPE_DOUBLE) - (Double) convertValue(1, TYPE_DOUBLE);
-        case TYPE_DECIMAL: return ((BigDecimal) convertValue(0, TYPE_DECIMAL)).subtract((BigDecimal) convertValue(1, TYPE_DECIMAL));
+        case TYPE_INT:     return (Integer) convertValue(left, TYPE_INT)   - (Integer) convertValue(right, TYPE_INT);
+        case TYPE_LONG:    return (Long) convertValue(left, TYPE_LONG)     - (Long) convertValue(right, TYPE_LONG);
+        case TYPE_FLOAT:   return (Float) convertValue(left, TYPE_FLOAT)   - (Float) convertValue(right, TYPE_FLOAT);
+        case TYPE_DOUBLE:  return (Double) convertValue(left, TYPE_DOUBLE) - (Double) convertValue(right, TYPE_DOUBLE);
+        case TYPE_DECIMAL: return ((BigDecimal) convertValue(left, TYPE_DECIMAL)).subtract((BigDecimal) convertValue(right, TYPE_DECIMAL));
       }
     }
   }
 
   @Override
-  public String toString() {
-    if (this.getParameterCount() == 1) {
-      return "-" + this.getParameters()[0];
-    } else {
-      return this.getParameters()[0] + "-" + this.getParameters()[1];
-    }
+  public boolean isSpecializable() {
+    return this.parameterCount == 2;
+  }
+
+  @Override
+  public Object calculateInt(int left, int right) {
+    return left - right;
+  }
+
+  @Override
+  public Object calculateLong(long left, long right) {
+    return left - right;
+  }
+
+  @Override
+  public Object calculateDouble(double left, double right) {
+    return left - right;
   }
 }
 
 class Plus extends Calculator {
   protected Plus(boolean isSingle) {
-    super("+", isSingle ? 1 : 2, isSingle ? 2 : 3);
+    super("+", isSingle ? 1 : 2);
   }
 
   @Override
-  public Object calculate() {
-    int type = getReturnType();
+  public Object calculate(Object left, Object right) {
+    int type = getReturnType(left, right);
     if (this.getParameterCount() == 1) {
       switch (type) {
         case TYPE_BIT:
@@ -422,12 +406,12 @@ class Plus extends Calculator {
         case TYPE_BOOLEAN:
         case TYPE_OBJECT:
         default:           throw new RuntimeException(String.format("%s is not support in %s.", this.getOperator(), getTypeName(type)));
-        case TYPE_INT:     return convertValue(0, TYPE_INT);
-        case TYPE_LONG:    return convertValue(0, TYPE_LONG);
-        case TYPE_FLOAT:   return convertValue(0, TYPE_FLOAT);
-        case TYPE_DOUBLE:  return convertValue(0, TYPE_DOUBLE);
-        case TYPE_STRING:  return convertValue(0, TYPE_STRING);
-        case TYPE_DECIMAL: return convertValue(0, TYPE_DECIMAL);
+        case TYPE_INT:     return convertValue(left, TYPE_INT);
+        case TYPE_LONG:    return convertValue(left, TYPE_LONG);
+        case TYPE_FLOAT:   return convertValue(left, TYPE_FLOAT);
+        case TYPE_DOUBLE:  return convertValue(left, TYPE_DOUBLE);
+        case TYPE_STRING:  return convertValue(left, TYPE_STRING);
+        case TYPE_DECIMAL: return convertValue(left, TYPE_DECIMAL);
       }
     } else {
       switch (type) {
@@ -436,34 +420,45 @@ class Plus extends Calculator {
         case TYPE_BOOLEAN:
         case TYPE_OBJECT:
         default:           throw new RuntimeException(String.format("%s is not support in %s.", this.getOperator(), getTypeName(type)));
-        case TYPE_INT:     return (Integer) convertValue(0, TYPE_INT)   + (Integer) convertValue(1, TYPE_INT);
-        case TYPE_LONG:    return (Long) convertValue(0, TYPE_LONG)     + (Long) convertValue(1, TYPE_LONG);
-        case TYPE_FLOAT:   return (Float) convertValue(0, TYPE_FLOAT)   + (Float) convertValue(1, TYPE_FLOAT);
-        case TYPE_DOUBLE:  return (Double) convertValue(0, TYPE_DOUBLE) + (Double) convertValue(1, TYPE_DOUBLE);
-        case TYPE_STRING:  return convertValue(0, TYPE_STRING)          + (String) convertValue(1, TYPE_STRING);
-        case TYPE_DECIMAL: return ((BigDecimal) convertValue(0, TYPE_DECIMAL)).add((BigDecimal) convertValue(1, TYPE_DECIMAL));
+        case TYPE_INT:     return (Integer) convertValue(left, TYPE_INT)   + (Integer) convertValue(right, TYPE_INT);
+        case TYPE_LONG:    return (Long) convertValue(left, TYPE_LONG)     + (Long) convertValue(right, TYPE_LONG);
+        case TYPE_FLOAT:   return (Float) convertValue(left, TYPE_FLOAT)   + (Float) convertValue(right, TYPE_FLOAT);
+        case TYPE_DOUBLE:  return (Double) convertValue(left, TYPE_DOUBLE) + (Double) convertValue(right, TYPE_DOUBLE);
+        case TYPE_STRING:  return convertValue(left, TYPE_STRING)          + (String) convertValue(right, TYPE_STRING);
+        case TYPE_DECIMAL: return ((BigDecimal) convertValue(left, TYPE_DECIMAL)).add((BigDecimal) convertValue(right, TYPE_DECIMAL));
       }
     }
   }
 
   @Override
-  public String toString() {
-    if (this.getParameterCount() == 1) {
-      return "+" + this.getParameters()[0];
-    } else {
-      return this.getParameters()[0] + "+" + this.getParameters()[1];
-    }
+  public boolean isSpecializable() {
+    return this.parameterCount == 2;
+  }
+
+  @Override
+  public Object calculateInt(int left, int right) {
+    return left + right;
+  }
+
+  @Override
+  public Object calculateLong(long left, long right) {
+    return left + right;
+  }
+
+  @Override
+  public Object calculateDouble(double left, double right) {
+    return left + right;
   }
 }
 
 class Multiply extends Calculator {
   protected Multiply() {
-    super("*", 2, 2);
+    super("*", 2);
   }
 
   @Override
-  public Object calculate() {
-    int type = getReturnType();
+  public Object calculate(Object left, Object right) {
+    int type = getReturnType(left, right);
     switch (type) {
       case TYPE_BIT:
       case TYPE_DATETIME:
@@ -472,28 +467,43 @@ class Multiply extends Calculator {
       case TYPE_STRING:
       default:
         throw new RuntimeException(String.format("%s is not support in %s.", this.getOperator(), getTypeName(type)));
-      case TYPE_INT: return (Integer) convertValue(0, TYPE_INT) * (Integer) convertValue(1, TYPE_INT);
-      case TYPE_LONG: return (Long) convertValue(0, TYPE_LONG) * (Long) convertValue(1, TYPE_LONG);
-      case TYPE_DECIMAL: return ((BigDecimal) convertValue(0, TYPE_DECIMAL)).multiply((BigDecimal) convertValue(1, TYPE_DECIMAL));
-      case TYPE_FLOAT: return (Float) convertValue(0, TYPE_FLOAT) * (Float) convertValue(1, TYPE_FLOAT);
-      case TYPE_DOUBLE: return (Double) convertValue(0, TYPE_DOUBLE) * (Double) convertValue(1, TYPE_DOUBLE);
+      case TYPE_INT: return (Integer) convertValue(left, TYPE_INT) * (Integer) convertValue(right, TYPE_INT);
+      case TYPE_LONG: return (Long) convertValue(left, TYPE_LONG) * (Long) convertValue(right, TYPE_LONG);
+      case TYPE_DECIMAL: return ((BigDecimal) convertValue(left, TYPE_DECIMAL)).multiply((BigDecimal) convertValue(right, TYPE_DECIMAL));
+      case TYPE_FLOAT: return (Float) convertValue(left, TYPE_FLOAT) * (Float) convertValue(right, TYPE_FLOAT);
+      case TYPE_DOUBLE: return (Double) convertValue(left, TYPE_DOUBLE) * (Double) convertValue(right, TYPE_DOUBLE);
     }
   }
 
   @Override
-  public String toString() {
-    return this.getParameters()[0] + "*" + this.getParameters()[1];
+  public boolean isSpecializable() {
+    return true;
+  }
+
+  @Override
+  public Object calculateInt(int left, int right) {
+    return left * right;
+  }
+
+  @Override
+  public Object calculateLong(long left, long right) {
+    return left * right;
+  }
+
+  @Override
+  public Object calculateDouble(double left, double right) {
+    return left * right;
   }
 }
 
 class Divide extends Calculator {
   protected Divide() {
-    super("*", 2, 2);
+    super("/", 2);
   }
 
   @Override
-  public Object calculate() {
-    int type = getReturnType();
+  public Object calculate(Object left, Object right) {
+    int type = getReturnType(left, right);
     switch (type) {
       case TYPE_BIT:
       case TYPE_DATETIME:
@@ -502,28 +512,43 @@ class Divide extends Calculator {
       case TYPE_STRING:
       default:
         throw new RuntimeException(String.format("%s is not support in %s.", this.getOperator(), getTypeName(type)));
-      case TYPE_INT: return (Integer) convertValue(0, TYPE_INT) / (Integer) convertValue(1, TYPE_INT);
-      case TYPE_LONG: return (Long) convertValue(0, TYPE_LONG) / (Long) convertValue(1, TYPE_LONG);
-      case TYPE_DECIMAL: return ((BigDecimal) convertValue(0, TYPE_DECIMAL)).divide((BigDecimal) convertValue(1, TYPE_DECIMAL));
-      case TYPE_FLOAT: return (Float) convertValue(0, TYPE_FLOAT) / (Float) convertValue(1, TYPE_FLOAT);
-      case TYPE_DOUBLE: return (Double) convertValue(0, TYPE_DOUBLE) / (Double) convertValue(1, TYPE_DOUBLE);
+      case TYPE_INT: return (Integer) convertValue(left, TYPE_INT) / (Integer) convertValue(right, TYPE_INT);
+      case TYPE_LONG: return (Long) convertValue(left, TYPE_LONG) / (Long) convertValue(right, TYPE_LONG);
+      case TYPE_DECIMAL: return ((BigDecimal) convertValue(left, TYPE_DECIMAL)).divide((BigDecimal) convertValue(right, TYPE_DECIMAL));
+      case TYPE_FLOAT: return (Float) convertValue(left, TYPE_FLOAT) / (Float) convertValue(right, TYPE_FLOAT);
+      case TYPE_DOUBLE: return (Double) convertValue(left, TYPE_DOUBLE) / (Double) convertValue(right, TYPE_DOUBLE);
     }
   }
 
   @Override
-  public String toString() {
-    return this.getParameters()[0] + "/" + this.getParameters()[1];
+  public boolean isSpecializable() {
+    return true;
+  }
+
+  @Override
+  public Object calculateInt(int left, int right) {
+    return left / right;
+  }
+
+  @Override
+  public Object calculateLong(long left, long right) {
+    return left / right;
+  }
+
+  @Override
+  public Object calculateDouble(double left, double right) {
+    return left / right;
   }
 }
 
 class MOD extends Calculator {
   protected MOD() {
-    super("%", 2, 2);
+    super("%", 2);
   }
 
   @Override
-  public Object calculate() {
-    int type = getReturnType();
+  public Object calculate(Object left, Object right) {
+    int type = getReturnType(left, right);
     switch (type) {
       case TYPE_BIT:
       case TYPE_DATETIME:
@@ -532,28 +557,43 @@ class MOD extends Calculator {
       case TYPE_STRING:
       default:
         throw new RuntimeException(String.format("%s is not support in %s.", this.getOperator(), getTypeName(type)));
-      case TYPE_INT: return (Integer) convertValue(0, TYPE_INT) % (Integer) convertValue(1, TYPE_INT);
-      case TYPE_LONG: return (Long) convertValue(0, TYPE_LONG) % (Long) convertValue(1, TYPE_LONG);
-      case TYPE_DECIMAL: return ((BigDecimal) convertValue(0, TYPE_DECIMAL)).remainder((BigDecimal) convertValue(1, TYPE_DECIMAL));
-      case TYPE_FLOAT: return (Float) convertValue(0, TYPE_FLOAT) % (Float) convertValue(1, TYPE_FLOAT);
-      case TYPE_DOUBLE: return (Double) convertValue(0, TYPE_DOUBLE) % (Double) convertValue(1, TYPE_DOUBLE);
+      case TYPE_INT: return (Integer) convertValue(left, TYPE_INT) % (Integer) convertValue(right, TYPE_INT);
+      case TYPE_LONG: return (Long) convertValue(left, TYPE_LONG) % (Long) convertValue(right, TYPE_LONG);
+      case TYPE_DECIMAL: return ((BigDecimal) convertValue(left, TYPE_DECIMAL)).remainder((BigDecimal) convertValue(right, TYPE_DECIMAL));
+      case TYPE_FLOAT: return (Float) convertValue(left, TYPE_FLOAT) % (Float) convertValue(right, TYPE_FLOAT);
+      case TYPE_DOUBLE: return (Double) convertValue(left, TYPE_DOUBLE) % (Double) convertValue(right, TYPE_DOUBLE);
     }
   }
 
   @Override
-  public String toString() {
-    return this.getParameters()[0] + "%" + this.getParameters()[1];
+  public boolean isSpecializable() {
+    return true;
+  }
+
+  @Override
+  public Object calculateInt(int left, int right) {
+    return left % right;
+  }
+
+  @Override
+  public Object calculateLong(long left, long right) {
+    return left % right;
+  }
+
+  @Override
+  public Object calculateDouble(double left, double right) {
+    return left % right;
   }
 }
 
 class LeftShift extends Calculator {
   protected LeftShift() {
-    super("<<", 2, 2);
+    super("<<", 2);
   }
 
   @Override
-  public Object calculate() {
-    int type = getReturnType();
+  public Object calculate(Object left, Object right) {
+    int type = getReturnType(left, right);
     switch (type) {
       case TYPE_BIT:
       case TYPE_DATETIME:
@@ -565,25 +605,20 @@ class LeftShift extends Calculator {
       case TYPE_DOUBLE:
       default:
         throw new RuntimeException(String.format("%s is not support in %s.", this.getOperator(), getTypeName(type)));
-      case TYPE_INT: return (Integer) convertValue(0, TYPE_INT) << (Integer) convertValue(1, TYPE_INT);
-      case TYPE_LONG: return (Long) convertValue(0, TYPE_LONG) << (Long) convertValue(1, TYPE_LONG);
+      case TYPE_INT: return (Integer) convertValue(left, TYPE_INT) << (Integer) convertValue(right, TYPE_INT);
+      case TYPE_LONG: return (Long) convertValue(left, TYPE_LONG) << (Long) convertValue(right, TYPE_LONG);
     }
   }
-
-  @Override
-  public String toString() {
-    return this.getParameters()[0] + "<<" + this.getParameters()[1];
-  }
 }
 
 class RightShift extends Calculator {
   protected RightShift() {
-    super(">>", 2, 4);
+    super(">>", 2);
   }
 
   @Override
-  public Object calculate() {
-    int type = getReturnType();
+  public Object calculate(Object left, Object right) {
+    int type = getReturnType(left, right);
     switch (type) {
       case TYPE_BIT:
       case TYPE_DATETIME:
@@ -595,25 +630,20 @@ class RightShift extends Calculator {
       case TYPE_DOUBLE:
       default:
         throw new RuntimeException(String.format("%s is not support in %s.", this.getOperator(), getTypeName(type)));
-      case TYPE_INT: return (Integer) convertValue(0, TYPE_INT) >> (Integer) convertValue(1, TYPE_INT);
-      case TYPE_LONG: return (Long) convertValue(0, TYPE_LONG) >> (Long) convertValue(1, TYPE_LONG);
+      case TYPE_INT: return (Integer) convertValue(left, TYPE_INT) >> (Integer) convertValue(right, TYPE_INT);
+      case TYPE_LONG: return (Long) convertValue(left, TYPE_LONG) >> (Long) convertValue(right, TYPE_LONG);
     }
   }
-
-  @Override
-  public String toString() {
-    return this.getParameters()[0] + ">>" + this.getParameters()[1];
-  }
 }
 
 class UnsignRightShift extends Calculator {
   protected UnsignRightShift() {
-    super(">>>", 2, 4);
+    super(">>>", 2);
   }
 
   @Override
-  public Object calculate() {
-    int type = getReturnType();
+  public Object calculate(Object left, Object right) {
+    int type = getReturnType(left, right);
     switch (type) {
       case TYPE_BIT:
       case TYPE_DATETIME:
@@ -624,204 +654,289 @@ class UnsignRightShift extends Calculator {
       case TYPE_FLOAT:
       case TYPE_DOUBLE:
       default: throw new RuntimeException(String.format("%s is not support in %s.", this.getOperator(), getTypeName(type)));
-      case TYPE_INT:  return (Integer) convertValue(0, TYPE_INT) >>> (Integer) convertValue(1, TYPE_INT);
-      case TYPE_LONG: return (Long) convertValue(0, TYPE_LONG)   >>> (Long) convertValue(1, TYPE_LONG);
+      case TYPE_INT:  return (Integer) convertValue(left, TYPE_INT) >>> (Integer) convertValue(right, TYPE_INT);
+      case TYPE_LONG: return (Long) convertValue(left, TYPE_LONG)   >>> (Long) convertValue(right, TYPE_LONG);
     }
   }
-
-  @Override
-  public String toString() {
-    return this.getParameters()[0] + ">>>" + this.getParameters()[1];
-  }
 }
 
 class Greater extends Calculator {
   protected Greater() {
-    super(">", 2, 5);
+    super(">", 2);
   }
 
   @Override
-  public Object calculate() {
-    int type = getReturnType();
+  public Object calculate(Object left, Object right) {
+    int type = getReturnType(left, right);
     switch (type) {
       case TYPE_OBJECT:
       default:
         throw new RuntimeException(String.format("%s is not support in %s.", this.getOperator(), getTypeName(type)));
-      case TYPE_INT: return (Integer) convertValue(0, TYPE_INT)      > (Integer) convertValue(1, TYPE_INT);
-      case TYPE_LONG: return (Long) convertValue(0, TYPE_LONG)       > (Long) convertValue(1, TYPE_LONG);
-      case TYPE_FLOAT: return (Float) convertValue(0, TYPE_FLOAT)    > (Float) convertValue(1, TYPE_FLOAT);
-      case TYPE_DOUBLE: return (Double) convertValue(0, TYPE_DOUBLE) > (Double) convertValue(1, TYPE_DOUBLE);
-      case TYPE_DECIMAL: return ((BigDecimal) convertValue(0, TYPE_DECIMAL)).compareTo((BigDecimal) convertValue(1, TYPE_DECIMAL)) > 0;
-      case TYPE_BIT: return ((Byte) convertValue(0, TYPE_BIT)).compareTo((Byte) convertValue(1, TYPE_BIT))                         > 0;
-      case TYPE_DATETIME: return ((Date) convertValue(0, TYPE_DATETIME)).compareTo((Date) convertValue(1, TYPE_DATETIME))          > 0;
-      case TYPE_BOOLEAN: return ((Boolean) convertValue(0, TYPE_BOOLEAN)).compareTo((Boolean) convertValue(1, TYPE_BOOLEAN))       > 0;
-      case TYPE_STRING: return ((String) convertValue(0, TYPE_STRING)).compareTo((String) convertValue(1, TYPE_STRING))            > 0;
+      case TYPE_INT: return (Integer) convertValue(left, TYPE_INT)      > (Integer) convertValue(right, TYPE_INT);
+      case TYPE_LONG: return (Long) convertValue(left, TYPE_LONG)       > (Long) convertValue(right, TYPE_LONG);
+      case TYPE_FLOAT: return (Float) convertValue(left, TYPE_FLOAT)    > (Float) convertValue(right, TYPE_FLOAT);
+      case TYPE_DOUBLE: return (Double) convertValue(left, TYPE_DOUBLE) > (Double) convertValue(right, TYPE_DOUBLE);
+      case TYPE_DECIMAL: return ((BigDecimal) convertValue(left, TYPE_DECIMAL)).compareTo((BigDecimal) convertValue(right, TYPE_DECIMAL)) > 0;
+      case TYPE_BIT: return ((Byte) convertValue(left, TYPE_BIT)).compareTo((Byte) convertValue(right, TYPE_BIT))                         > 0;
+      case TYPE_DATETIME: return ((Date) convertValue(left, TYPE_DATETIME)).compareTo((Date) convertValue(right, TYPE_DATETIME))          > 0;
+      case TYPE_BOOLEAN: return ((Boolean) convertValue(left, TYPE_BOOLEAN)).compareTo((Boolean) convertValue(right, TYPE_BOOLEAN))       > 0;
+      case TYPE_STRING: return ((String) convertValue(left, TYPE_STRING)).compareTo((String) convertValue(right, TYPE_STRING))            > 0;
     }
   }
 
   @Override
-  public String toString() {
-    return this.getParameters()[0] + ">" + this.getParameters()[1];
+  public boolean isSpecializable() {
+    return true;
+  }
+
+  @Override
+  public Object calculateInt(int left, int right) {
+    return left > right;
+  }
+
+  @Override
+  public Object calculateLong(long left, long right) {
+    return left > right;
+  }
+
+  @Override
+  public Object calculateDouble(double left, double right) {
+    return left > right;
   }
 }
 
 class GreaterAndEqual extends Calculator {
   protected GreaterAndEqual() {
-    super(">=", 2, 5);
+    super(">=", 2);
   }
 
   @Override
-  public Object calculate() {
-    int type = getReturnType();
+  public Object calculate(Object left, Object right) {
+    int type = getReturnType(left, right);
     switch (type) {
       case TYPE_OBJECT:
       default:
         throw new RuntimeException(String.format("%s is not support in %s.", this.getOperator(), getTypeName(type)));
-      case TYPE_INT: return (Integer) convertValue(0, TYPE_INT)      >= (Integer) convertValue(1, TYPE_INT);
-      case TYPE_LONG: return (Long) convertValue(0, TYPE_LONG)       >= (Long) convertValue(1, TYPE_LONG);
-      case TYPE_FLOAT: return (Float) convertValue(0, TYPE_FLOAT)    >= (Float) convertValue(1, TYPE_FLOAT);
-      case TYPE_DOUBLE: return (Double) convertValue(0, TYPE_DOUBLE) >= (Double) convertValue(1, TYPE_DOUBLE);
-      case TYPE_DECIMAL: return ((BigDecimal) convertValue(0, TYPE_DECIMAL)).compareTo((BigDecimal) convertValue(1, TYPE_DECIMAL)) >= 0;
-      case TYPE_BIT: return ((Byte) convertValue(0, TYPE_BIT)).compareTo((Byte) convertValue(1, TYPE_BIT))                         >= 0;
-      case TYPE_DATETIME: return ((Date) convertValue(0, TYPE_DATETIME)).compareTo((Date) convertValue(1, TYPE_DATETIME))          >= 0;
-      case TYPE_BOOLEAN: return ((Boolean) convertValue(0, TYPE_BOOLEAN)).compareTo((Boolean) convertValue(1, TYPE_BOOLEAN))       >= 0;
-      case TYPE_STRING: return ((String) convertValue(0, TYPE_STRING)).compareTo((String) convertValue(1, TYPE_STRING))            >= 0;
+      case TYPE_INT: return (Integer) convertValue(left, TYPE_INT)      >= (Integer) convertValue(right, TYPE_INT);
+      case TYPE_LONG: return (Long) convertValue(left, TYPE_LONG)       >= (Long) convertValue(right, TYPE_LONG);
+      case TYPE_FLOAT: return (Float) convertValue(left, TYPE_FLOAT)    >= (Float) convertValue(right, TYPE_FLOAT);
+      case TYPE_DOUBLE: return (Double) convertValue(left, TYPE_DOUBLE) >= (Double) convertValue(right, TYPE_DOUBLE);
+      case TYPE_DECIMAL: return ((BigDecimal) convertValue(left, TYPE_DECIMAL)).compareTo((BigDecimal) convertValue(right, TYPE_DECIMAL)) >= 0;
+      case TYPE_BIT: return ((Byte) convertValue(left, TYPE_BIT)).compareTo((Byte) convertValue(right, TYPE_BIT))                         >= 0;
+      case TYPE_DATETIME: return ((Date) convertValue(left, TYPE_DATETIME)).compareTo((Date) convertValue(right, TYPE_DATETIME))          >= 0;
+      case TYPE_BOOLEAN: return ((Boolean) convertValue(left, TYPE_BOOLEAN)).compareTo((Boolean) convertValue(right, TYPE_BOOLEAN))       >= 0;
+      case TYPE_STRING: return ((String) convertValue(left, TYPE_STRING)).compareTo((String) convertValue(right, TYPE_STRING))            >= 0;
     }
   }
 
   @Override
-  public String toString() {
-    return this.getParameters()[0] + ">=" + this.getParameters()[1];
+  public boolean isSpecializable() {
+    return true;
+  }
+
+  @Override
+  public Object calculateInt(int left, int right) {
+    return left >= right;
+  }
+
+  @Override
+  public Object calculateLong(long left, long right) {
+    return left >= right;
+  }
+
+  @Override
+  public Object calculateDouble(double left, double right) {
+    return left >= right;
   }
 }
 
 class Less extends Calculator {
   protected Less() {
-    super("<", 2, 5);
+    super("<", 2);
   }
 
   @Override
-  public Object calculate() {
-    int type = getReturnType();
+  public Object calculate(Object left, Object right) {
+    int type = getReturnType(left, right);
     switch (type) {
       case TYPE_OBJECT:
       default:
         throw new RuntimeException(String.format("%s is not support in %s.", this.getOperator(), getTypeName(type)));
-      case TYPE_INT: return (Integer) convertValue(0, TYPE_INT)      < (Integer) convertValue(1, TYPE_INT);
-      case TYPE_LONG: return (Long) convertValue(0, TYPE_LONG)       < (Long) convertValue(1, TYPE_LONG);
-      case TYPE_FLOAT: return (Float) convertValue(0, TYPE_FLOAT)    < (Float) convertValue(1, TYPE_FLOAT);
-      case TYPE_DOUBLE: return (Double) convertValue(0, TYPE_DOUBLE) < (Double) convertValue(1, TYPE_DOUBLE);
-      case TYPE_DECIMAL: return ((BigDecimal) convertValue(0, TYPE_DECIMAL)).compareTo((BigDecimal) convertValue(1, TYPE_DECIMAL)) < 0;
-      case TYPE_BIT: return ((Byte) convertValue(0, TYPE_BIT)).compareTo((Byte) convertValue(1, TYPE_BIT))                         < 0;
-      case TYPE_DATETIME: return ((Date) convertValue(0, TYPE_DATETIME)).compareTo((Date) convertValue(1, TYPE_DATETIME))          < 0;
-      case TYPE_BOOLEAN: return ((Boolean) convertValue(0, TYPE_BOOLEAN)).compareTo((Boolean) convertValue(1, TYPE_BOOLEAN))       < 0;
-      case TYPE_STRING: return ((String) convertValue(0, TYPE_STRING)).compareTo((String) convertValue(1, TYPE_STRING))            < 0;
+      case TYPE_INT: return (Integer) convertValue(left, TYPE_INT)      < (Integer) convertValue(right, TYPE_INT);
+      case TYPE_LONG: return (Long) convertValue(left, TYPE_LONG)       < (Long) convertValue(right, TYPE_LONG);
+      case TYPE_FLOAT: return (Float) convertValue(left, TYPE_FLOAT)    < (Float) convertValue(right, TYPE_FLOAT);
+      case TYPE_DOUBLE: return (Double) convertValue(left, TYPE_DOUBLE) < (Double) convertValue(right, TYPE_DOUBLE);
+      case TYPE_DECIMAL: return ((BigDecimal) convertValue(left, TYPE_DECIMAL)).compareTo((BigDecimal) convertValue(right, TYPE_DECIMAL)) < 0;
+      case TYPE_BIT: return ((Byte) convertValue(left, TYPE_BIT)).compareTo((Byte) convertValue(right, TYPE_BIT))                         < 0;
+      case TYPE_DATETIME: return ((Date) convertValue(left, TYPE_DATETIME)).compareTo((Date) convertValue(right, TYPE_DATETIME))          < 0;
+      case TYPE_BOOLEAN: return ((Boolean) convertValue(left, TYPE_BOOLEAN)).compareTo((Boolean) convertValue(right, TYPE_BOOLEAN))       < 0;
+      case TYPE_STRING: return ((String) convertValue(left, TYPE_STRING)).compareTo((String) convertValue(right, TYPE_STRING))            < 0;
     }
   }
 
   @Override
-  public String toString() {
-    return this.getParameters()[0] + "<" + this.getParameters()[1];
+  public boolean isSpecializable() {
+    return true;
+  }
+
+  @Override
+  public Object calculateInt(int left, int right) {
+    return left < right;
+  }
+
+  @Override
+  public Object calculateLong(long left, long right) {
+    return left < right;
+  }
+
+  @Override
+  public Object calculateDouble(double left, double right) {
+    return left < right;
   }
 }
 
 class LessAndEqual extends Calculator {
   protected LessAndEqual() {
-    super("<=", 2, 5);
+    super("<=", 2);
   }
 
   @Override
-  public Object calculate() {
-    int type = getReturnType();
+  public Object calculate(Object left, Object right) {
+    int type = getReturnType(left, right);
     switch (type) {
       case TYPE_OBJECT:
       default:
         throw new RuntimeException(String.format("%s is not support in %s.", this.getOperator(), getTypeName(type)));
-      case TYPE_INT: return (Integer) convertValue(0, TYPE_INT)      <= (Integer) convertValue(1, TYPE_INT);
-      case TYPE_LONG: return (Long) convertValue(0, TYPE_LONG)       <= (Long) convertValue(1, TYPE_LONG);
-      case TYPE_FLOAT: return (Float) convertValue(0, TYPE_FLOAT)    <= (Float) convertValue(1, TYPE_FLOAT);
-      case TYPE_DOUBLE: return (Double) convertValue(0, TYPE_DOUBLE) <= (Double) convertValue(1, TYPE_DOUBLE);
-      case TYPE_DECIMAL: return ((BigDecimal) convertValue(0, TYPE_DECIMAL)).compareTo((BigDecimal) convertValue(1, TYPE_DECIMAL)) <= 0;
-      case TYPE_BIT: return ((Byte) convertValue(0, TYPE_BIT)).compareTo((Byte) convertValue(1, TYPE_BIT))                         <= 0;
-      case TYPE_DATETIME: return ((Date) convertValue(0, TYPE_DATETIME)).compareTo((Date) convertValue(1, TYPE_DATETIME))          <= 0;
-      case TYPE_BOOLEAN: return ((Boolean) convertValue(0, TYPE_BOOLEAN)).compareTo((Boolean) convertValue(1, TYPE_BOOLEAN))       <= 0;
-      case TYPE_STRING: return ((String) convertValue(0, TYPE_STRING)).compareTo((String) convertValue(1, TYPE_STRING))            <= 0;
+      case TYPE_INT: return (Integer) convertValue(left, TYPE_INT)      <= (Integer) convertValue(right, TYPE_INT);
+      case TYPE_LONG: return (Long) convertValue(left, TYPE_LONG)       <= (Long) convertValue(right, TYPE_LONG);
+      case TYPE_FLOAT: return (Float) convertValue(left, TYPE_FLOAT)    <= (Float) convertValue(right, TYPE_FLOAT);
+      case TYPE_DOUBLE: return (Double) convertValue(left, TYPE_DOUBLE) <= (Double) convertValue(right, TYPE_DOUBLE);
+      case TYPE_DECIMAL: return ((BigDecimal) convertValue(left, TYPE_DECIMAL)).compareTo((BigDecimal) convertValue(right, TYPE_DECIMAL)) <= 0;
+      case TYPE_BIT: return ((Byte) convertValue(left, TYPE_BIT)).compareTo((Byte) convertValue(right, TYPE_BIT))                         <= 0;
+      case TYPE_DATETIME: return ((Date) convertValue(left, TYPE_DATETIME)).compareTo((Date) convertValue(right, TYPE_DATETIME))          <= 0;
+      case TYPE_BOOLEAN: return ((Boolean) convertValue(left, TYPE_BOOLEAN)).compareTo((Boolean) convertValue(right, TYPE_BOOLEAN))       <= 0;
+      case TYPE_STRING: return ((String) convertValue(left, TYPE_STRING)).compareTo((String) convertValue(right, TYPE_STRING))            <= 0;
     }
   }
 
   @Override
-  public String toString() {
-    return this.getParameters()[0] + "<=" + this.getParameters()[1];
+  public boolean isSpecializable() {
+    return true;
+  }
+
+  @Override
+  public Object calculateInt(int left, int right) {
+    return left <= right;
+  }
+
+  @Override
+  public Object calculateLong(long left, long right) {
+    return left <= right;
+  }
+
+  @Override
+  public Object calculateDouble(double left, double right) {
+    return left <= right;
   }
 }
 
 class Equal extends Calculator {
   protected Equal() {
-    super("==", 2, 6);
+    super("==", 2);
   }
 
   @Override
-  public Object calculate() {
-    int type = getReturnType();
+  public Object calculate(Object left, Object right) {
+    int type = getReturnType(left, right);
     switch (type) {
       case TYPE_OBJECT:
       default:
         throw new RuntimeException(String.format("%s is not support in %s.", this.getOperator(), getTypeName(type)));
-      case TYPE_INT: return (Integer) convertValue(0, TYPE_INT)      == (Integer) convertValue(1, TYPE_INT);
-      case TYPE_LONG: return (Long) convertValue(0, TYPE_LONG)       == (Long) convertValue(1, TYPE_LONG);
-      case TYPE_FLOAT: return (Float) convertValue(0, TYPE_FLOAT)    == (Float) convertValue(1, TYPE_FLOAT);
-      case TYPE_DOUBLE: return (Double) convertValue(0, TYPE_DOUBLE) == (Double) convertValue(1, TYPE_DOUBLE);
-      case TYPE_DECIMAL: return ((BigDecimal) convertValue(0, TYPE_DECIMAL)).compareTo((BigDecimal) convertValue(1, TYPE_DECIMAL)) == 0;
-      case TYPE_BIT: return ((Byte) convertValue(0, TYPE_BIT)).compareTo((Byte) convertValue(1, TYPE_BIT))                         == 0;
-      case TYPE_DATETIME: return ((Date) convertValue(0, TYPE_DATETIME)).compareTo((Date) convertValue(1, TYPE_DATETIME))          == 0;
-      case TYPE_BOOLEAN: return ((Boolean) convertValue(0, TYPE_BOOLEAN)).compareTo((Boolean) convertValue(1, TYPE_BOOLEAN))       == 0;
-      case TYPE_STRING: return ((String) convertValue(0, TYPE_STRING)).compareTo((String) convertValue(1, TYPE_STRING))            == 0;
+      case TYPE_INT: return (int) convertValue(left, TYPE_INT)          == (int) convertValue(right, TYPE_INT);
+      case TYPE_LONG: return (long) convertValue(left, TYPE_LONG)       == (long) convertValue(right, TYPE_LONG);
+      case TYPE_FLOAT: return (float) convertValue(left, TYPE_FLOAT)    == (float) convertValue(right, TYPE_FLOAT);
+      case TYPE_DOUBLE: return (double) convertValue(left, TYPE_DOUBLE) == (double) convertValue(right, TYPE_DOUBLE);
+      case TYPE_DECIMAL: return ((BigDecimal) convertValue(left, TYPE_DECIMAL)).compareTo((BigDecimal) convertValue(right, TYPE_DECIMAL)) == 0;
+      case TYPE_BIT: return ((Byte) convertValue(left, TYPE_BIT)).compareTo((Byte) convertValue(right, TYPE_BIT))                         == 0;
+      case TYPE_DATETIME: return ((Date) convertValue(left, TYPE_DATETIME)).compareTo((Date) convertValue(right, TYPE_DATETIME))          == 0;
+      case TYPE_BOOLEAN: return ((Boolean) convertValue(left, TYPE_BOOLEAN)).compareTo((Boolean) convertValue(right, TYPE_BOOLEAN))       == 0;
+      case TYPE_STRING: return ((String) convertValue(left, TYPE_STRING)).compareTo((String) convertValue(right, TYPE_STRING))            == 0;
     }
   }
 
   @Override
-  public String toString() {
-    return this.getParameters()[0] + "==" + this.getParameters()[1];
+  public boolean isSpecializable() {
+    return true;
+  }
+
+  @Override
+  public Object calculateInt(int left, int right) {
+    return left == right;
+  }
+
+  @Override
+  public Object calculateLong(long left, long right) {
+    return left == right;
+  }
+
+  @Override
+  public Object calculateDouble(double left, double right) {
+    return left == right;
   }
 }
 
 class NotEqual extends Calculator {
   protected NotEqual() {
-    super("!=", 2, 6);
+    super("!=", 2);
   }
 
   @Override
-  public Object calculate() {
-    int type = getReturnType();
+  public Object calculate(Object left, Object right) {
+    int type = getReturnType(left, right);
     switch (type) {
       case TYPE_OBJECT:
       default:              throw new RuntimeException(String.format("%s is not support in %s.", this.getOperator(), getTypeName(type)));
-      case TYPE_INT:        return (Integer) convertValue(0, TYPE_INT)      != (Integer) convertValue(1, TYPE_INT);
-      case TYPE_LONG:       return (Long) convertValue(0, TYPE_LONG)        != (Long) convertValue(1, TYPE_LONG);
-      case TYPE_FLOAT:      return (Float) convertValue(0, TYPE_FLOAT)      != (Float) convertValue(1, TYPE_FLOAT);
-      case TYPE_DOUBLE:     return (Double) convertValue(0, TYPE_DOUBLE)    != (Double) convertValue(1, TYPE_DOUBLE);
-      case TYPE_DECIMAL:    return ((BigDecimal) convertValue(0, TYPE_DECIMAL)).compareTo((BigDecimal) convertValue(1, TYPE_DECIMAL)) != 0;
-      case TYPE_BIT:        return ((Byte) convertValue(0, TYPE_BIT)).compareTo((Byte) convertValue(1, TYPE_BIT))                     != 0;
-      case TYPE_DATETIME:   return ((Date) convertValue(0, TYPE_DATETIME)).compareTo((Date) convertValue(1, TYPE_DATETIME))           != 0;
-      case TYPE_BOOLEAN:    return ((Boolean) convertValue(0, TYPE_BOOLEAN)).compareTo((Boolean) convertValue(1, TYPE_BOOLEAN))       != 0;
-      case TYPE_STRING:     return ((String) convertValue(0, TYPE_STRING)).compareTo((String) convertValue(1, TYPE_STRING))           != 0;
+      case TYPE_INT:        return (int) convertValue(left, TYPE_INT)          != (int) convertValue(right, TYPE_INT);
+      case TYPE_LONG:       return (long) convertValue(left, TYPE_LONG)        != (long) convertValue(right, TYPE_LONG);
+      case TYPE_FLOAT:      return (float) convertValue(left, TYPE_FLOAT)      != (float) convertValue(right, TYPE_FLOAT);
+      case TYPE_DOUBLE:     return (double) convertValue(left, TYPE_DOUBLE)    != (double) convertValue(right, TYPE_DOUBLE);
+      case TYPE_DECIMAL:    return ((BigDecimal) convertValue(left, TYPE_DECIMAL)).compareTo((BigDecimal) convertValue(right, TYPE_DECIMAL)) != 0;
+      case TYPE_BIT:        return ((Byte) convertValue(left, TYPE_BIT)).compareTo((Byte) convertValue(right, TYPE_BIT))                     != 0;
+      case TYPE_DATETIME:   return ((Date) convertValue(left, TYPE_DATETIME)).compareTo((Date) convertValue(right, TYPE_DATETIME))           != 0;
+      case TYPE_BOOLEAN:    return ((Boolean) convertValue(left, TYPE_BOOLEAN)).compareTo((Boolean) convertValue(right, TYPE_BOOLEAN))       != 0;
+      case TYPE_STRING:     return ((String) convertValue(left, TYPE_STRING)).compareTo((String) convertValue(right, TYPE_STRING))           != 0;
     }
   }
 
   @Override
-  public String toString() {
-    return this.getParameters()[0] + "!=" + this.getParameters()[1];
+  public boolean isSpecializable() {
+    return true;
+  }
+
+  @Override
+  public Object calculateInt(int left, int right) {
+    return left != right;
+  }
+
+  @Override
+  public Object calculateLong(long left, long right) {
+    return left != right;
+  }
+
+  @Override
+  public Object calculateDouble(double left, double right) {
+    return left != right;
   }
 }
 
 class BitwiseAND extends Calculator {
   protected BitwiseAND() {
-    super("&", 2, 7);
+    super("&", 2);
   }
 
   @Override
-  public Object calculate() {
-    int type = getReturnType();
+  public Object calculate(Object left, Object right) {
+    int type = getReturnType(left, right);
     switch (type) {
       case TYPE_OBJECT:
       case TYPE_FLOAT:
@@ -833,25 +948,20 @@ class BitwiseAND extends Calculator {
       case TYPE_STRING:
       default:
         throw new RuntimeException(String.format("%s is not support in %s.", this.getOperator(), getTypeName(type)));
-      case TYPE_INT:      return (Integer) convertValue(0, TYPE_INT)      & (Integer) convertValue(1, TYPE_INT);
-      case TYPE_LONG:     return (Long) convertValue(0, TYPE_LONG)        & (Long) convertValue(1, TYPE_LONG);
+      case TYPE_INT:      return (Integer) convertValue(left, TYPE_INT)      & (Integer) convertValue(right, TYPE_INT);
+      case TYPE_LONG:     return (Long) convertValue(left, TYPE_LONG)        & (Long) convertValue(right, TYPE_LONG);
     }
   }
-
-  @Override
-  public String toString() {
-    return this.getParameters()[0] + "&" + this.getParameters()[1];
-  }
 }
 
 class BitwiseInclusiveOR extends Calculator {
   protected BitwiseInclusiveOR() {
-    super("|", 2, 9);
+    super("|", 2);
   }
 
   @Override
-  public Object calculate() {
-    int type = getReturnType();
+  public Object calculate(Object left, Object right) {
+    int type = getReturnType(left, right);
     switch (type) {
       case TYPE_OBJECT:
       case TYPE_FLOAT:
@@ -863,25 +973,20 @@ class BitwiseInclusiveOR extends Calculator {
       case TYPE_STRING:
       default:
         throw new RuntimeException(String.format("%s is not support in %s.", this.getOperator(), getTypeName(type)));
-      case TYPE_INT:      return (Integer) convertValue(0, TYPE_INT)      | (Integer) convertValue(1, TYPE_INT);
-      case TYPE_LONG:     return (Long) convertValue(0, TYPE_LONG)        | (Long) convertValue(1, TYPE_LONG);
+      case TYPE_INT:      return (Integer) convertValue(left, TYPE_INT)      | (Integer) convertValue(right, TYPE_INT);
+      case TYPE_LONG:     return (Long) convertValue(left, TYPE_LONG)        | (Long) convertValue(right, TYPE_LONG);
     }
   }
-
-  @Override
-  public String toString() {
-    return this.getParameters()[0] + "|" + this.getParameters()[1];
-  }
 }
 
 class BitwiseExclusiveOR extends Calculator {
   protected BitwiseExclusiveOR() {
-    super("^", 2, 8);
+    super("^", 2);
   }
 
   @Override
-  public Object calculate() {
-    int type = getReturnType();
+  public Object calculate(Object left, Object right) {
+    int type = getReturnType(left, right);
     switch (type) {
       case TYPE_OBJECT:
       case TYPE_FLOAT:
@@ -893,25 +998,20 @@ class BitwiseExclusiveOR extends Calculator {
       case TYPE_STRING:
       default:
         throw new RuntimeException(String.format("%s is not support in %s.", this.getOperator(), getTypeName(type)));
-      case TYPE_INT:      return (Integer) convertValue(0, TYPE_INT)      ^ (Integer) convertValue(1, TYPE_INT);
-      case TYPE_LONG:     return (Long) convertValue(0, TYPE_LONG)        ^ (Long) convertValue(1, TYPE_LONG);
+      case TYPE_INT:      return (Integer) convertValue(left, TYPE_INT)      ^ (Integer) convertValue(right, TYPE_INT);
+      case TYPE_LONG:     return (Long) convertValue(left, TYPE_LONG)        ^ (Long) convertValue(right, TYPE_LONG);
     }
   }
-
-  @Override
-  public String toString() {
-    return this.getParameters()[0] + "^" + this.getParameters()[1];
-  }
 }
 
 class AND extends Calculator {
   protected AND() {
-    super("&&", 2, 10);
+    super("&&", 2);
   }
 
   @Override
-  public Object calculate() {
-    int type = getReturnType();
+  public Object calculate(Object left, Object right) {
+    int type = getReturnType(left, right);
     switch (type) {
       case TYPE_OBJECT:
       case TYPE_FLOAT:
@@ -923,57 +1023,19 @@ class AND extends Calculator {
       case TYPE_LONG:
       case TYPE_STRING:
       default:           throw new RuntimeException(String.format("%s is not support in %s.", this.getOperator(), getTypeName(type)));
-      case TYPE_BOOLEAN: return (Boolean) convertValue(0, TYPE_BOOLEAN) && (Boolean) convertValue(1, TYPE_BOOLEAN);
+      case TYPE_BOOLEAN: return (Boolean) convertValue(left, TYPE_BOOLEAN) && (Boolean) convertValue(right, TYPE_BOOLEAN);
     }
   }
-
-  @Override
-  public String toString() {
-    return this.getParameters()[0] + "&&" + this.getParameters()[1];
-  }
 }
 
 class OR extends Calculator {
   protected OR() {
-    super("||", 2, 10);
-  }
-
-  @Override
-  public Object calculate() {
-    int type = getReturnType();
-    switch (type) {
-      case TYPE_OBJECT:
-      case TYPE_FLOAT:
-      case TYPE_DOUBLE:
-      case TYPE_DECIMAL:
-      case TYPE_BIT:
-      case TYPE_DATETIME:
-      case TYPE_INT:
-      case TYPE_LONG:
-      case TYPE_STRING:
-      default:           throw new RuntimeException(String.format("%s is not support in %s.", this.getOperator(), getTypeName(type)));
-      case TYPE_BOOLEAN: return (Boolean) convertValue(0, TYPE_BOOLEAN) || (Boolean) convertValue(1, TYPE_BOOLEAN);
-    }
+    super("||", 2);
   }
 
   @Override
-  public String toString() {
-    return this.getParameters()[0] + "||" + this.getParameters()[1];
-  }
-}
-
-class Ternary extends Calculator {
-  private boolean isSecond;
-
-  protected Ternary(boolean second) {
-    super("?", 3, 12);
-    this.isSecond = second;
-  }
-
-  @Override
-  public Object calculate() {
-    int type = getReturnType();
-    boolean value;
+  public Object calculate(Object left, Object right) {
+    int type = getReturnType(left, right);
     switch (type) {
       case TYPE_OBJECT:
       case TYPE_FLOAT:
@@ -985,222 +1047,118 @@ class Ternary extends Calculator {
       case TYPE_LONG:
       case TYPE_STRING:
       default:           throw new RuntimeException(String.format("%s is not support in %s.", this.getOperator(), getTypeName(type)));
-      case TYPE_BOOLEAN: value = (Boolean) convertValue(0, TYPE_BOOLEAN); break;
-    }
-
-    if (value) {
-      return convertValue(1, TYPE_OBJECT);
-    } else {
-      return convertValue(2, TYPE_OBJECT);
-    }
-  }
-
-  @Override
-  public String toString() {
-    return this.getParameters()[0] + "?" + this.getParameters()[1] + ":" + this.getParameters()[2];
-  }
-}
-
-class Assign extends Calculator {
-  protected Assign() {
-    super("=", 2, 13);
-  }
-
-  @Override
-  public Object calculate() {
-    if (!(this.parameters[0] instanceof ReferenceValue)) {
-      throw new RuntimeException(String.format("The %s should be a variable.", this.parameters[0]));
+      case TYPE_BOOLEAN: return (Boolean) convertValue(left, TYPE_BOOLEAN) || (Boolean) convertValue(right, TYPE_BOOLEAN);
     }
-
-    Object value = this.convertValue(1, TYPE_OBJECT);
-    ((ReferenceValue)this.parameters[0]).assign(value);
-    return value;
-  }
-
-  @Override
-  public String toString() {
-    return this.getParameters()[0] + "=" + this.getParameters()[1];
   }
 }
 
 class AssignWithCalc extends Calculator {
-  private Calculator calculator;
+  private final Calculator calculator;
 
   protected AssignWithCalc(String op, Calculator calculator) {
-    super(op, calculator.parameterCount, 13);
+    super(op, calculator.parameterCount);
     this.calculator = calculator;
   }
 
   @Override
-  public Object calculate() {
-    if (!(this.parameters[0] instanceof ReferenceValue)) {
-      throw new RuntimeException(String.format("The %s should be a variable.", this.parameters[0]));
-    }
-
-    for (int i = 0; i < this.parameterCount; i++) {
-      this.calculator.push(this.parameters[i]);
+  public Object calculate(Object left, Object right) {
+    if (!(left instanceof ReferenceValue)) {
+      throw new RuntimeException(String.format("The %s should be a variable.", left));
     }
 
-    Object value = this.calculator.calculate();
-    ((ReferenceValue)this.parameters[0]).assign(value);
+    Object value = this.calculator.calculate(ReferenceValue.valueOf(left), right);
+    ((ReferenceValue) left).assign(value);
     return value;
   }
-
-  @Override
-  public String toString() {
-    return this.getParameters()[0] + this.op + this.getParameters()[1];
-  }
 }
 
 class CalculatorBuilder {
-  public Calculator build(String operator) {
-    return build(operator, false);
-  }
-
-  public Calculator build(String operator, boolean singleOp) {
-    switch (operator) {
-      case "-"    : return new Subtract(singleOp);
-      case "+"    : return new Plus(singleOp);
-      case "*"    : return new Multiply();
-      case "/"    : return new Divide();
-      case "%"    : return new MOD();
-      case ">>"   : return new RightShift();
-      case ">>>"   : return new UnsignRightShift();
-      case "<<"   : return new LeftShift();
-      case ">"    : return new Greater();
-      case ">="   : return new GreaterAndEqual();
-      case "<"    : return new Less();
-      case "<="   : return new LessAndEqual();
-      case "=="   : return new Equal();
-      case "!="   : return new NotEqual();
-      case "&"    : return new BitwiseAND();
-      case "|"    : return new BitwiseInclusiveOR();
-      case "^"    : return new BitwiseExclusiveOR();
-      case "&&"   : return new AND();
-      case "||"   : return new OR();
-      case "++"   : return new Increase(singleOp);
-      case "--"   : return new Decrease(singleOp);
-      case "!"    : return new NOT();
-      case "?"    : return new Ternary(false);
-      case ":"    : return new Ternary(true);
-      case "="    : return new Assign();
-      case "+="   : return new AssignWithCalc("+=", new Plus(false));
-      case "-="   : return new AssignWithCalc("-=", new Subtract(false));
-      case "*="   : return new AssignWithCalc("*=", new Multiply());
-      case "/="   : return new AssignWithCalc("/=", new Divide());
-      case "%="   : return new AssignWithCalc("%=", new MOD());
-      case "&="   : return new AssignWithCalc("&=", new BitwiseAND());
-      case "|="   : return new AssignWithCalc("|=", new BitwiseInclusiveOR());
-      case "<<="  : return new AssignWithCalc("<<=", new LeftShift());
-      case ">>="  : return new AssignWithCalc(">>=", new RightShift());
-      case ">>>=" : return new AssignWithCalc(">>>=", new UnsignRightShift());
-      default: throw new RuntimeException(String.format("The %s is not supported.", operator));
+  private static final Map<String, Calculator> BINARY = new HashMap<>();
+  private static final Map<String, Calculator> PREFIX = new HashMap<>();
+  private static final Map<String, Calculator> POSTFIX = new HashMap<>();
+
+  static {
+    register(BINARY, new Subtract(false));
+    register(BINARY, new Plus(false));
+    register(BINARY, new Multiply());
+    register(BINARY, new Divide());
+    register(BINARY, new MOD());
+    register(BINARY, new RightShift());
+    register(BINARY, new UnsignRightShift());
+    register(BINARY, new LeftShift());
+    register(BINARY, new Greater());
+    register(BINARY, new GreaterAndEqual());
+    register(BINARY, new Less());
+    register(BINARY, new LessAndEqual());
+    register(BINARY, new Equal());
+    register(BINARY, new NotEqual());
+    register(BINARY, new BitwiseAND());
+    register(BINARY, new BitwiseInclusiveOR());
+    register(BINARY, new BitwiseExclusiveOR());
+    register(BINARY, new AND());
+    register(BINARY, new OR());
+    register(BINARY, new AssignWithCalc("+=", BINARY.get("+")));
+    register(BINARY, new AssignWithCalc("-=", BINARY.get("-")));
+    register(BINARY, new AssignWithCalc("*=", BINARY.get("*")));
+    register(BINARY, new AssignWithCalc("/=", BINARY.get("/")));
+    register(BINARY, new AssignWithCalc("%=", BINARY.get("%")));
+    register(BINARY, new AssignWithCalc("&=", BINARY.get("&")));
+    register(BINARY, new AssignWithCalc("|=", BINARY.get("|")));
+    register(BINARY, new AssignWithCalc("<<=", BINARY.get("<<")));
+    register(BINARY, new AssignWithCalc(">>=", BINARY.get(">>")));
+    register(BINARY, new AssignWithCalc(">>>=", BINARY.get(">>>")));
+
+    register(PREFIX, new Subtract(true));
+    register(PREFIX, new Plus(true));
+    register(PREFIX, new NOT());
+    register(PREFIX, new Increase(true));
+    register(PREFIX, new Decrease(true));
+    register(POSTFIX, new Increase(false));
+    register(POSTFIX, new Decrease(false));
+  }
+
+  private static void register(Map<String, Calculator> calculators, Calculator calculator) {
+    calculators.put(calculator.getOperator(), calculator);
+  }
+
+  public static Calculator binary(String operator) {
+    Calculator calculator = BINARY.get(operator);
+    if (calculator == null) {
+      throw new RuntimeException(String.format("The %s is not supported.", operator));
     }
+    return calculator;
   }
-}
-
-class ExpressionExecutor {
-  private static final int P_TYPE_OP = 1;
-  private static final int P_TYPE_VALUE = 2;
-
-  private Stack<Calculator> operators;
-  private Stack<Object> parameters;
-  private Calculator current;
-  private CalculatorBuilder calculatorBuilder;
-  private int lastType;
-
-  public ExpressionExecutor() {
-    this.operators = new Stack<>();
-    this.parameters = new Stack<>();
-    this.calculatorBuilder = new CalculatorBuilder();
-    this.current = null;
-    this.lastType = -1;
-  }
-
-  public void pushOperator(String operator) {
-    Calculator inserted;
-    if (this.lastType == -1 || this.lastType == P_TYPE_OP) {
-      inserted = calculatorBuilder.build(operator, true);
-    } else {
-      inserted = calculatorBuilder.build(operator);
-    }
-    this.lastType = P_TYPE_OP;
-
-    if (current == null) {
-      current = inserted;
-      return;
-    }
-
-    while (current.getPriority() <= inserted.getPriority()) {
-      if (current.parameterCount == 3 && current.parameterCount == inserted.parameterCount && operator.equals(":")) {
-        // Do nothing and return.
-        return;
-      }
 
-      this.calculateInternal();
-      if (current == null) {
-        break;
-      }
+  public static Calculator unary(String operator, boolean prefix) {
+    Calculator calculator = (prefix ? PREFIX : POSTFIX).get(operator);
+    if (calculator == null) {
+      throw new RuntimeException(String.format("The %s is not supported.", operator));
     }
-
-    if (current != null) {
-      this.operators.add(current);
-    }
-
-    this.current = inserted;
+    return calculator;
   }
 
-  public void pushValue(Object value) {
-    this.parameters.add(value);
-    this.lastType = P_TYPE_VALUE;
-  }
-
-  public Object calculate() {
-    if (this.current == null && !this.operators.empty()) {
-      this.current = this.operators.pop();
-    }
-
-    while (this.current != null) {
-      this.calculateInternal();
-    }
-
-    if (this.parameters.empty()) {
+  public static Object shortCircuit(String operator, Object left) {
+    if (!"&&".equals(operator) && !"||".equals(operator)) {
       return null;
-    } else {
-      return this.parameters.pop();
     }
-  }
-
-  public void reset() {
-    this.parameters.clear();
-    this.operators.clear();
-    this.lastType = -1;
-    this.current = null;
-  }
-
-  private void calculateInternal() {
-    for (int i = 0; i < this.current.getParameterCount(); i++) {
-      Object value = this.parameters.pop();
-      if (value == null) {
-        throw new RuntimeException(String.format("The calculator need %d parameters, but it only %d", this.current.getParameterCount(), i ));
-      }
-      this.current.push(value);
+    Object value = ReferenceValue.valueOf(left);
+    if (value instanceof Boolean && (Boolean) value == "||".equals(operator)) {
+      return value;
     }
+    return null;
+  }
 
-    this.parameters.add(this.current.calculate());
-    if (this.operators.empty()) {
-      this.current = null;
-    } else {
-      this.current = this.operators.pop();
+  public static boolean condition(Object value) {
+    value = ReferenceValue.valueOf(value);
+    if (value instanceof Boolean) {
+      return (Boolean) value;
     }
+    throw new RuntimeException(String.format("The ternary condition should be bool. value: %s", value));
   }
 }
 
 class ReferenceValue {
-  public ReferenceValue parent;
-  public String name;
-  public boolean isIndexed;
-  public Object[] params;
+  public Symbol name;
   public EvaluationContext context;
   public boolean isNew;
 
@@ -1208,71 +1166,27 @@ class ReferenceValue {
     this.context = context;
   }
 
-  public void assign(Object value) {
-    if (name == null) {
-      if (this.parent == null) {
-        throw new RuntimeException("The reference value parent is null.");
-      }
-
-      Object instance = this.parent.getValue();
-      Object param = this.params[0];
-      if (this.isIndexed) {
-        if (!(param instanceof Integer)) {
-          throw new RuntimeException("The reference index should be int.");
-        }
+  public static Object valueOf(Object value) {
+    if (value instanceof ReferenceValue) {
+      value = ((ReferenceValue) value).getValue();
+    }
+    return value instanceof PendingValue ? ((PendingValue) value).join() : value;
+  }
 
-        Array.set(instance, (Integer) this.params[0], value);
-      } else {
-        if (!(param instanceof String)) {
-          throw new RuntimeException("The reference index should be int.");
-        }
+  public static Object deferred(Object value) {
+    return value instanceof ReferenceValue ? ((ReferenceValue) value).getValue() : value;
+  }
 
-        try {
-          instance.getClass().getField((String)this.params[0]).set(instance, value);
-        } catch (IllegalAccessException e) {
-          throw new RuntimeException(e);
-        } catch (NoSuchFieldException e) {
-          throw new RuntimeException(e);
-        }
-      }
+  public void assign(Object value) {
+    value = deferred(value);
+    if (this.isNew) {
+      this.context.newVariable(this.name, value);
     } else {
-      if (this.isNew) {
-        this.context.newVariable(this.name, value);
-      } else {
-        this.context.setVariable(this.name, value);
-      }
+      this.context.setVariable(this.name, value);
     }
   }
 
   public Object getValue() {
-    if (name == null) {
-      if (this.parent == null) {
-        throw new RuntimeException("The reference value parent is null.");
-      }
-
-      Object instance = this.parent.getValue();
-      Object param = this.params[0];
-      if (this.isIndexed) {
-        if (!(param instanceof Integer)) {
-          throw new RuntimeException("The reference index should be int.");
-        }
-
-        return Array.get(instance, (Integer) this.params[0]);
-      } else {
-        if (!(param instanceof String)) {
-          throw new RuntimeException("The reference index should be int.");
-        }
-
-        try {
-          return instance.getClass().getField((String)this.params[0]).get(instance);
-        } catch (IllegalAccessException e) {
-          throw new RuntimeException(e);
-        } catch (NoSuchFieldException e) {
-          throw new RuntimeException(e);
-        }
-      }
-    } else {
-      return this.context.getVariable(this.name);
-    }
+    return this.context.getVariable(this.name);
   }
 }
@@ -0,0 +1,437 @@
+package org.xq.expression.envaluation;
+
+import org.xq.expression.ExpressionBuilder;
+import org.xq.expression.ExpressionVisitor;
+import org.xq.expression.Symbol;
+import org.xq.expression.expressions.*;
+import org.xq.expression.functions.FunctionFactory;
+import org.xq.expression.functions.FunctionRegistry;
+
+import javax.tools.*;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ExpressionCompiler extends ExpressionVisitor<String> implements ICompiler {
+  private static final String PACKAGE_NAME = "org.xq.expression.generated";
+  private static final AtomicInteger SCRIPT_COUNTER = new AtomicInteger();
+
+  private final ExpressionBuilder builder = new ExpressionBuilder();
+  private final boolean caseSensitive;
+  private final FunctionRegistry registry;
+  private SlotLayout layout;
+  private StringBuilder body;
+  private List<Object> constants;
+  private int indentLevel;
+  private int localCount;
+
+  public ExpressionCompiler() {
+    this(true);
+  }
+
+  public ExpressionCompiler(boolean caseSensitive) {
+    this(caseSensitive, FunctionFactory.REGISTRY);
+  }
+
+  public ExpressionCompiler(FunctionRegistry registry) {
+    this(true, registry);
+  }
+
+  public ExpressionCompiler(boolean caseSensitive, FunctionRegistry registry) {
+    this.caseSensitive = caseSensitive;
+    this.registry = registry;
+  }
+
+  @Override
+  public CompiledScript compile(Expression expression) {
+    return new TreeScript(this.caseSensitive, this.program(expression),
+        () -> new ExpressionCompiler(!this.caseSensitive, this.registry).program(expression));
+  }
+
+  TreeProgram program(Expression expression) {
+    String className = "Script" + SCRIPT_COUNTER.incrementAndGet();
+    String source = generate(className, expression);
+    Object[] constantValues = this.constants.toArray();
+    Class<?> scriptClass = compileSource(PACKAGE_NAME + "." + className, source);
+    try {
+      ExecutionNode root = (ExecutionNode) scriptClass.getConstructor(Object[].class).newInstance((Object) constantValues);
+      return this.layout.program(root);
+    } catch (ReflectiveOperationException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  public String generate(String className, Expression expression) {
+    this.layout = new SlotLayout(this.caseSensitive);
+    this.body = new StringBuilder();
+    this.constants = new ArrayList<>();
+    this.indentLevel = 2;
+    this.localCount = 0;
+    this.visit(expression);
+
+    StringBuilder source = new StringBuilder();
+    source.append("package ").append(PACKAGE_NAME).append(";\n\n");
+    source.append("import org.xq.expression.envaluation.*;\n");
+    source.append("import org.xq.expression.Symbol;\n");
+    source.append("import org.xq.expression.functions.FunctionLink;\n");
+    source.append("import org.xq.expression.functions.IFunction;\n\n");
+    source.append("public final class ").append(className).append(" extends ExecutionNode {\n");
+    source.append("  private final Object[] constants;\n\n");
+    source.append("  public ").append(className).append("(Object[] constants) {\n");
+    source.append("    this.constants = constants;\n");
+    source.append("  }\n\n");
+    source.append("  @Override\n");
+    source.append("  public Object execute(ExecutionFrame f) {\n");
+    source.append(this.body);
+    source.append("    return null;\n");
+    source.append("  }\n");
+    source.append("}\n");
+    return source.toString();
+  }
+
+  @Override
+  public String visit(AssignExpression expression) {
+    if (expression.getVariable() instanceof VariableExpression) {
+      String value = this.visit(expression.getCalculateExpression());
+      Symbol name = ((VariableExpression) expression.getVariable()).getSymbol();
+      SlotScope target = this.layout.resolve(name);
+      return this.local("f.assign(" + target.depth + ", " + target.slot(this.layout.key(name)) + ", " + value + ")");
+    }
+
+    String reference = this.reference(expression.getVariable());
+    String value = this.visit(expression.getCalculateExpression());
+    return this.local("f.assign(" + reference + ", " + value + ")");
+  }
+
+  @Override
+  public String visit(ConstantExpression expression) {
+    return this.constant(expression.getValue());
+  }
+
+  @Override
+  public String visit(DeclareExpression expression) {
+    VariableExpression variableExpression;
+    String value = "null";
+    if (expression.getExpression() instanceof VariableExpression) {
+      variableExpression = (VariableExpression) expression.getExpression();
+    } else if (expression.getExpression() instanceof AssignExpression) {
+      AssignExpression assignExpression = (AssignExpression) expression.getExpression();
+      if (assignExpression.getVariable() instanceof VariableExpression) {
+        variableExpression = (VariableExpression) assignExpression.getVariable();
+      } else {
+        throw new RuntimeException("It is not variable statement. Statement: " + builder.build(assignExpression.getVariable()));
+      }
+      value = this.visit(assignExpression.getCalculateExpression());
+    } else {
+      throw new RuntimeException("Invalid declare statement. Statement: " + builder.build(expression));
+    }
+
+    Symbol name = variableExpression.getSymbol();
+    Symbol key = this.layout.key(name);
+    SlotScope visible = this.layout.resolve(name);
+    SlotScope scope = this.layout.scope();
+    int slot = scope.declare(key, name);
+    return this.local("f.declare(" + this.symbol(name) + ", " + scope.depth + ", " + slot + ", "
+        + visible.depth + ", " + visible.slot(key) + ", " + value + ")");
+  }
+
+  @Override
+  public String visit(FunctionExpression expression) {
+    if ("expose".equalsIgnoreCase(expression.getName())) {
+      for (Expression param: expression.getParams()) {
+        if (!(param instanceof VariableExpression)) {
+          throw new RuntimeException("Only Variable is available." + builder.build(param));
+        }
+        ExecutionNode expose = this.layout.expose(((VariableExpression) param).getSymbol());
+        this.statement("((ExecutionNode) " + this.constant(expose) + ").execute(f);");
+      }
+      return "null";
+    }
+
+    String function = this.newLocal();
+    this.statement("IFunction " + function + " = ((FunctionLink) " + this.constant(this.registry.link(expression.getSymbol())) + ").get();");
+    List<String> params = new ArrayList<>();
+    for (Expression param: expression.getParams()) {
+      params.add(this.visit(param));
+    }
+    if (params.size() > 4) {
+      return this.local("f.invoke(" + function + ", new Object[] {" + String.join(", ", params) + "})");
+    }
+    params.add(0, function);
+    return this.local("f.call(" + String.join(", ", params) + ")");
+  }
+
+  @Override
+  public String visit(BinaryExpression expression) {
+    Calculator binary = CalculatorBuilder.binary(expression.getOp());
+    String op = this.literal(expression.getOp());
+    String calculator = this.constant(binary);
+    if (expression.getPriority() == BinaryExpression.ASSIGN_PRIORITY) {
+      String left = this.reference(expression.getLeft());
+      return this.local("f.calculate(" + calculator + ", " + left + ", " + this.visit(expression.getRight()) + ")");
+    }
+
+    String left = this.visit(expression.getLeft());
+    if (!"&&".equals(expression.getOp()) && !"||".equals(expression.getOp())) {
+      String method = binary.isSpecializable() ? "f.calculateNumeric(" : "f.calculate(";
+      return this.local(method + calculator + ", " + left + ", " + this.visit(expression.getRight()) + ")");
+    }
+
+    String value = this.local("f.shortCircuit(" + op + ", " + left + ")");
+    this.statement("if (" + value + " == null) {");
+    this.indentLevel++;
+    String right = this.visit(expression.getRight());
+    this.statement(value + " = f.calculate(" + calculator + ", " + left + ", " + right + ");");
+    this.indentLevel--;
+    this.statement("}");
+    return value;
+  }
+
+  @Override
+  public String visit(UnaryExpression expression) {
+    String calculator = this.constant(CalculatorBuilder.unary(expression.getOp(), expression.isPrefix()));
+    String operand = UnaryExpression.isPostfixOperator(expression.getOp())
+        ? this.reference(expression.getOperand()) : this.visit(expression.getOperand());
+    return this.local("f.calculate(" + calculator + ", " + operand + ")");
+  }
+
+  @Override
+  public String visit(TernaryExpression expression) {
+    String condition = this.visit(expression.getCondition());
+    String value = this.newLocal();
+    this.statement("Object " + value + ";");
+    this.statement("if (f.condition(" + condition + ")) {");
+    this.indentLevel++;
+    String trueValue = this.visit(expression.getTrueExpression());
+    this.statement(value + " = f.value(" + trueValue + ");");
+    this.indentLevel--;
+    this.statement("} else {");
+    this.indentLevel++;
+    String falseValue = this.visit(expression.getFalseExpression());
+    this.statement(value + " = f.value(" + falseValue + ");");
+    this.indentLevel--;
+    this.statement("}");
+    return value;
+  }
+
+  @Override
+  public String visit(ScopeExpression expression) {
+    int mark = this.body.length();
+    SlotScope scope = this.layout.pushScope();
+    for (Expression subExpression: expression.getExpressions()) {
+      this.visit(subExpression);
+    }
+    this.layout.popScope();
+    this.clear(mark, scope);
+    return "null";
+  }
+
+  @Override
+  public String visit(VariableExpression expression) {
+    SlotScope target = this.layout.resolve(expression.getSymbol());
+    return this.local("f.load(" + target.depth + ", " + target.slot(this.layout.key(expression.getSymbol())) + ")");
+  }
+
+  @Override
+  public String visit(IfExpression expression) {
+    int mark = this.body.length();
+    SlotScope scope = this.layout.pushScope();
+    this.visitCondition(expression, 0);
+    this.layout.popScope();
+    this.clear(mark, scope);
+    return "null";
+  }
+
+  @Override
+  public String visit(WhileExpression expression) {
+    this.statement("while (true) {");
+    this.indentLevel++;
+    String condition = this.visit(expression.getCondition());
+    this.statement("if (!f.test(" + condition + ")) {");
+    this.statement("  break;");
+    this.statement("}");
+    this.visit(expression.getScope());
+    this.indentLevel--;
+    this.statement("}");
+    return "null";
+  }
+
+  @Override
+  public String visit(AccessorExpression expression) {
+    return this.reference(expression);
+  }
+
+  private String reference(Expression expression) {
+    if (expression instanceof VariableExpression) {
+      Symbol name = ((VariableExpression) expression).getSymbol();
+      SlotScope target = this.layout.resolve(name);
+      return this.local("f.reference(" + target.depth + ", " + target.slot(this.layout.key(name)) + ")");
+    } else if (!(expression instanceof AccessorExpression)) {
+      return this.visit(expression);
+    }
+
+    AccessorExpression accessor = (AccessorExpression) expression;
+    if (!accessor.isIndexed()) {
+      AccessorPath path = AccessorPath.of(accessor);
+      String root = this.visit(path.getRoot());
+      return this.local("f.path(" + root + ", " + this.constant(path) + ")");
+    }
+
+    AccessorSite site = AccessorSite.of(accessor);
+    String parent = this.visit(accessor.getVariable());
+    String key = site.isIndexed() ? this.visit(accessor.getParams().get(0)) : "null";
+    return this.local("f.accessor(" + parent + ", " + this.constant(site) + ", " + key + ")");
+  }
+
+  private void clear(int mark, SlotScope scope) {
+    if (scope.size() > 0) {
+      int length = this.body.length();
+      this.statement("f.clear(" + scope.depth + ", " + scope.size() + ");");
+      String statement = this.body.substring(length);
+      this.body.setLength(length);
+      this.body.insert(mark, statement);
+    }
+  }
+
+  private void visitCondition(IfExpression expression, int index) {
+    if (index == expression.getConditions().size()) {
+      if (expression.getElse() != null) {
+        this.visit(expression.getElse());
+      }
+      return;
+    }
+
+    String condition = this.visit(expression.getConditions().get(index));
+    this.statement("if (f.test(" + condition + ")) {");
+    this.indentLevel++;
+    this.visit(expression.getScopes().get(index));
+    this.indentLevel--;
+    this.statement("} else {");
+    this.indentLevel++;
+    this.visitCondition(expression, index + 1);
+    this.indentLevel--;
+    this.statement("}");
+  }
+
+  private String newLocal() {
+    return "v" + (this.localCount++);
+  }
+
+  private String local(String value) {
+    String name = this.newLocal();
+    this.statement("Object " + name + " = " + value + ";");
+    return name;
+  }
+
+  private String constant(Object value) {
+    this.constants.add(value);
+    return "constants[" + (this.constants.size() - 1) + "]";
+  }
+
+  private String symbol(Symbol symbol) {
+    return "(Symbol) " + this.constant(symbol);
+  }
+
+  private void statement(String statement) {
+    for (int i = 0; i < this.indentLevel; i++) {
+      this.body.append("  ");
+    }
+    this.body.append(statement).append("\n");
+  }
+
+  private String literal(String value) {
+    StringBuilder builder = new StringBuilder("\"");
+    for (char ch: value.toCharArray()) {
+      if (ch == '"' || ch == '\\') {
+        builder.append('\\').append(ch);
+      } else if (ch < 0x20 || ch > 0x7e) {
+        builder.append(String.format("\\u%04x", (int) ch));
+      } else {
+        builder.append(ch);
+      }
+    }
+    return builder.append("\"").toString();
+  }
+
+  private static Class<?> compileSource(String className, String source) {
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    if (compiler == null) {
+      throw new RuntimeException("The java compiler is not available. Please run with a JDK.");
+    }
+
+    DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+    MemoryFileManager fileManager = new MemoryFileManager(compiler.getStandardFileManager(diagnostics, null, null));
+    JavaFileObject sourceFile = new SimpleJavaFileObject(
+        URI.create("string:///" + className.replace('.', '/') + JavaFileObject.Kind.SOURCE.extension), JavaFileObject.Kind.SOURCE) {
+      @Override
+      public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+        return source;
+      }
+    };
+
+    List<String> options = Arrays.asList("-classpath", classPath(), "-g:none", "-nowarn");
+    Boolean success = compiler.getTask(null, fileManager, diagnostics, options, null, Arrays.asList(sourceFile)).call();
+    if (!success) {
+      StringBuilder builder = new StringBuilder();
+      for (Diagnostic<? extends JavaFileObject> diagnostic: diagnostics.getDiagnostics()) {
+        builder.append(diagnostic.getMessage(null)).append("\r\n");
+      }
+      throw new RuntimeException(String.format("Failed to compile the script. %s", builder));
+    }
+
+    ScriptClassLoader classLoader = new ScriptClassLoader(CompiledScript.class.getClassLoader());
+    for (Map.Entry<String, ByteArrayOutputStream> entry: fileManager.outputs.entrySet()) {
+      classLoader.define(entry.getKey(), entry.getValue().toByteArray());
+    }
+    try {
+      return classLoader.loadClass(className);
+    } catch (ClassNotFoundException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private static String classPath() {
+    String classPath = System.getProperty("java.class.path");
+    try {
+      String location = new File(CompiledScript.class.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath();
+      return location + File.pathSeparator + classPath;
+    } catch (Exception e) {
+      return classPath;
+    }
+  }
+
+  private static class MemoryFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+    private final Map<String, ByteArrayOutputStream> outputs = new HashMap<>();
+
+    MemoryFileManager(StandardJavaFileManager fileManager) {
+      super(fileManager);
+    }
+
+    @Override
+    public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind, FileObject sibling) {
+      return new SimpleJavaFileObject(URI.create("mem:///" + className.replace('.', '/') + kind.extension), kind) {
+        @Override
+        public OutputStream openOutputStream() {
+          return outputs.computeIfAbsent(className, (name) -> new ByteArrayOutputStream());
+        }
+      };
+    }
+  }
+
+  private static class ScriptClassLoader extends ClassLoader {
+    ScriptClassLoader(ClassLoader parent) {
+      super(parent);
+    }
+
+    void define(String className, byte[] bytes) {
+      defineClass(className, bytes, 0, bytes.length);
+    }
+  }
+}
@@ -2,29 +2,167 @@ package org.xq.expression.envaluation;
 
 import org.xq.expression.ExpressionBuilder;
 import org.xq.expression.ExpressionVisitor;
-import org.xq.expression.Variable;
 import org.xq.expression.expressions.*;
 import org.xq.expression.functions.FunctionFactory;
+import org.xq.expression.functions.FunctionLink;
+import org.xq.expression.functions.FunctionRegistry;
 import org.xq.expression.functions.IFunction;
 
-import java.sql.Types;
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Stack;
 
-public class ExpressionEngine extends ExpressionVisitor<Object> {
-  private EvaluationContext root;
-  private EvaluationContext current;
-  private Stack<ExpressionExecutor> executors;
-  private ExpressionBuilder builder;
+public class ExpressionEngine extends ExpressionVisitor<Object> implements IEngine, ICompiler {
+  private final FunctionRegistry registry;
+  private final ThreadLocal<ExpressionEvaluation> evaluation = new ThreadLocal<>();
 
+  public ExpressionEngine() {
+    this(FunctionFactory.REGISTRY);
+  }
+
+  public ExpressionEngine(FunctionRegistry registry) {
+    this.registry = registry;
+  }
+
+  @Override
   public EvaluationContext evaluate(EvaluationContext context, Expression expression) {
-    this.executors = new Stack<>();
-    this.builder = new ExpressionBuilder();
-    this.root = context;
-    this.current = context;
-    this.visit(expression);
-    return root;
+    ExecutionFrame frame = new ExecutionFrame(context);
+    this.evaluate(frame, expression);
+    frame.settle();
+    return context;
+  }
+
+  @Override
+  public CompiledScript compile(Expression expression) {
+    return new InterpretedScript(expression, this);
+  }
+
+  void evaluate(ExecutionFrame frame, Expression expression) {
+    if (this.getClass() == ExpressionEngine.class) {
+      new ExpressionEvaluation(frame, this.registry, null).visit(expression);
+      return;
+    }
+
+    ExpressionEvaluation previous = this.evaluation.get();
+    this.evaluation.set(new ExpressionEvaluation(frame, this.registry, this));
+    try {
+      this.evaluation.get().visit(expression);
+    } finally {
+      this.evaluation.set(previous);
+    }
+  }
+
+  // The engine used to be the visitor itself. Subclasses that override these methods keep working: the
+  // evaluation dispatches through the engine, and the defaults forward to the evaluation of the current call.
+  @Deprecated
+  @Override
+  public Object visit(AssignExpression expression) {
+    return this.current().visit(expression);
+  }
+
+  @Deprecated
+  @Override
+  public Object visit(ConstantExpression expression) {
+    return this.current().visit(expression);
+  }
+
+  @Deprecated
+  @Override
+  public Object visit(DeclareExpression expression) {
+    return this.current().visit(expression);
+  }
+
+  @Deprecated
+  @Override
+  public Object visit(FunctionExpression expression) {
+    return this.current().visit(expression);
+  }
+
+  @Deprecated
+  @Override
+  public Object visit(BinaryExpression expression) {
+    return this.current().visit(expression);
+  }
+
+  @Deprecated
+  @Override
+  public Object visit(ScopeExpression expression) {
+    return this.current().visit(expression);
+  }
+
+  @Deprecated
+  @Override
+  public Object visit(UnaryExpression expression) {
+    return this.current().visit(expression);
+  }
+
+  @Deprecated
+  @Override
+  public Object visit(TernaryExpression expression) {
+    return this.current().visit(expression);
+  }
+
+  @Deprecated
+  @Override
+  public Object visit(VariableExpression expression) {
+    return this.current().visit(expression);
+  }
+
+  @Deprecated
+  @Override
+  public Object visit(IfExpression expression) {
+    return this.current().visit(expression);
+  }
+
+  @Deprecated
+  @Override
+  public Object visit(WhileExpression expression) {
+    return this.current().visit(expression);
+  }
+
+  @Deprecated
+  @Override
+  public Object visit(AccessorExpression expression) {
+    return this.current().visit(expression);
+  }
+
+  private ExpressionEvaluation current() {
+    ExpressionEvaluation evaluation = this.evaluation.get();
+    if (evaluation == null) {
+      throw new RuntimeException("The engine can only visit expressions while it evaluates. Please call evaluate instead.");
+    }
+    return evaluation;
+  }
+}
+
+final class InterpretedScript extends CompiledScript {
+  private final Expression expression;
+  private final ExpressionEngine engine;
+
+  InterpretedScript(Expression expression, ExpressionEngine engine) {
+    super(new Object[0]);
+    this.expression = expression;
+    this.engine = engine;
+  }
+
+  @Override
+  protected void execute(ExecutionFrame frame) {
+    this.engine.evaluate(frame, this.expression);
+  }
+}
+
+final class ExpressionEvaluation extends ExpressionVisitor<Object> {
+  private final ExecutionFrame frame;
+  private final FunctionRegistry registry;
+  private final ExpressionEngine engine;
+
+  ExpressionEvaluation(ExecutionFrame frame, FunctionRegistry registry, ExpressionEngine engine) {
+    this.frame = frame;
+    this.registry = registry;
+    this.engine = engine;
+  }
+
+  @Override
+  public Object visit(Expression expression) {
+    return this.engine == null ? super.visit(expression) : this.engine.visit(expression);
   }
 
   @Override
@@ -38,28 +176,7 @@ public class ExpressionEngine extends ExpressionVisitor<Object> {
 
   @Override
   public Object visit(ConstantExpression expression) {
-    if (expression.getType() == ConstantExpression.TYPE_STRING) {
-      return new Variable<String>(expression.getConstant(), Types.VARCHAR, false);
-    } else if (expression.getType() == ConstantExpression.TYPE_BOOL) {
-      return ValueUtils.parseAsBool(expression.getConstant());
-    } else if (expression.getType() == ConstantExpression.TYPE_NUMBER) {
-      Integer integer = ValueUtils.parseAsInteger(expression.getConstant());
-      if (integer != null) {
-        return integer;
-      }
-
-      Long aLong = ValueUtils.parseAsLong(expression.getConstant());
-      if (aLong != null) {
-        return aLong;
-      }
-
-      Double aDouble = ValueUtils.parseAsDouble(expression.getConstant());
-      if (aDouble != null) {
-        return aDouble;
-      }
-    }
-
-    throw new RuntimeException(String.format("Invalid Number value %s", expression.getConstant()));
+    return expression.getValue();
   }
 
   @Override
@@ -73,16 +190,15 @@ public class ExpressionEngine extends ExpressionVisitor<Object> {
       if (((AssignExpression)expression.getExpression()).getVariable() instanceof  VariableExpression) {
         variableExpression = (VariableExpression)((AssignExpression)expression.getExpression()).getVariable();
       } else {
-        throw new RuntimeException("It is not variable statement. Statement: " + builder.build(((AssignExpression)expression.getExpression()).getVariable()));
+        throw new RuntimeException("It is not variable statement. Statement: " + new ExpressionBuilder().build(((AssignExpression)expression.getExpression()).getVariable()));
       }
       value = this.visit(((AssignExpression)expression.getExpression()).getCalculateExpression());
     } else {
-      throw new RuntimeException("Invalid declare statement. Statement: " + builder.build(expression));
+      throw new RuntimeException("Invalid declare statement. Statement: " + new ExpressionBuilder().build(expression));
     }
 
     referenceValue = (ReferenceValue) this.visit(variableExpression);
-    referenceValue.isNew = true;
-    referenceValue.assign(value);
+    this.frame.declare(referenceValue, value);
     return value;
   }
 
@@ -91,63 +207,79 @@ public class ExpressionEngine extends ExpressionVisitor<Object> {
     if ("expose".equalsIgnoreCase(expression.getName())) {
       for (Expression param: expression.getParams()) {
         if (!(param instanceof VariableExpression)) {
-          throw new RuntimeException("Only Variable is available." + builder.build(param));
+          throw new RuntimeException("Only Variable is available." + new ExpressionBuilder().build(param));
         }
-        this.current.levelUpVariable(((VariableExpression)param).getVariable());
+        this.frame.expose(((VariableExpression)param).getSymbol());
       }
       return null;
     } else {
-      IFunction function = FunctionFactory.getFunction(expression.getName());
-      List<Object> params = new ArrayList<>();
-      for (Expression param: expression.getParams()) {
-        params.add(this.visit(param));
+      FunctionLink link = (FunctionLink) expression.getSite();
+      if (link == null || link.getRegistry() != this.registry) {
+        link = this.registry.link(expression.getSymbol());
+        expression.setSite(link);
       }
-      return function.evaluate(params.toArray());
+      IFunction function = link.get();
+      List<Expression> params = expression.getParams();
+      switch (params.size()) {
+        case 0: return this.frame.call(function);
+        case 1: return this.frame.call(function, this.visit(params.get(0)));
+        case 2: return this.frame.call(function, this.visit(params.get(0)), this.visit(params.get(1)));
+        case 3: return this.frame.call(function, this.visit(params.get(0)), this.visit(params.get(1)), this.visit(params.get(2)));
+        case 4: return this.frame.call(function, this.visit(params.get(0)), this.visit(params.get(1)), this.visit(params.get(2)), this.visit(params.get(3)));
+      }
+      Object[] values = new Object[params.size()];
+      for (int i = 0; i < values.length; i++) {
+        values[i] = this.visit(params.get(i));
+      }
+      return this.frame.invoke(function, values);
     }
   }
 
   @Override
-  public Object visit(OperatorExpression expression) {
-    this.executors.peek().pushOperator(expression.getOp());
-    return null;
+  public Object visit(BinaryExpression expression) {
+    Object left = this.visit(expression.getLeft());
+    Object value = CalculatorBuilder.shortCircuit(expression.getOp(), left);
+    if (value != null) {
+      return value;
+    }
+    return CalculatorBuilder.binary(expression.getOp()).calculate(left, this.visit(expression.getRight()));
   }
 
   @Override
-  public Object visit(ScopeExpression expression) {
-    this.current = this.current.pushContext();
-    for (Expression subExpression: expression.getExpressions()) {
-      this.visit(subExpression);
+  public Object visit(UnaryExpression expression) {
+    return CalculatorBuilder.unary(expression.getOp(), expression.isPrefix()).calculate(this.visit(expression.getOperand()));
+  }
+
+  @Override
+  public Object visit(TernaryExpression expression) {
+    if (CalculatorBuilder.condition(this.visit(expression.getCondition()))) {
+      return ReferenceValue.valueOf(this.visit(expression.getTrueExpression()));
+    } else {
+      return ReferenceValue.valueOf(this.visit(expression.getFalseExpression()));
     }
-    this.current = this.current.popContext();
-    return null;
   }
 
   @Override
-  public Object visit(ValueExpression expression) {
-    this.executors.push(new ExpressionExecutor());
-    for (Expression subExpr: expression.getExpressionStack()) {
-      if (subExpr instanceof OperatorExpression) {
-        this.visit(subExpr);
-      } else {
-        this.executors.peek().pushValue(this.visit(subExpr));
-      }
+  public Object visit(ScopeExpression expression) {
+    this.frame.pushScope();
+    for (Expression subExpression: expression.getExpressions()) {
+      this.visit(subExpression);
     }
-    return this.executors.pop().calculate();
+    this.frame.popScope();
+    return null;
   }
 
   @Override
   public Object visit(VariableExpression expression) {
-    ReferenceValue referenceValue = new ReferenceValue(this.current);
-    referenceValue.name = expression.getVariable();
-    return referenceValue;
+    return this.frame.reference(expression.getSymbol());
   }
 
   @Override
   public Object visit(IfExpression expression) {
-    this.current = this.current.pushContext();
+    this.frame.pushScope();
     boolean isExecuted = false;
     for (int i = 0; i < expression.getConditions().size(); i++) {
-      Object value = visit(expression.getConditions().get(i));
+      Object value = ReferenceValue.valueOf(visit(expression.getConditions().get(i)));
       if (value instanceof Boolean) {
         if ((Boolean)value) {
           this.visit(expression.getScopes().get(i));
@@ -163,14 +295,14 @@ public class ExpressionEngine extends ExpressionVisitor<Object> {
       this.visit(expression.getElse());
     }
 
-    this.current = this.current.popContext();
+    this.frame.popScope();
     return null;
   }
 
   @Override
   public Object visit(WhileExpression expression) {
     while (true) {
-      Object value = visit(expression.getCondition());
+      Object value = ReferenceValue.valueOf(visit(expression.getCondition()));
       if (value instanceof Boolean) {
         if ((Boolean)value) {
           this.visit(expression.getScope());
@@ -185,29 +317,28 @@ public class ExpressionEngine extends ExpressionVisitor<Object> {
 
   @Override
   public Object visit(AccessorExpression expression) {
-    ReferenceValue referenceValue = new ReferenceValue(this.current);
-    Object parentValue = this.visit(expression.getVariable());;
-    if (!(parentValue instanceof ReferenceValue)) {
-      throw new RuntimeException(String.format("The assessor expression is incorrect. The parent is not reference value. parent: %s", this.builder.build(expression.getVariable())));
+    if (!expression.isIndexed()) {
+      AccessorPath path = (AccessorPath) expression.getSite();
+      if (path == null) {
+        path = AccessorPath.of(expression);
+        expression.setSite(path);
+      }
+      return new PathReference(path, ReferenceValue.valueOf(this.visit(path.getRoot())));
     }
 
-    referenceValue.parent = (ReferenceValue)parentValue;
-    referenceValue.isIndexed = expression.isIndexed();
-    referenceValue.params = new Object[expression.getParams().size()];
-    if (referenceValue.params.length == 0) {
-      throw new RuntimeException(String.format("The accessor expression require one parameter at least."));
+    AccessorSite site = (AccessorSite) expression.getSite();
+    if (site == null) {
+      site = AccessorSite.of(expression);
+      expression.setSite(site);
     }
-    if (referenceValue.params.length != 0) {
-      throw new RuntimeException(String.format("The accessor expression ONLY require one parameter."));
-    }
-    for (int i = 0; i < referenceValue.params.length; i++) {
-      referenceValue.params[i] = this.visit(expression.getParams().get(i));
-    }
-    return referenceValue;
+
+    Object parent = ReferenceValue.valueOf(this.visit(expression.getVariable()));
+    Object key = site.isIndexed() ? ReferenceValue.valueOf(this.visit(expression.getParams().get(0))) : null;
+    return new AccessorReference(site, parent, key);
   }
 
   private void checkVariable(String variableName) {
-    if (!this.current.hasValue(variableName)) {
+    if (!this.frame.current().hasValue(variableName)) {
       throw new RuntimeException(String.format("The required %s variable does not exist.", variableName));
     }
   }
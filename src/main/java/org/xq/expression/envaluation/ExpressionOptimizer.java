@@ -0,0 +1,241 @@
+package org.xq.expression.envaluation;
+
+import org.xq.expression.ExpressionBuilder;
+import org.xq.expression.ExpressionVisitor;
+import org.xq.expression.expressions.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+public class ExpressionOptimizer extends ExpressionVisitor<Expression> {
+  private final ExpressionBuilder builder = new ExpressionBuilder();
+  private final List<String> changes = new ArrayList<>();
+
+  public Expression optimize(Expression expression) {
+    this.changes.clear();
+    return this.visit(expression);
+  }
+
+  public List<String> getChanges() {
+    return changes;
+  }
+
+  @Override
+  public Expression visit(AssignExpression expression) {
+    return new AssignExpression(this.visit(expression.getVariable()), this.visit(expression.getCalculateExpression()));
+  }
+
+  @Override
+  public Expression visit(ConstantExpression expression) {
+    return expression;
+  }
+
+  @Override
+  public Expression visit(DeclareExpression expression) {
+    return new DeclareExpression(this.visit(expression.getExpression()));
+  }
+
+  @Override
+  public Expression visit(FunctionExpression expression) {
+    return new FunctionExpression(expression.getSymbol(), this.visitAll(expression.getParams()));
+  }
+
+  @Override
+  public Expression visit(BinaryExpression expression) {
+    String op = expression.getOp();
+    Expression left = this.visit(expression.getLeft());
+    Expression right = this.visit(expression.getRight());
+    Object leftValue = this.constant(left);
+
+    if ("&&".equals(op) || "||".equals(op)) {
+      if (leftValue instanceof Boolean && (Boolean) leftValue == "||".equals(op)) {
+        return this.replace(expression, left, "Folded");
+      }
+      return new BinaryExpression(op, left, right);
+    }
+
+    Object rightValue = this.constant(right);
+    if (leftValue != null && rightValue != null && BinaryExpression.getPriority(op) < BinaryExpression.TERNARY_PRIORITY) {
+      Expression folded = this.fold(() -> CalculatorBuilder.binary(op).calculate(leftValue, rightValue));
+      if (folded != null) {
+        return this.replace(expression, folded, "Folded");
+      }
+    }
+
+    if (((("*".equals(op) || "/".equals(op)) && isInteger(rightValue, 1))
+        || (("-".equals(op) || "+".equals(op)) && isInteger(rightValue, 0))) && this.isNumeric(left)) {
+      return this.replace(expression, left, "Simplified");
+    }
+    if ((("*".equals(op) && isInteger(leftValue, 1))
+        || ("+".equals(op) && isInteger(leftValue, 0))) && this.isNumeric(right)) {
+      return this.replace(expression, right, "Simplified");
+    }
+    return new BinaryExpression(op, left, right);
+  }
+
+  @Override
+  public Expression visit(UnaryExpression expression) {
+    Expression operand = this.visit(expression.getOperand());
+    Object value = this.constant(operand);
+    if (value != null && expression.isPrefix() && !UnaryExpression.isPostfixOperator(expression.getOp())) {
+      Expression folded = this.fold(() -> CalculatorBuilder.unary(expression.getOp(), true).calculate(value));
+      if (folded != null) {
+        return this.replace(expression, folded, "Folded");
+      }
+    }
+    return new UnaryExpression(expression.getOp(), operand, expression.isPrefix());
+  }
+
+  @Override
+  public Expression visit(TernaryExpression expression) {
+    Expression condition = this.visit(expression.getCondition());
+    Object value = this.constant(condition);
+    if (value instanceof Boolean) {
+      Expression branch = (Boolean) value ? expression.getTrueExpression() : expression.getFalseExpression();
+      return this.replace(expression, this.visit(branch), "Eliminated");
+    }
+    return new TernaryExpression(condition, this.visit(expression.getTrueExpression()), this.visit(expression.getFalseExpression()));
+  }
+
+  @Override
+  public Expression visit(ScopeExpression expression) {
+    ScopeExpression scope = new ScopeExpression(expression.isTop());
+    for (Expression subExpression: expression.getExpressions()) {
+      Expression optimized = this.visit(subExpression);
+      if (!isEmptyScope(optimized)) {
+        scope.addExpression(optimized);
+      }
+    }
+    return scope;
+  }
+
+  @Override
+  public Expression visit(VariableExpression expression) {
+    return expression;
+  }
+
+  @Override
+  public Expression visit(IfExpression expression) {
+    List<Expression> conditions = new ArrayList<>();
+    List<Expression> scopes = new ArrayList<>();
+    Expression elseExpr = expression.getElse();
+    for (int i = 0; i < expression.getConditions().size(); i++) {
+      Expression condition = this.visit(expression.getConditions().get(i));
+      Object value = this.constant(condition);
+      if (Boolean.FALSE.equals(value)) {
+        this.changes.add(String.format("Eliminated branch: if (%s)", this.builder.build(expression.getConditions().get(i))));
+        continue;
+      }
+      if (Boolean.TRUE.equals(value)) {
+        if (i + 1 < expression.getConditions().size() || elseExpr != null) {
+          this.changes.add(String.format("Eliminated branches after: if (%s)", this.builder.build(expression.getConditions().get(i))));
+        }
+        elseExpr = expression.getScopes().get(i);
+        break;
+      }
+      conditions.add(condition);
+      scopes.add(this.visit(expression.getScopes().get(i)));
+    }
+
+    if (elseExpr != null) {
+      elseExpr = this.visit(elseExpr);
+    }
+    if (conditions.isEmpty()) {
+      ScopeExpression scope = new ScopeExpression(false);
+      if (elseExpr != null && !isEmptyScope(elseExpr)) {
+        scope.addExpression(elseExpr);
+      }
+      return scope;
+    }
+    return new IfExpression(conditions, scopes, elseExpr);
+  }
+
+  @Override
+  public Expression visit(WhileExpression expression) {
+    Expression condition = this.visit(expression.getCondition());
+    if (Boolean.FALSE.equals(this.constant(condition))) {
+      this.changes.add(String.format("Eliminated loop: while (%s)", this.builder.build(expression.getCondition())));
+      return new ScopeExpression(false);
+    }
+    return new WhileExpression(condition, this.visit(expression.getScope()));
+  }
+
+  @Override
+  public Expression visit(AccessorExpression expression) {
+    return new AccessorExpression(this.visit(expression.getVariable()), this.visitAll(expression.getParams()), expression.isIndexed(), expression.isNullSafe());
+  }
+
+  private List<Expression> visitAll(List<Expression> expressions) {
+    List<Expression> results = new ArrayList<>();
+    for (Expression expression: expressions) {
+      results.add(this.visit(expression));
+    }
+    return results;
+  }
+
+  private Expression replace(Expression original, Expression replacement, String action) {
+    this.changes.add(String.format("%s: %s => %s", action, this.builder.build(original), this.builder.build(replacement)));
+    return replacement;
+  }
+
+  private Object constant(Expression expression) {
+    if (!(expression instanceof ConstantExpression)
+        || ((ConstantExpression) expression).getType() == ConstantExpression.TYPE_STRING) {
+      return null;
+    }
+    return ((ConstantExpression) expression).getValue();
+  }
+
+  private Expression fold(Supplier<Object> calculation) {
+    Object value;
+    try {
+      value = calculation.get();
+    } catch (RuntimeException e) {
+      return null;
+    }
+
+    if (value instanceof Double && (((Double) value).isNaN() || ((Double) value).isInfinite())) {
+      return null;
+    } else if (value instanceof Float && (((Float) value).isNaN() || ((Float) value).isInfinite())) {
+      return null;
+    } else if (value instanceof Boolean || value instanceof Integer || value instanceof Long
+        || value instanceof Float || value instanceof Double || value instanceof BigDecimal) {
+      return new ConstantExpression(value);
+    }
+    return null;
+  }
+
+  private boolean isNumeric(Expression expression) {
+    if (expression instanceof ConstantExpression) {
+      return ((ConstantExpression) expression).getType() == ConstantExpression.TYPE_NUMBER;
+    } else if (expression instanceof UnaryExpression) {
+      return "-".equals(((UnaryExpression) expression).getOp());
+    } else if (expression instanceof BinaryExpression) {
+      BinaryExpression binaryExpression = (BinaryExpression) expression;
+      switch (binaryExpression.getOp()) {
+        case "*":
+        case "/":
+        case "%":
+        case "-":
+          return true;
+        case "+":
+          return this.isNumeric(binaryExpression.getLeft()) && this.isNumeric(binaryExpression.getRight());
+        default:
+          return false;
+      }
+    }
+    return false;
+  }
+
+  private static boolean isInteger(Object value, int expected) {
+    return value instanceof Integer && (Integer) value == expected;
+  }
+
+  private static boolean isEmptyScope(Expression expression) {
+    return expression instanceof ScopeExpression
+        && !((ScopeExpression) expression).isTop()
+        && ((ScopeExpression) expression).getExpressions().isEmpty();
+  }
+}
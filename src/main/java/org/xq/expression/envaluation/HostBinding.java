@@ -0,0 +1,268 @@
+package org.xq.expression.envaluation;
+
+import org.xq.expression.Symbol;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.Map;
+
+abstract class HostBinding {
+  static final Object MISSING = new Object();
+
+  private static final HostBinding RECORD = new RecordBinding();
+  private static final ClassValue<HostBinding> BINDINGS = new ClassValue<HostBinding>() {
+    @Override
+    protected HostBinding computeValue(Class<?> type) {
+      return new BeanBinding(type);
+    }
+  };
+
+  static HostBinding of(Object host) {
+    if (host == null) {
+      throw new RuntimeException("The host can not be null.");
+    }
+    if (host instanceof BufferRecord) {
+      return RECORD;
+    }
+    return host instanceof Map ? new MapBinding() : BINDINGS.get(host.getClass());
+  }
+
+  static BeanBinding bean(Class<?> type) {
+    return (BeanBinding) BINDINGS.get(type);
+  }
+
+  abstract Object get(Object host, Symbol name, boolean caseSensitive);
+
+  abstract boolean set(Object host, Symbol name, boolean caseSensitive, Object value);
+}
+
+final class MapBinding extends HostBinding {
+  private volatile KeyIndex index;
+
+  @Override
+  @SuppressWarnings("unchecked")
+  Object get(Object host, Symbol name, boolean caseSensitive) {
+    Map<Object, Object> map = (Map<Object, Object>) host;
+    Object key = this.key(map, name, caseSensitive);
+    return key == null ? MISSING : map.get(key);
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  boolean set(Object host, Symbol name, boolean caseSensitive, Object value) {
+    Map<Object, Object> map = (Map<Object, Object>) host;
+    Object key = this.key(map, name, caseSensitive);
+    if (key == null) {
+      return false;
+    }
+    map.put(key, value);
+    return true;
+  }
+
+  private Object key(Map<Object, Object> map, Symbol name, boolean caseSensitive) {
+    if (map.containsKey(name.getName())) {
+      return name.getName();
+    }
+    if (caseSensitive) {
+      return null;
+    }
+
+    String folded = name.fold().getName();
+    KeyIndex index = this.index;
+    Object key = index == null ? null : index.keys.get(folded);
+    if (key != null && map.containsKey(key)) {
+      return key;
+    }
+    if (index == null || key != null || index.size != map.size()) {
+      index = new KeyIndex(map);
+      this.index = index;
+      key = index.keys.get(folded);
+    }
+    return key;
+  }
+
+  private static final class KeyIndex {
+    final Map<String, Object> keys = new HashMap<>();
+    final int size;
+
+    KeyIndex(Map<Object, Object> map) {
+      for (Object key: map.keySet()) {
+        if (key instanceof String) {
+          this.keys.putIfAbsent(((String) key).toLowerCase(), key);
+        }
+      }
+      this.size = map.size();
+    }
+  }
+}
+
+final class RecordBinding extends HostBinding {
+  @Override
+  Object get(Object host, Symbol name, boolean caseSensitive) {
+    BufferRecord record = (BufferRecord) host;
+    RecordField field = record.getSchema().find(name, caseSensitive);
+    return field == null ? MISSING : record.get(field);
+  }
+
+  @Override
+  boolean set(Object host, Symbol name, boolean caseSensitive, Object value) {
+    BufferRecord record = (BufferRecord) host;
+    RecordField field = record.getSchema().find(name, caseSensitive);
+    if (field == null) {
+      return false;
+    }
+    record.set(field, value);
+    return true;
+  }
+}
+
+final class BeanBinding extends HostBinding {
+  private static final MethodType GETTER = MethodType.methodType(Object.class, Object.class);
+  private static final MethodType SETTER = MethodType.methodType(void.class, Object.class, Object.class);
+
+  private final Map<Symbol, HostProperty> properties = new HashMap<>();
+  private final Map<Symbol, HostProperty> foldedProperties = new HashMap<>();
+
+  BeanBinding(Class<?> type) {
+    if (!Modifier.isPublic(type.getModifiers())) {
+      throw new RuntimeException(String.format("The %s class should be public.", type.getName()));
+    }
+
+    MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+    try {
+      for (Field field: type.getFields()) {
+        if (Modifier.isStatic(field.getModifiers())) {
+          continue;
+        }
+        HostProperty property = this.property(field.getName());
+        property.getter = lookup.unreflectGetter(field).asType(GETTER);
+        if (!Modifier.isFinal(field.getModifiers())) {
+          property.setter = lookup.unreflectSetter(field).asType(SETTER);
+          property.type = field.getType();
+        }
+      }
+
+      boolean isRecord = type.getSuperclass() != null && "java.lang.Record".equals(type.getSuperclass().getName());
+      for (Method method: type.getMethods()) {
+        if (Modifier.isStatic(method.getModifiers()) || method.getDeclaringClass() == Object.class) {
+          continue;
+        }
+        String name = method.getName();
+        int count = method.getParameterCount();
+        if (count == 0 && method.getReturnType() != void.class) {
+          String propertyName = null;
+          if (name.startsWith("get") && name.length() > 3) {
+            propertyName = decapitalize(name.substring(3));
+          } else if (name.startsWith("is") && name.length() > 2 && method.getReturnType() == boolean.class) {
+            propertyName = decapitalize(name.substring(2));
+          } else if (isRecord && isComponent(type, method)) {
+            propertyName = name;
+          }
+          if (propertyName != null) {
+            this.property(propertyName).getter = lookup.unreflect(method).asType(GETTER);
+          }
+        } else if (count == 1 && name.startsWith("set") && name.length() > 3) {
+          HostProperty property = this.property(decapitalize(name.substring(3)));
+          property.setter = lookup.unreflect(method).asType(SETTER);
+          property.type = method.getParameterTypes()[0];
+        }
+      }
+    } catch (IllegalAccessException e) {
+      throw new RuntimeException(String.format("The %s class can not be bound.", type.getName()), e);
+    }
+
+    for (Map.Entry<Symbol, HostProperty> entry: this.properties.entrySet()) {
+      this.foldedProperties.putIfAbsent(entry.getKey().fold(), entry.getValue());
+    }
+  }
+
+  @Override
+  Object get(Object host, Symbol name, boolean caseSensitive) {
+    HostProperty property = this.find(name, caseSensitive);
+    if (property == null || property.getter == null) {
+      return MISSING;
+    }
+    try {
+      return property.getter.invokeExact(host);
+    } catch (RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable e) {
+      throw new RuntimeException(String.format("Failed to read the %s variable.", name), e);
+    }
+  }
+
+  @Override
+  boolean set(Object host, Symbol name, boolean caseSensitive, Object value) {
+    HostProperty property = this.find(name, caseSensitive);
+    if (property == null || property.getter == null) {
+      return false;
+    }
+    if (property.setter == null) {
+      throw new RuntimeException(String.format("The %s variable is read only.", name));
+    }
+    try {
+      property.setter.invokeExact(host, coerce(property.type, value));
+    } catch (RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable e) {
+      throw new RuntimeException(String.format("Failed to write the %s variable.", name), e);
+    }
+    return true;
+  }
+
+  HostProperty find(Symbol name, boolean caseSensitive) {
+    return caseSensitive ? this.properties.get(name) : this.foldedProperties.get(name.fold());
+  }
+
+  private HostProperty property(String name) {
+    return this.properties.computeIfAbsent(Symbol.of(name), key -> new HostProperty());
+  }
+
+  static Object coerce(Class<?> type, Object value) {
+    if (!type.isPrimitive() || !(value instanceof Number)) {
+      return value;
+    }
+    Number number = (Number) value;
+    if (type == int.class) {
+      return number.intValue();
+    } else if (type == long.class) {
+      return number.longValue();
+    } else if (type == double.class) {
+      return number.doubleValue();
+    } else if (type == float.class) {
+      return number.floatValue();
+    } else if (type == short.class) {
+      return number.shortValue();
+    } else if (type == byte.class) {
+      return number.byteValue();
+    }
+    return value;
+  }
+
+  private static boolean isComponent(Class<?> type, Method method) {
+    try {
+      Field field = type.getDeclaredField(method.getName());
+      return !Modifier.isStatic(field.getModifiers()) && field.getType() == method.getReturnType();
+    } catch (NoSuchFieldException e) {
+      return false;
+    }
+  }
+
+  private static String decapitalize(String name) {
+    if (name.length() > 1 && Character.isUpperCase(name.charAt(1)) && Character.isUpperCase(name.charAt(0))) {
+      return name;
+    }
+    return Character.toLowerCase(name.charAt(0)) + name.substring(1);
+  }
+}
+
+final class HostProperty {
+  MethodHandle getter;
+  MethodHandle setter;
+  Class<?> type;
+}
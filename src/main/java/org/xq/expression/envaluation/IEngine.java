@@ -0,0 +1,7 @@
+package org.xq.expression.envaluation;
+
+import org.xq.expression.expressions.Expression;
+
+public interface IEngine {
+  EvaluationContext evaluate(EvaluationContext context, Expression expression);
+}
@@ -0,0 +1,92 @@
+package org.xq.expression.envaluation;
+
+import org.xq.expression.Symbol;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class RecordSchema {
+  static final int TYPE_INT = 0;
+  static final int TYPE_LONG = 1;
+  static final int TYPE_DOUBLE = 2;
+  static final int TYPE_BOOLEAN = 3;
+
+  private final Map<Symbol, RecordField> fields = new HashMap<>();
+  private final Map<Symbol, RecordField> foldedFields = new HashMap<>();
+  private final List<Symbol> names = new ArrayList<>();
+  private int recordSize;
+
+  public RecordSchema addInt(String name, int offset) {
+    return this.add(name, TYPE_INT, offset, Integer.BYTES);
+  }
+
+  public RecordSchema addLong(String name, int offset) {
+    return this.add(name, TYPE_LONG, offset, Long.BYTES);
+  }
+
+  public RecordSchema addDouble(String name, int offset) {
+    return this.add(name, TYPE_DOUBLE, offset, Double.BYTES);
+  }
+
+  public RecordSchema addBoolean(String name, int offset) {
+    return this.add(name, TYPE_BOOLEAN, offset, 1);
+  }
+
+  public List<Symbol> getNames() {
+    return names;
+  }
+
+  public int getRecordSize() {
+    return recordSize;
+  }
+
+  public RecordSchema setRecordSize(int recordSize) {
+    for (RecordField field: this.fields.values()) {
+      if (field.offset + field.width > recordSize) {
+        throw new RuntimeException(String.format("The record size %d is smaller than the field end %d.", recordSize, field.offset + field.width));
+      }
+    }
+    this.recordSize = recordSize;
+    return this;
+  }
+
+  public BufferRecord bind(ByteBuffer buffer) {
+    return new BufferRecord(this, buffer);
+  }
+
+  RecordField find(Symbol name, boolean caseSensitive) {
+    return caseSensitive ? this.fields.get(name) : this.foldedFields.get(name.fold());
+  }
+
+  private RecordSchema add(String name, int type, int offset, int width) {
+    if (offset < 0) {
+      throw new RuntimeException(String.format("The %s field offset should not be negative. offset: %d", name, offset));
+    }
+    Symbol symbol = Symbol.of(name);
+    if (this.fields.containsKey(symbol)) {
+      throw new RuntimeException(String.format("The %s field already exists.", name));
+    }
+
+    RecordField field = new RecordField(type, offset, width);
+    this.fields.put(symbol, field);
+    this.foldedFields.putIfAbsent(symbol.fold(), field);
+    this.names.add(symbol);
+    this.recordSize = Math.max(this.recordSize, offset + width);
+    return this;
+  }
+}
+
+final class RecordField {
+  final int type;
+  final int offset;
+  final int width;
+
+  RecordField(int type, int offset, int width) {
+    this.type = type;
+    this.offset = offset;
+    this.width = width;
+  }
+}
@@ -0,0 +1,347 @@
+package org.xq.expression.envaluation;
+
+import org.xq.expression.ExpressionBuilder;
+import org.xq.expression.ExpressionVisitor;
+import org.xq.expression.Symbol;
+import org.xq.expression.expressions.*;
+import org.xq.expression.functions.FunctionFactory;
+import org.xq.expression.functions.FunctionRegistry;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+public class TreeCompiler extends ExpressionVisitor<ExecutionNode> implements ICompiler {
+  private final ExpressionBuilder builder = new ExpressionBuilder();
+  private final boolean caseSensitive;
+  private final FunctionRegistry registry;
+  private SlotLayout layout;
+
+  public TreeCompiler() {
+    this(true);
+  }
+
+  public TreeCompiler(boolean caseSensitive) {
+    this(caseSensitive, FunctionFactory.REGISTRY);
+  }
+
+  public TreeCompiler(boolean caseSensitive, FunctionRegistry registry) {
+    this.caseSensitive = caseSensitive;
+    this.registry = registry;
+  }
+
+  @Override
+  public CompiledScript compile(Expression expression) {
+    return new TreeScript(this.caseSensitive, this.program(expression),
+        () -> new TreeCompiler(!this.caseSensitive, this.registry).program(expression));
+  }
+
+  TreeProgram program(Expression expression) {
+    this.layout = new SlotLayout(this.caseSensitive);
+    ExecutionNode root = this.visit(expression);
+    return this.layout.program(root);
+  }
+
+  @Override
+  public ExecutionNode visit(AssignExpression expression) {
+    ExecutionNode value = this.visit(expression.getCalculateExpression());
+    if (expression.getVariable() instanceof VariableExpression) {
+      Symbol name = ((VariableExpression) expression.getVariable()).getSymbol();
+      SlotScope target = this.layout.resolve(name);
+      return new SlotAssignNode(target.depth, target.slot(this.layout.key(name)), value);
+    }
+    return new AssignNode(this.reference(expression.getVariable()), value);
+  }
+
+  @Override
+  public ExecutionNode visit(ConstantExpression expression) {
+    return new ConstantNode(expression.getValue());
+  }
+
+  @Override
+  public ExecutionNode visit(DeclareExpression expression) {
+    VariableExpression variable;
+    ExecutionNode value = null;
+    if (expression.getExpression() instanceof VariableExpression) {
+      variable = (VariableExpression) expression.getExpression();
+    } else if (expression.getExpression() instanceof AssignExpression) {
+      AssignExpression assignExpression = (AssignExpression) expression.getExpression();
+      if (!(assignExpression.getVariable() instanceof VariableExpression)) {
+        throw new RuntimeException("It is not variable statement. Statement: " + builder.build(assignExpression.getVariable()));
+      }
+      variable = (VariableExpression) assignExpression.getVariable();
+      value = this.visit(assignExpression.getCalculateExpression());
+    } else {
+      throw new RuntimeException("Invalid declare statement. Statement: " + builder.build(expression));
+    }
+
+    Symbol key = this.layout.key(variable.getSymbol());
+    SlotScope visible = this.layout.resolve(variable.getSymbol());
+    SlotScope scope = this.layout.scope();
+    int slot = scope.declare(key, variable.getSymbol());
+    return new SlotDeclareNode(variable.getSymbol(), scope.depth, slot, visible.depth, visible.slot(key), value);
+  }
+
+  @Override
+  public ExecutionNode visit(FunctionExpression expression) {
+    if ("expose".equalsIgnoreCase(expression.getName())) {
+      ExecutionNode[] nodes = new ExecutionNode[expression.getParams().size()];
+      for (int i = 0; i < nodes.length; i++) {
+        Expression param = expression.getParams().get(i);
+        if (!(param instanceof VariableExpression)) {
+          throw new RuntimeException("Only Variable is available." + builder.build(param));
+        }
+        nodes[i] = this.layout.expose(((VariableExpression) param).getSymbol());
+      }
+      return new SequenceNode(nodes);
+    }
+    Symbol name = expression.getSymbol();
+    return IntrinsicNode.of(this.registry.find(name), this.registry.link(name), this.visitAll(expression.getParams()));
+  }
+
+  @Override
+  public ExecutionNode visit(BinaryExpression expression) {
+    Calculator calculator = CalculatorBuilder.binary(expression.getOp());
+    if (expression.getPriority() == BinaryExpression.ASSIGN_PRIORITY) {
+      ExecutionNode left = this.reference(expression.getLeft());
+      return new BinaryNode(calculator, left, this.visit(expression.getRight()));
+    }
+
+    ExecutionNode left = this.visit(expression.getLeft());
+    ExecutionNode right = this.visit(expression.getRight());
+    if ("&&".equals(expression.getOp()) || "||".equals(expression.getOp())) {
+      return new LogicalNode(expression.getOp(), calculator, left, right);
+    }
+    if (calculator.isSpecializable()) {
+      return new SpecializedBinaryNode(calculator, left, right);
+    }
+    return new BinaryNode(calculator, left, right);
+  }
+
+  @Override
+  public ExecutionNode visit(UnaryExpression expression) {
+    ExecutionNode operand = UnaryExpression.isPostfixOperator(expression.getOp())
+        ? this.reference(expression.getOperand()) : this.visit(expression.getOperand());
+    return new UnaryNode(CalculatorBuilder.unary(expression.getOp(), expression.isPrefix()), operand);
+  }
+
+  @Override
+  public ExecutionNode visit(TernaryExpression expression) {
+    return new TernaryNode(this.visit(expression.getCondition()),
+        this.visit(expression.getTrueExpression()), this.visit(expression.getFalseExpression()));
+  }
+
+  @Override
+  public ExecutionNode visit(ScopeExpression expression) {
+    SlotScope scope = this.layout.pushScope();
+    ExecutionNode[] statements = this.visitAll(expression.getExpressions());
+    this.layout.popScope();
+    return new ScopeNode(scope.depth, scope.size(), statements);
+  }
+
+  @Override
+  public ExecutionNode visit(VariableExpression expression) {
+    SlotScope target = this.layout.resolve(expression.getSymbol());
+    return new SlotNode(target.depth, target.slot(this.layout.key(expression.getSymbol())));
+  }
+
+  @Override
+  public ExecutionNode visit(IfExpression expression) {
+    SlotScope scope = this.layout.pushScope();
+    ExecutionNode[] conditions = new ExecutionNode[expression.getConditions().size()];
+    ExecutionNode[] scopes = new ExecutionNode[conditions.length];
+    for (int i = 0; i < conditions.length; i++) {
+      conditions[i] = this.visit(expression.getConditions().get(i));
+      scopes[i] = this.visit(expression.getScopes().get(i));
+    }
+    ExecutionNode elseScope = expression.getElse() == null ? null : this.visit(expression.getElse());
+    this.layout.popScope();
+    return new IfNode(scope.depth, scope.size(), conditions, scopes, elseScope);
+  }
+
+  @Override
+  public ExecutionNode visit(WhileExpression expression) {
+    return new WhileNode(this.visit(expression.getCondition()), this.visit(expression.getScope()));
+  }
+
+  @Override
+  public ExecutionNode visit(AccessorExpression expression) {
+    if (!expression.isIndexed()) {
+      AccessorPath path = AccessorPath.of(expression);
+      return new PathNode(path, this.visit(path.getRoot()), false);
+    }
+
+    AccessorSite site = AccessorSite.of(expression);
+    ExecutionNode key = site.isIndexed() ? this.visit(expression.getParams().get(0)) : null;
+    return new AccessorValueNode(site, this.visit(expression.getVariable()), key);
+  }
+
+  private ExecutionNode reference(Expression expression) {
+    if (expression instanceof VariableExpression) {
+      Symbol name = ((VariableExpression) expression).getSymbol();
+      SlotScope target = this.layout.resolve(name);
+      return new SlotReferenceNode(target.depth, target.slot(this.layout.key(name)));
+    } else if (expression instanceof AccessorExpression) {
+      AccessorExpression accessor = (AccessorExpression) expression;
+      if (!accessor.isIndexed()) {
+        AccessorPath path = AccessorPath.of(accessor);
+        return new PathNode(path, this.visit(path.getRoot()), true);
+      }
+      AccessorSite site = AccessorSite.of(accessor);
+      ExecutionNode key = site.isIndexed() ? this.visit(accessor.getParams().get(0)) : null;
+      return new AccessorNode(site, this.visit(accessor.getVariable()), key);
+    }
+    return this.visit(expression);
+  }
+
+  private ExecutionNode[] visitAll(List<Expression> expressions) {
+    ExecutionNode[] nodes = new ExecutionNode[expressions.size()];
+    for (int i = 0; i < nodes.length; i++) {
+      nodes[i] = this.visit(expressions.get(i));
+    }
+    return nodes;
+  }
+}
+
+final class SlotScope {
+  final SlotScope parent;
+  final int depth;
+  final Map<Symbol, Integer> slots = new HashMap<>();
+  final List<Symbol> names = new ArrayList<>();
+
+  SlotScope(SlotScope parent) {
+    this.parent = parent;
+    this.depth = parent == null ? 0 : parent.depth + 1;
+  }
+
+  int declare(Symbol key, Symbol name) {
+    Integer slot = this.slots.get(key);
+    if (slot == null) {
+      slot = this.names.size();
+      this.names.add(name);
+      this.slots.put(key, slot);
+    }
+    return slot;
+  }
+
+  int slot(Symbol key) {
+    Integer slot = this.slots.get(key);
+    return slot == null ? -1 : slot;
+  }
+
+  int size() {
+    return this.names.size();
+  }
+}
+
+final class SlotLayout {
+  private final boolean caseSensitive;
+  private final SlotScope hosts = new SlotScope(null);
+  private SlotScope scope = this.hosts;
+  private int[] sizes = new int[1];
+
+  SlotLayout(boolean caseSensitive) {
+    this.caseSensitive = caseSensitive;
+  }
+
+  SlotScope scope() {
+    return this.scope;
+  }
+
+  Symbol key(Symbol name) {
+    return this.caseSensitive ? name : name.fold();
+  }
+
+  SlotScope resolve(Symbol name) {
+    Symbol key = this.key(name);
+    for (SlotScope current = this.scope; current != this.hosts; current = current.parent) {
+      if (current.slots.containsKey(key)) {
+        return current;
+      }
+    }
+    this.hosts.declare(key, name);
+    return this.hosts;
+  }
+
+  SlotScope pushScope() {
+    this.scope = new SlotScope(this.scope);
+    if (this.scope.depth == this.sizes.length) {
+      this.sizes = Arrays.copyOf(this.sizes, this.scope.depth + 1);
+    }
+    return this.scope;
+  }
+
+  void popScope() {
+    this.sizes[this.scope.depth] = Math.max(this.sizes[this.scope.depth], this.scope.size());
+    this.scope = this.scope.parent;
+  }
+
+  ExecutionNode expose(Symbol name) {
+    Symbol key = this.key(name);
+    SlotScope current = this.scope;
+    SlotScope parent = current.parent;
+    int slot = current.slot(key);
+    if (parent == null || slot < 0) {
+      return new ExposeNode(name, current.depth, slot, -1, -1, -1, -1);
+    }
+
+    current.slots.remove(key);
+    this.scope = parent;
+    SlotScope visible = this.resolve(name);
+    this.scope = current;
+    int target = parent.declare(key, name);
+    return new ExposeNode(name, current.depth, slot, parent.depth, target, visible.depth, visible.slot(key));
+  }
+
+  TreeProgram program(ExecutionNode root) {
+    return new TreeProgram(root, this.hosts.names.toArray(new Symbol[0]), this.sizes);
+  }
+}
+
+final class TreeProgram {
+  final ExecutionNode root;
+  final Symbol[] hosts;
+  final int[] sizes;
+
+  TreeProgram(ExecutionNode root, Symbol[] hosts, int[] sizes) {
+    this.root = root;
+    this.hosts = hosts;
+    this.sizes = sizes;
+  }
+}
+
+final class TreeScript extends CompiledScript {
+  private final boolean caseSensitive;
+  private final TreeProgram program;
+  private final Supplier<TreeProgram> recompile;
+  private volatile TreeProgram alternate;
+
+  TreeScript(boolean caseSensitive, TreeProgram program, Supplier<TreeProgram> recompile) {
+    super(new Object[0]);
+    this.caseSensitive = caseSensitive;
+    this.program = program;
+    this.recompile = recompile;
+  }
+
+  @Override
+  protected void execute(ExecutionFrame frame) {
+    TreeProgram program = this.program;
+    if (frame.getRoot().isCaseSensitive() != this.caseSensitive) {
+      program = this.alternate;
+      if (program == null) {
+        program = this.recompile.get();
+        this.alternate = program;
+      }
+    }
+
+    frame.bind(program.hosts, program.sizes);
+    try {
+      program.root.execute(frame);
+    } finally {
+      frame.unbind();
+    }
+  }
+}
@@ -0,0 +1,13 @@
+package org.xq.expression.envaluation;
+
+import org.xq.expression.functions.FunctionRegistry;
+
+public class TreeEngine extends CompiledEngine {
+  public TreeEngine() {
+    super(TreeCompiler::new);
+  }
+
+  public TreeEngine(FunctionRegistry registry) {
+    super(() -> new TreeCompiler(true, registry));
+  }
+}
@@ -6,11 +6,18 @@ public class AccessorExpression extends Expression {
   private final Expression variable;
   private final List<Expression> params;
   private final boolean indexed;
+  private final boolean nullSafe;
+  private volatile Object site;
 
   public AccessorExpression(Expression variable, List<Expression> params, boolean indexed) {
+    this(variable, params, indexed, false);
+  }
+
+  public AccessorExpression(Expression variable, List<Expression> params, boolean indexed, boolean nullSafe) {
     this.variable = variable;
     this.params = params;
     this.indexed = indexed;
+    this.nullSafe = nullSafe;
   }
 
   public Expression getVariable() {
@@ -24,4 +31,16 @@ public class AccessorExpression extends Expression {
   public boolean isIndexed() {
     return indexed;
   }
+
+  public boolean isNullSafe() {
+    return nullSafe;
+  }
+
+  public Object getSite() {
+    return site;
+  }
+
+  public void setSite(Object site) {
+    this.site = site;
+  }
 }
@@ -0,0 +1,69 @@
+package org.xq.expression.expressions;
+
+public class BinaryExpression extends Expression {
+  public static final int UNARY_PRIORITY = 1;
+  public static final int TERNARY_PRIORITY = 12;
+  public static final int ASSIGN_PRIORITY = 13;
+
+  private final String op;
+  private final Expression left;
+  private final Expression right;
+
+  public BinaryExpression(String op, Expression left, Expression right) {
+    this.op = op;
+    this.left = left;
+    this.right = right;
+  }
+
+  public String getOp() {
+    return op;
+  }
+
+  public Expression getLeft() {
+    return left;
+  }
+
+  public Expression getRight() {
+    return right;
+  }
+
+  public int getPriority() {
+    return getPriority(this.op);
+  }
+
+  public static int getPriority(String op) {
+    switch (op) {
+      case "*":
+      case "/":
+      case "%":    return 2;
+      case "+":
+      case "-":    return 3;
+      case "<<":
+      case ">>":
+      case ">>>":  return 4;
+      case "<":
+      case "<=":
+      case ">":
+      case ">=":   return 5;
+      case "==":
+      case "!=":   return 6;
+      case "&":    return 7;
+      case "^":    return 8;
+      case "|":    return 9;
+      case "&&":   return 10;
+      case "||":   return 11;
+      case "?":    return TERNARY_PRIORITY;
+      case "+=":
+      case "-=":
+      case "*=":
+      case "/=":
+      case "%=":
+      case "&=":
+      case "|=":
+      case "<<=":
+      case ">>=":
+      case ">>>=": return ASSIGN_PRIORITY;
+      default:     return -1;
+    }
+  }
+}
@@ -1,5 +1,7 @@
 package org.xq.expression.expressions;
 
+import java.math.BigDecimal;
+
 public class ConstantExpression extends Expression {
   public static final int TYPE_STRING = 1;
   public static final int TYPE_NUMBER = 2;
@@ -7,10 +9,42 @@ public class ConstantExpression extends Expression {
 
   private final String constant;
   private final int type;
+  private final Object value;
 
   public ConstantExpression(String constant, int type) {
     this.constant = constant;
     this.type = type;
+    switch (type) {
+      case TYPE_STRING: this.value = constant; break;
+      case TYPE_BOOL:   this.value = parseBool(constant); break;
+      case TYPE_NUMBER: this.value = parseNumber(constant); break;
+      default:          throw new RuntimeException(String.format("Invalid constant type %d", type));
+    }
+  }
+
+  public ConstantExpression(Object value) {
+    this.value = value;
+    if (value instanceof String) {
+      this.type = TYPE_STRING;
+      this.constant = (String) value;
+    } else if (value instanceof Boolean) {
+      this.type = TYPE_BOOL;
+      this.constant = value.toString();
+    } else if (value instanceof Integer || value instanceof Double) {
+      this.type = TYPE_NUMBER;
+      this.constant = value.toString();
+    } else if (value instanceof Long) {
+      this.type = TYPE_NUMBER;
+      this.constant = value + "L";
+    } else if (value instanceof Float) {
+      this.type = TYPE_NUMBER;
+      this.constant = value + "F";
+    } else if (value instanceof BigDecimal) {
+      this.type = TYPE_NUMBER;
+      this.constant = ((BigDecimal) value).toPlainString() + "M";
+    } else {
+      throw new RuntimeException(String.format("The %s value can not be a constant.", value));
+    }
   }
 
   public String getConstant() {
@@ -20,4 +54,81 @@ public class ConstantExpression extends Expression {
   public int getType() {
     return type;
   }
+
+  public Object getValue() {
+    return value;
+  }
+
+  private static Boolean parseBool(String constant) {
+    if ("true".equalsIgnoreCase(constant)) {
+      return true;
+    } else if ("false".equalsIgnoreCase(constant)) {
+      return false;
+    }
+    throw new RuntimeException(String.format("Invalid Bool value %s", constant));
+  }
+
+  public static Object parseNumber(String constant) {
+    int length = constant.length();
+    if (length > 2 && constant.charAt(0) == '0' && (constant.charAt(1) == 'x' || constant.charAt(1) == 'X')) {
+      boolean isLong = constant.charAt(length - 1) == 'L' || constant.charAt(length - 1) == 'l';
+      return parseHex(constant, constant.substring(2, isLong ? length - 1 : length), isLong);
+    }
+
+    char suffix = length == 0 ? 0 : Character.toUpperCase(constant.charAt(length - 1));
+    String digits = suffix == 'L' || suffix == 'F' || suffix == 'D' || suffix == 'M' ? constant.substring(0, length - 1) : constant;
+    boolean isInteger = true;
+    boolean hasDigit = false;
+    for (int i = 0; i < digits.length(); i++) {
+      char ch = digits.charAt(i);
+      if (ch >= '0' && ch <= '9') {
+        hasDigit = true;
+      } else if (ch == '.' || ch == 'e' || ch == 'E') {
+        isInteger = false;
+      } else if ((ch != '+' && ch != '-') || i == 0 || (digits.charAt(i - 1) != 'e' && digits.charAt(i - 1) != 'E')) {
+        hasDigit = false;
+        break;
+      }
+    }
+    if (!hasDigit) {
+      throw new RuntimeException(String.format("Invalid Number value %s", constant));
+    }
+
+    switch (suffix) {
+      case 'F': return Float.parseFloat(digits);
+      case 'D': return Double.parseDouble(digits);
+      case 'M': return new BigDecimal(digits);
+      case 'L':
+        if (!isInteger || !fitsLong(digits)) {
+          throw new RuntimeException(String.format("Invalid Number value %s", constant));
+        }
+        return Long.parseLong(digits);
+      default:
+        if (!isInteger || !fitsLong(digits)) {
+          return Double.parseDouble(digits);
+        }
+        long value = Long.parseLong(digits);
+        return value <= Integer.MAX_VALUE ? (Object) (int) value : (Object) value;
+    }
+  }
+
+  private static boolean fitsLong(String digits) {
+    String max = String.valueOf(Long.MAX_VALUE);
+    return digits.length() < max.length() || (digits.length() == max.length() && digits.compareTo(max) <= 0);
+  }
+
+  private static Object parseHex(String constant, String digits, boolean isLong) {
+    if (digits.isEmpty() || digits.length() > 16) {
+      throw new RuntimeException(String.format("Invalid Number value %s", constant));
+    }
+    long value = 0;
+    for (int i = 0; i < digits.length(); i++) {
+      int digit = Character.digit(digits.charAt(i), 16);
+      if (digit < 0) {
+        throw new RuntimeException(String.format("Invalid Number value %s", constant));
+      }
+      value = (value << 4) | digit;
+    }
+    return !isLong && digits.length() <= 8 ? (Object) (int) value : (Object) value;
+  }
 }
@@ -1,21 +1,40 @@
 package org.xq.expression.expressions;
 
+import org.xq.expression.Symbol;
+
 import java.util.List;
 
 public class FunctionExpression extends Expression {
-  private final String name;
+  private final Symbol symbol;
   private final List<Expression> params;
+  private volatile Object site;
 
   public FunctionExpression(String name, List<Expression> params) {
-    this.name = name;
+    this(Symbol.of(name), params);
+  }
+
+  public FunctionExpression(Symbol symbol, List<Expression> params) {
+    this.symbol = symbol;
     this.params = params;
   }
 
   public String getName() {
-    return name;
+    return symbol.getName();
+  }
+
+  public Symbol getSymbol() {
+    return symbol;
   }
 
   public List<Expression> getParams() {
     return params;
   }
+
+  public Object getSite() {
+    return site;
+  }
+
+  public void setSite(Object site) {
+    this.site = site;
+  }
 }
@@ -0,0 +1,25 @@
+package org.xq.expression.expressions;
+
+public class TernaryExpression extends Expression {
+  private final Expression condition;
+  private final Expression trueExpression;
+  private final Expression falseExpression;
+
+  public TernaryExpression(Expression condition, Expression trueExpression, Expression falseExpression) {
+    this.condition = condition;
+    this.trueExpression = trueExpression;
+    this.falseExpression = falseExpression;
+  }
+
+  public Expression getCondition() {
+    return condition;
+  }
+
+  public Expression getTrueExpression() {
+    return trueExpression;
+  }
+
+  public Expression getFalseExpression() {
+    return falseExpression;
+  }
+}
@@ -0,0 +1,33 @@
+package org.xq.expression.expressions;
+
+public class UnaryExpression extends Expression {
+  private final String op;
+  private final Expression operand;
+  private final boolean prefix;
+
+  public UnaryExpression(String op, Expression operand, boolean prefix) {
+    this.op = op;
+    this.operand = operand;
+    this.prefix = prefix;
+  }
+
+  public String getOp() {
+    return op;
+  }
+
+  public Expression getOperand() {
+    return operand;
+  }
+
+  public boolean isPrefix() {
+    return prefix;
+  }
+
+  public static boolean isPrefixOperator(String op) {
+    return "-".equals(op) || "+".equals(op) || "!".equals(op) || "++".equals(op) || "--".equals(op);
+  }
+
+  public static boolean isPostfixOperator(String op) {
+    return "++".equals(op) || "--".equals(op);
+  }
+}
@@ -1,13 +1,23 @@
 package org.xq.expression.expressions;
 
+import org.xq.expression.Symbol;
+
 public class VariableExpression extends Expression {
-  private final String variable;
+  private final Symbol symbol;
 
   public VariableExpression(String variable) {
-    this.variable = variable;
+    this(Symbol.of(variable));
+  }
+
+  public VariableExpression(Symbol symbol) {
+    this.symbol = symbol;
   }
 
   public String getVariable() {
-    return variable;
+    return symbol.getName();
+  }
+
+  public Symbol getSymbol() {
+    return symbol;
   }
 }
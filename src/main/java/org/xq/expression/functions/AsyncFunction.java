@@ -0,0 +1,23 @@
+package org.xq.expression.functions;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+public class AsyncFunction implements IFunction {
+  private final IFunction function;
+  private final Executor executor;
+
+  public AsyncFunction(IFunction function, Executor executor) {
+    this.function = function;
+    this.executor = executor;
+  }
+
+  @Override
+  public Object evaluate(Object... params) {
+    return CompletableFuture.supplyAsync(() -> this.function.evaluate(params), this.executor);
+  }
+
+  public IFunction getFunction() {
+    return function;
+  }
+}
@@ -0,0 +1,105 @@
+package org.xq.expression.functions;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+public final class Builtins {
+  public static final IFunction2 MIN = (a, b) -> compare(a, b) <= 0 ? a : b;
+  public static final IFunction2 MAX = (a, b) -> compare(a, b) >= 0 ? a : b;
+  public static final IFunction1 ABS = Builtins::abs;
+  public static final IDoubleFunction1 SQRT = Math::sqrt;
+  public static final IDoubleFunction2 POW = Math::pow;
+  public static final IDoubleFunction1 EXP = Math::exp;
+  public static final IDoubleFunction1 LOG = Math::log;
+  public static final IDoubleFunction1 FLOOR = Math::floor;
+  public static final IDoubleFunction1 CEIL = Math::ceil;
+  public static final IFunction1 ROUND = Builtins::round;
+  public static final IFunction1 LEN = (value) -> toText(value, "len").length();
+  public static final IFunction2 INDEX_OF = (value, search) -> toText(value, "indexOf").indexOf(toText(search, "indexOf"));
+  public static final IFunction SUBSTR = Builtins::substr;
+  public static final IFunction1 UPPER = (value) -> toText(value, "upper").toUpperCase();
+  public static final IFunction1 LOWER = (value) -> toText(value, "lower").toLowerCase();
+  public static final IFunction1 TRIM = (value) -> toText(value, "trim").trim();
+
+  private Builtins() {
+  }
+
+  public static void register(FunctionRegistry registry) {
+    registry.register("min", MIN);
+    registry.register("max", MAX);
+    registry.register("abs", ABS);
+    registry.register("sqrt", SQRT);
+    registry.register("pow", POW);
+    registry.register("exp", EXP);
+    registry.register("log", LOG);
+    registry.register("floor", FLOOR);
+    registry.register("ceil", CEIL);
+    registry.register("round", ROUND);
+    registry.register("len", LEN);
+    registry.register("indexOf", INDEX_OF);
+    registry.register("substr", SUBSTR);
+    registry.register("upper", UPPER);
+    registry.register("lower", LOWER);
+    registry.register("trim", TRIM);
+  }
+
+  private static int compare(Object a, Object b) {
+    if (a instanceof Integer && b instanceof Integer) {
+      return Integer.compare((Integer) a, (Integer) b);
+    } else if (isIntegral(a) && isIntegral(b)) {
+      return Long.compare(((Number) a).longValue(), ((Number) b).longValue());
+    } else if (a instanceof BigDecimal && b instanceof BigDecimal) {
+      return ((BigDecimal) a).compareTo((BigDecimal) b);
+    } else if (a instanceof Number && b instanceof Number) {
+      return Double.compare(((Number) a).doubleValue(), ((Number) b).doubleValue());
+    } else if (a instanceof String && b instanceof String) {
+      return ((String) a).compareTo((String) b);
+    }
+    throw new RuntimeException(String.format("The %s and %s values can not be compared.", a, b));
+  }
+
+  private static Object abs(Object value) {
+    if (value instanceof Integer) {
+      return Math.abs((Integer) value);
+    } else if (value instanceof Long) {
+      return Math.abs((Long) value);
+    } else if (value instanceof Float) {
+      return Math.abs((Float) value);
+    } else if (value instanceof BigDecimal) {
+      return ((BigDecimal) value).abs();
+    }
+    return Math.abs(IFunction.toDouble(value));
+  }
+
+  private static Object round(Object value) {
+    if (isIntegral(value)) {
+      return value;
+    } else if (value instanceof BigDecimal) {
+      return ((BigDecimal) value).setScale(0, RoundingMode.HALF_UP);
+    }
+    return Math.round(IFunction.toDouble(value));
+  }
+
+  private static Object substr(Object... params) {
+    if (params.length != 2 && params.length != 3) {
+      throw new RuntimeException(String.format("The substr function requires 2 or 3 parameters. actual: %d", params.length));
+    }
+    String text = toText(params[0], "substr");
+    int start = (int) IFunction.toLong(params[1]);
+    if (params.length == 2) {
+      return text.substring(start);
+    }
+    return text.substring(start, start + (int) IFunction.toLong(params[2]));
+  }
+
+  private static boolean isIntegral(Object value) {
+    return value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte;
+  }
+
+  private static String toText(Object value, String function) {
+    if (!(value instanceof CharSequence)) {
+      throw new RuntimeException(String.format("The %s function requires a string. actual: %s", function, value));
+    }
+    return value.toString();
+  }
+}
@@ -1,20 +1,20 @@
 package org.xq.expression.functions;
 
-import java.util.HashMap;
+import org.xq.expression.Symbol;
+
+import java.util.Map;
 
 public class FunctionFactory {
-  public static HashMap<String, IFunction> FUNCTIONS = new HashMap<>();
+  public static final FunctionRegistry REGISTRY = new FunctionRegistry();
+
+  @Deprecated
+  public static final Map<String, IFunction> FUNCTIONS = REGISTRY.asMap();
 
-  static {
-//    FUNCTIONS.put("expose", new ExposeFunction());
+  public static IFunction getFunction(Symbol name) {
+    return REGISTRY.getFunction(name);
   }
 
   public static IFunction getFunction(String name) {
-    String key = name.toLowerCase();
-    if(FUNCTIONS.containsKey(key)) {
-      return FUNCTIONS.get(key);
-    }
-
-    throw new RuntimeException(String.format("The %s function does not found.", name));
+    return REGISTRY.getFunction(Symbol.of(name));
   }
 }
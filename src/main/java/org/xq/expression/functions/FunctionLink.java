@@ -0,0 +1,65 @@
+package org.xq.expression.functions;
+
+import org.xq.expression.Symbol;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public final class FunctionLink {
+  private final FunctionRegistry registry;
+  private final Symbol name;
+  private final FunctionRegistry[] chain;
+  private volatile Target target;
+
+  FunctionLink(FunctionRegistry registry, Symbol name) {
+    this.registry = registry;
+    this.name = name;
+    List<FunctionRegistry> chain = new ArrayList<>();
+    for (FunctionRegistry current = registry; current != null; current = current.getParent()) {
+      if (!current.isReadOnly()) {
+        chain.add(current);
+      }
+    }
+    this.chain = chain.toArray(new FunctionRegistry[0]);
+  }
+
+  public FunctionRegistry getRegistry() {
+    return registry;
+  }
+
+  public Symbol getName() {
+    return name;
+  }
+
+  public IFunction get() {
+    Target target = this.target;
+    if (target == null || !target.isCurrent(this.chain)) {
+      long[] versions = new long[this.chain.length];
+      for (int i = 0; i < versions.length; i++) {
+        versions[i] = this.chain[i].version();
+      }
+      target = new Target(this.registry.getFunction(this.name), versions);
+      this.target = target;
+    }
+    return target.function;
+  }
+
+  private static final class Target {
+    final IFunction function;
+    final long[] versions;
+
+    Target(IFunction function, long[] versions) {
+      this.function = function;
+      this.versions = versions;
+    }
+
+    boolean isCurrent(FunctionRegistry[] chain) {
+      for (int i = 0; i < chain.length; i++) {
+        if (chain[i].version() != this.versions[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+}
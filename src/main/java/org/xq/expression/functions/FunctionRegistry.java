@@ -0,0 +1,181 @@
+package org.xq.expression.functions;
+
+import org.xq.expression.Symbol;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class FunctionRegistry {
+  public static final FunctionRegistry BUILTINS = builtins();
+
+  private final FunctionRegistry parent;
+  private final ConcurrentHashMap<Symbol, IFunction> functions = new ConcurrentHashMap<>();
+  private volatile boolean readOnly;
+  private volatile long version;
+
+  public FunctionRegistry() {
+    this(BUILTINS);
+  }
+
+  public FunctionRegistry(FunctionRegistry parent) {
+    this.parent = parent;
+  }
+
+  public FunctionRegistry getParent() {
+    return parent;
+  }
+
+  public synchronized void register(String name, IFunction function) {
+    this.put(name, function);
+  }
+
+  public void register(String name, IFunction function, int cacheSize, long ttlMillis) {
+    this.register(name, MemoizedFunction.of(function, cacheSize, ttlMillis));
+  }
+
+  public synchronized void unregister(String name) {
+    this.checkWritable(name);
+    if (this.functions.remove(Symbol.of(name).fold()) != null) {
+      this.version++;
+    }
+  }
+
+  public Map<String, IFunction> asMap() {
+    return new RegistryMap(this);
+  }
+
+  private synchronized IFunction put(String name, IFunction function) {
+    this.checkWritable(name);
+    if (function == null) {
+      throw new RuntimeException(String.format("The %s function can not be null.", name));
+    }
+    IFunction previous = this.functions.put(Symbol.of(name).fold(), MemoizedFunction.of(function));
+    this.version++;
+    return previous;
+  }
+
+  private synchronized IFunction remove(String name) {
+    this.checkWritable(name);
+    IFunction previous = this.functions.remove(Symbol.of(name).fold());
+    if (previous != null) {
+      this.version++;
+    }
+    return previous;
+  }
+
+  private void checkWritable(String name) {
+    if (this.readOnly) {
+      throw new RuntimeException(String.format("The builtin functions are read-only. Register %s in a child registry.", name));
+    }
+  }
+
+  public IFunction find(Symbol name) {
+    Symbol key = name.fold();
+    for (FunctionRegistry registry = this; registry != null; registry = registry.parent) {
+      IFunction function = registry.functions.get(key);
+      if (function != null) {
+        return function;
+      }
+    }
+    return null;
+  }
+
+  public IFunction getFunction(Symbol name) {
+    IFunction function = this.find(name);
+    if (function != null) {
+      return function;
+    }
+
+    throw new RuntimeException(String.format("The %s function does not found.", name));
+  }
+
+  public FunctionLink link(Symbol name) {
+    return new FunctionLink(this, name);
+  }
+
+  private static FunctionRegistry builtins() {
+    FunctionRegistry registry = new FunctionRegistry(null);
+    Builtins.register(registry);
+    registry.readOnly = true;
+    return registry;
+  }
+
+  boolean isReadOnly() {
+    return readOnly;
+  }
+
+  long version() {
+    return version;
+  }
+
+  private static final class RegistryMap extends AbstractMap<String, IFunction> {
+    private final FunctionRegistry registry;
+
+    RegistryMap(FunctionRegistry registry) {
+      this.registry = registry;
+    }
+
+    @Override
+    public IFunction get(Object key) {
+      return key instanceof String ? this.registry.functions.get(Symbol.of((String) key).fold()) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      return this.get(key) != null;
+    }
+
+    @Override
+    public IFunction put(String key, IFunction value) {
+      return this.registry.put(key, value);
+    }
+
+    @Override
+    public IFunction remove(Object key) {
+      return key instanceof String ? this.registry.remove((String) key) : null;
+    }
+
+    @Override
+    public Set<Entry<String, IFunction>> entrySet() {
+      return new AbstractSet<Entry<String, IFunction>>() {
+        @Override
+        public Iterator<Entry<String, IFunction>> iterator() {
+          Iterator<Map.Entry<Symbol, IFunction>> iterator = RegistryMap.this.registry.functions.entrySet().iterator();
+          return new Iterator<Entry<String, IFunction>>() {
+            private Symbol current;
+
+            @Override
+            public boolean hasNext() {
+              return iterator.hasNext();
+            }
+
+            @Override
+            public Entry<String, IFunction> next() {
+              Map.Entry<Symbol, IFunction> entry = iterator.next();
+              this.current = entry.getKey();
+              return new SimpleImmutableEntry<>(entry.getKey().getName(), entry.getValue());
+            }
+
+            @Override
+            public void remove() {
+              if (this.current == null) {
+                throw new IllegalStateException();
+              }
+              RegistryMap.this.registry.remove(this.current.getName());
+              this.current = null;
+            }
+          };
+        }
+
+        @Override
+        public int size() {
+          return RegistryMap.this.registry.functions.size();
+        }
+      };
+    }
+  }
+}
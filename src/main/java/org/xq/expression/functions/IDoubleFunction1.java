@@ -0,0 +1,13 @@
+package org.xq.expression.functions;
+
+public interface IDoubleFunction1 extends IFunction {
+  double evaluate(double a);
+
+  @Override
+  default Object evaluate(Object... params) {
+    if (params.length != 1) {
+      throw new RuntimeException(String.format("The function requires 1 parameter. actual: %d", params.length));
+    }
+    return evaluate(IFunction.toDouble(params[0]));
+  }
+}
@@ -0,0 +1,13 @@
+package org.xq.expression.functions;
+
+public interface IDoubleFunction2 extends IFunction {
+  double evaluate(double a, double b);
+
+  @Override
+  default Object evaluate(Object... params) {
+    if (params.length != 2) {
+      throw new RuntimeException(String.format("The function requires 2 parameters. actual: %d", params.length));
+    }
+    return evaluate(IFunction.toDouble(params[0]), IFunction.toDouble(params[1]));
+  }
+}
@@ -3,4 +3,18 @@ package org.xq.expression.functions;
 
 public interface IFunction {
   Object evaluate(Object... params);
+
+  static double toDouble(Object value) {
+    if (!(value instanceof Number)) {
+      throw new RuntimeException(String.format("The %s parameter should be a number.", value));
+    }
+    return ((Number) value).doubleValue();
+  }
+
+  static long toLong(Object value) {
+    if (!(value instanceof Number)) {
+      throw new RuntimeException(String.format("The %s parameter should be a number.", value));
+    }
+    return ((Number) value).longValue();
+  }
 }
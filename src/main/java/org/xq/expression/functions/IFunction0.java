@@ -0,0 +1,13 @@
+package org.xq.expression.functions;
+
+public interface IFunction0 extends IFunction {
+  Object evaluate();
+
+  @Override
+  default Object evaluate(Object... params) {
+    if (params.length != 0) {
+      throw new RuntimeException(String.format("The function requires 0 parameters. actual: %d", params.length));
+    }
+    return evaluate();
+  }
+}
@@ -0,0 +1,13 @@
+package org.xq.expression.functions;
+
+public interface IFunction1 extends IFunction {
+  Object evaluate(Object a);
+
+  @Override
+  default Object evaluate(Object... params) {
+    if (params.length != 1) {
+      throw new RuntimeException(String.format("The function requires 1 parameter. actual: %d", params.length));
+    }
+    return evaluate(params[0]);
+  }
+}
@@ -0,0 +1,13 @@
+package org.xq.expression.functions;
+
+public interface IFunction2 extends IFunction {
+  Object evaluate(Object a, Object b);
+
+  @Override
+  default Object evaluate(Object... params) {
+    if (params.length != 2) {
+      throw new RuntimeException(String.format("The function requires 2 parameters. actual: %d", params.length));
+    }
+    return evaluate(params[0], params[1]);
+  }
+}
@@ -0,0 +1,13 @@
+package org.xq.expression.functions;
+
+public interface IFunction3 extends IFunction {
+  Object evaluate(Object a, Object b, Object c);
+
+  @Override
+  default Object evaluate(Object... params) {
+    if (params.length != 3) {
+      throw new RuntimeException(String.format("The function requires 3 parameters. actual: %d", params.length));
+    }
+    return evaluate(params[0], params[1], params[2]);
+  }
+}
@@ -0,0 +1,13 @@
+package org.xq.expression.functions;
+
+public interface IFunction4 extends IFunction {
+  Object evaluate(Object a, Object b, Object c, Object d);
+
+  @Override
+  default Object evaluate(Object... params) {
+    if (params.length != 4) {
+      throw new RuntimeException(String.format("The function requires 4 parameters. actual: %d", params.length));
+    }
+    return evaluate(params[0], params[1], params[2], params[3]);
+  }
+}
@@ -0,0 +1,13 @@
+package org.xq.expression.functions;
+
+public interface ILongFunction2 extends IFunction {
+  long evaluate(long a, long b);
+
+  @Override
+  default Object evaluate(Object... params) {
+    if (params.length != 2) {
+      throw new RuntimeException(String.format("The function requires 2 parameters. actual: %d", params.length));
+    }
+    return evaluate(IFunction.toLong(params[0]), IFunction.toLong(params[1]));
+  }
+}
@@ -0,0 +1,230 @@
+package org.xq.expression.functions;
+
+import org.xq.expression.LoadingCache;
+
+import java.util.Arrays;
+
+public class MemoizedFunction implements IFunction {
+  public static final int DEFAULT_CACHE_SIZE = 256;
+
+  private static final Object NULL = new Object();
+
+  private final IFunction function;
+  private final LoadingCache<ArgumentKey, Object> cache;
+
+  public MemoizedFunction(IFunction function) {
+    this(function, DEFAULT_CACHE_SIZE, 0);
+  }
+
+  public MemoizedFunction(IFunction function, int maximumSize, long ttlMillis) {
+    this.function = function;
+    this.cache = new LoadingCache<>(maximumSize, false, ttlMillis, (key) -> {
+      Object value = function.evaluate(key.params);
+      return value == null ? NULL : value;
+    });
+  }
+
+  public static IFunction of(IFunction function) {
+    if (function instanceof MemoizedFunction) {
+      return function;
+    }
+    Pure pure = function.getClass().getAnnotation(Pure.class);
+    return pure == null ? function : of(function, pure.cacheSize(), pure.ttlMillis());
+  }
+
+  public static MemoizedFunction of(IFunction function, int maximumSize, long ttlMillis) {
+    if (function instanceof IFunction1) {
+      return new Memoized1((IFunction1) function, maximumSize, ttlMillis);
+    } else if (function instanceof IFunction2) {
+      return new Memoized2((IFunction2) function, maximumSize, ttlMillis);
+    } else if (function instanceof IFunction3) {
+      return new Memoized3((IFunction3) function, maximumSize, ttlMillis);
+    } else if (function instanceof IFunction4) {
+      return new Memoized4((IFunction4) function, maximumSize, ttlMillis);
+    } else if (function instanceof IDoubleFunction1) {
+      return new MemoizedDouble1((IDoubleFunction1) function, maximumSize, ttlMillis);
+    } else if (function instanceof IDoubleFunction2) {
+      return new MemoizedDouble2((IDoubleFunction2) function, maximumSize, ttlMillis);
+    } else if (function instanceof ILongFunction1) {
+      return new MemoizedLong1((ILongFunction1) function, maximumSize, ttlMillis);
+    } else if (function instanceof ILongFunction2) {
+      return new MemoizedLong2((ILongFunction2) function, maximumSize, ttlMillis);
+    }
+    return new MemoizedFunction(function, maximumSize, ttlMillis);
+  }
+
+  @Override
+  public Object evaluate(Object... params) {
+    return this.lookup(params.clone());
+  }
+
+  Object lookup(Object... params) {
+    Object value = this.cache.get(new ArgumentKey(params));
+    return value == NULL ? null : value;
+  }
+
+  public IFunction getFunction() {
+    return function;
+  }
+
+  public void clear() {
+    this.cache.clear();
+  }
+
+  public int size() {
+    return this.cache.size();
+  }
+
+  public long getHitCount() {
+    return this.cache.getHitCount();
+  }
+
+  public long getMissCount() {
+    return this.cache.getMissCount();
+  }
+
+  public long getEvictionCount() {
+    return this.cache.getEvictionCount();
+  }
+
+  @Override
+  public String toString() {
+    return "MemoizedFunction{" +
+        "function=" + function +
+        ", cache=" + cache +
+        '}';
+  }
+
+  private static final class ArgumentKey {
+    private final Object[] params;
+    private final int hash;
+
+    ArgumentKey(Object[] params) {
+      this.params = params;
+      this.hash = Arrays.hashCode(params);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      return obj instanceof ArgumentKey && Arrays.equals(this.params, ((ArgumentKey) obj).params);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public String toString() {
+      return Arrays.toString(params);
+    }
+  }
+}
+
+final class Memoized1 extends MemoizedFunction implements IFunction1 {
+  Memoized1(IFunction1 function, int maximumSize, long ttlMillis) {
+    super(function, maximumSize, ttlMillis);
+  }
+
+  @Override
+  public Object evaluate(Object a) {
+    return this.lookup(a);
+  }
+}
+
+final class Memoized2 extends MemoizedFunction implements IFunction2 {
+  Memoized2(IFunction2 function, int maximumSize, long ttlMillis) {
+    super(function, maximumSize, ttlMillis);
+  }
+
+  @Override
+  public Object evaluate(Object a, Object b) {
+    return this.lookup(a, b);
+  }
+}
+
+final class Memoized3 extends MemoizedFunction implements IFunction3 {
+  Memoized3(IFunction3 function, int maximumSize, long ttlMillis) {
+    super(function, maximumSize, ttlMillis);
+  }
+
+  @Override
+  public Object evaluate(Object a, Object b, Object c) {
+    return this.lookup(a, b, c);
+  }
+}
+
+final class Memoized4 extends MemoizedFunction implements IFunction4 {
+  Memoized4(IFunction4 function, int maximumSize, long ttlMillis) {
+    super(function, maximumSize, ttlMillis);
+  }
+
+  @Override
+  public Object evaluate(Object a, Object b, Object c, Object d) {
+    return this.lookup(a, b, c, d);
+  }
+}
+
+final class MemoizedDouble1 extends MemoizedFunction implements IDoubleFunction1 {
+  MemoizedDouble1(IDoubleFunction1 function, int maximumSize, long ttlMillis) {
+    super(function, maximumSize, ttlMillis);
+  }
+
+  @Override
+  public Object evaluate(Object... params) {
+    return IDoubleFunction1.super.evaluate(params);
+  }
+
+  @Override
+  public double evaluate(double a) {
+    return (Double) this.lookup(a);
+  }
+}
+
+final class MemoizedDouble2 extends MemoizedFunction implements IDoubleFunction2 {
+  MemoizedDouble2(IDoubleFunction2 function, int maximumSize, long ttlMillis) {
+    super(function, maximumSize, ttlMillis);
+  }
+
+  @Override
+  public Object evaluate(Object... params) {
+    return IDoubleFunction2.super.evaluate(params);
+  }
+
+  @Override
+  public double evaluate(double a, double b) {
+    return (Double) this.lookup(a, b);
+  }
+}
+
+final class MemoizedLong1 extends MemoizedFunction implements ILongFunction1 {
+  MemoizedLong1(ILongFunction1 function, int maximumSize, long ttlMillis) {
+    super(function, maximumSize, ttlMillis);
+  }
+
+  @Override
+  public Object evaluate(Object... params) {
+    return ILongFunction1.super.evaluate(params);
+  }
+
+  @Override
+  public long evaluate(long a) {
+    return (Long) this.lookup(a);
+  }
+}
+
+final class MemoizedLong2 extends MemoizedFunction implements ILongFunction2 {
+  MemoizedLong2(ILongFunction2 function, int maximumSize, long ttlMillis) {
+    super(function, maximumSize, ttlMillis);
+  }
+
+  @Override
+  public Object evaluate(Object... params) {
+    return ILongFunction2.super.evaluate(params);
+  }
+
+  @Override
+  public long evaluate(long a, long b) {
+    return (Long) this.lookup(a, b);
+  }
+}
@@ -0,0 +1,14 @@
+package org.xq.expression.functions;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Pure {
+  int cacheSize() default MemoizedFunction.DEFAULT_CACHE_SIZE;
+
+  long ttlMillis() default 0;
+}
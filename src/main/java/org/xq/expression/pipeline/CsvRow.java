@@ -0,0 +1,179 @@
+package org.xq.expression.pipeline;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+final class CsvRow extends AbstractMap<String, Object> {
+  private static final Object UNLOADED = new Object();
+
+  private final CsvHeader header;
+  private final String line;
+  private String[] texts;
+  private boolean[] quoted;
+  private Object[] values;
+
+  CsvRow(CsvHeader header, String line) {
+    this.header = header;
+    this.line = line;
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return this.header.index(key) >= 0;
+  }
+
+  @Override
+  public Object get(Object key) {
+    int index = this.header.index(key);
+    return index < 0 ? null : this.value(index);
+  }
+
+  @Override
+  public Object put(String key, Object value) {
+    int index = this.header.index(key);
+    if (index < 0) {
+      throw new RuntimeException(String.format("The %s column does not exist.", key));
+    }
+    Object old = this.value(index);
+    this.values[index] = value;
+    return old;
+  }
+
+  @Override
+  public Set<Entry<String, Object>> entrySet() {
+    Map<String, Object> map = new LinkedHashMap<>();
+    for (int i = 0; i < this.header.names.length; i++) {
+      map.put(this.header.names[i], this.value(i));
+    }
+    return map.entrySet();
+  }
+
+  private Object value(int index) {
+    if (this.values == null) {
+      List<String> texts = new ArrayList<>();
+      List<Boolean> quoted = new ArrayList<>();
+      split(this.line, this.header.delimiter, texts, quoted);
+      this.texts = texts.toArray(new String[0]);
+      this.quoted = new boolean[this.texts.length];
+      for (int i = 0; i < this.quoted.length; i++) {
+        this.quoted[i] = quoted.get(i);
+      }
+      this.values = new Object[this.header.names.length];
+      Arrays.fill(this.values, UNLOADED);
+    }
+
+    Object value = this.values[index];
+    if (value == UNLOADED) {
+      value = index < this.texts.length ? convert(this.texts[index], this.quoted[index]) : null;
+      this.values[index] = value;
+    }
+    return value;
+  }
+
+  static void split(String line, char delimiter, List<String> texts, List<Boolean> quoted) {
+    StringBuilder builder = new StringBuilder();
+    int pos = 0;
+    int length = line.length();
+    while (true) {
+      builder.setLength(0);
+      boolean isQuoted = pos < length && line.charAt(pos) == '"';
+      if (isQuoted) {
+        pos++;
+        while (pos < length) {
+          char ch = line.charAt(pos++);
+          if (ch == '"') {
+            if (pos < length && line.charAt(pos) == '"') {
+              builder.append('"');
+              pos++;
+            } else {
+              break;
+            }
+          } else {
+            builder.append(ch);
+          }
+        }
+        while (pos < length && line.charAt(pos) != delimiter) {
+          pos++;
+        }
+      } else {
+        int end = line.indexOf(delimiter, pos);
+        end = end < 0 ? length : end;
+        builder.append(line, pos, end);
+        pos = end;
+      }
+
+      texts.add(builder.toString());
+      quoted.add(isQuoted);
+      if (pos >= length) {
+        return;
+      }
+      pos++;
+    }
+  }
+
+  static Object convert(String text, boolean quoted) {
+    if (quoted) {
+      return text;
+    }
+    if (text.isEmpty()) {
+      return null;
+    }
+
+    char ch = text.charAt(0);
+    if (Character.isDigit(ch) || ch == '-' || ch == '+' || ch == '.') {
+      boolean integral = true;
+      for (int i = 1; i < text.length(); i++) {
+        if (!Character.isDigit(text.charAt(i))) {
+          integral = false;
+          break;
+        }
+      }
+      try {
+        if (integral) {
+          long value = Long.parseLong(text);
+          return value == (int) value ? (Object) (int) value : (Object) value;
+        }
+        return Double.parseDouble(text);
+      } catch (NumberFormatException e) {
+        return text;
+      }
+    } else if ("true".equals(text)) {
+      return Boolean.TRUE;
+    } else if ("false".equals(text)) {
+      return Boolean.FALSE;
+    }
+    return text;
+  }
+}
+
+final class CsvHeader {
+  final String[] names;
+  final char delimiter;
+  private final Map<String, Integer> indexes = new HashMap<>();
+
+  CsvHeader(String line, char delimiter, boolean caseSensitive) {
+    List<String> texts = new ArrayList<>();
+    CsvRow.split(line, delimiter, texts, new ArrayList<>());
+    this.names = texts.toArray(new String[0]);
+    this.delimiter = delimiter;
+    for (int i = 0; i < this.names.length; i++) {
+      this.indexes.putIfAbsent(this.names[i].trim(), i);
+    }
+    if (!caseSensitive) {
+      for (int i = 0; i < this.names.length; i++) {
+        this.indexes.putIfAbsent(this.names[i].trim().toLowerCase(), i);
+      }
+    }
+  }
+
+  int index(Object key) {
+    Integer index = this.indexes.get(key);
+    return index == null ? -1 : index;
+  }
+}
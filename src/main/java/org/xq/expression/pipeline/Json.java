@@ -0,0 +1,213 @@
+package org.xq.expression.pipeline;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+final class Json {
+  private final String text;
+  private int pos;
+
+  private Json(String text) {
+    this.text = text;
+  }
+
+  @SuppressWarnings("unchecked")
+  static Map<String, Object> parseObject(String text) {
+    Json json = new Json(text);
+    Object value = json.value();
+    json.skipSpaces();
+    if (json.pos != text.length()) {
+      throw json.error("Unexpected content after the JSON value.");
+    }
+    if (!(value instanceof Map)) {
+      throw json.error("The JSON line should be an object.");
+    }
+    return (Map<String, Object>) value;
+  }
+
+  static void write(StringBuilder builder, Object value) {
+    if (value == null) {
+      builder.append("null");
+    } else if (value instanceof Number || value instanceof Boolean) {
+      builder.append(value);
+    } else {
+      String text = value.toString();
+      builder.append('"');
+      for (int i = 0; i < text.length(); i++) {
+        char ch = text.charAt(i);
+        switch (ch) {
+          case '"':  builder.append("\\\""); break;
+          case '\\': builder.append("\\\\"); break;
+          case '\n': builder.append("\\n"); break;
+          case '\r': builder.append("\\r"); break;
+          case '\t': builder.append("\\t"); break;
+          default:
+            if (ch < 0x20) {
+              builder.append(String.format("\\u%04x", (int) ch));
+            } else {
+              builder.append(ch);
+            }
+        }
+      }
+      builder.append('"');
+    }
+  }
+
+  private Object value() {
+    this.skipSpaces();
+    if (this.pos == this.text.length()) {
+      throw this.error("Unexpected end of the JSON value.");
+    }
+
+    char ch = this.text.charAt(this.pos);
+    switch (ch) {
+      case '{': return this.object();
+      case '[': return this.array();
+      case '"': return this.string();
+      case 't': return this.literal("true", Boolean.TRUE);
+      case 'f': return this.literal("false", Boolean.FALSE);
+      case 'n': return this.literal("null", null);
+      default:  return this.number();
+    }
+  }
+
+  private Map<String, Object> object() {
+    Map<String, Object> map = new LinkedHashMap<>();
+    this.pos++;
+    this.skipSpaces();
+    if (this.peek() == '}') {
+      this.pos++;
+      return map;
+    }
+    while (true) {
+      this.skipSpaces();
+      if (this.peek() != '"') {
+        throw this.error("The JSON object key should be a string.");
+      }
+      String key = this.string();
+      this.skipSpaces();
+      this.expect(':');
+      map.put(key, this.value());
+      this.skipSpaces();
+      if (this.peek() == ',') {
+        this.pos++;
+      } else {
+        this.expect('}');
+        return map;
+      }
+    }
+  }
+
+  private List<Object> array() {
+    List<Object> list = new ArrayList<>();
+    this.pos++;
+    this.skipSpaces();
+    if (this.peek() == ']') {
+      this.pos++;
+      return list;
+    }
+    while (true) {
+      list.add(this.value());
+      this.skipSpaces();
+      if (this.peek() == ',') {
+        this.pos++;
+      } else {
+        this.expect(']');
+        return list;
+      }
+    }
+  }
+
+  private String string() {
+    StringBuilder builder = new StringBuilder();
+    this.pos++;
+    while (this.pos < this.text.length()) {
+      char ch = this.text.charAt(this.pos++);
+      if (ch == '"') {
+        return builder.toString();
+      } else if (ch != '\\') {
+        builder.append(ch);
+        continue;
+      }
+      if (this.pos == this.text.length()) {
+        break;
+      }
+      char escaped = this.text.charAt(this.pos++);
+      switch (escaped) {
+        case 'b': builder.append('\b'); break;
+        case 'f': builder.append('\f'); break;
+        case 'n': builder.append('\n'); break;
+        case 'r': builder.append('\r'); break;
+        case 't': builder.append('\t'); break;
+        case 'u':
+          if (this.pos + 4 > this.text.length()) {
+            throw this.error("Invalid unicode escape.");
+          }
+          builder.append((char) Integer.parseInt(this.text.substring(this.pos, this.pos + 4), 16));
+          this.pos += 4;
+          break;
+        default:  builder.append(escaped); break;
+      }
+    }
+    throw this.error("Unterminated JSON string.");
+  }
+
+  private Object number() {
+    int start = this.pos;
+    boolean decimal = false;
+    while (this.pos < this.text.length()) {
+      char ch = this.text.charAt(this.pos);
+      if (ch == '.' || ch == 'e' || ch == 'E') {
+        decimal = true;
+      } else if (!Character.isDigit(ch) && ch != '-' && ch != '+') {
+        break;
+      }
+      this.pos++;
+    }
+    if (start == this.pos) {
+      throw this.error(String.format("Unexpected char '%s'.", this.text.charAt(start)));
+    }
+
+    String number = this.text.substring(start, this.pos);
+    try {
+      if (decimal) {
+        return Double.parseDouble(number);
+      }
+      long value = Long.parseLong(number);
+      return value == (int) value ? (Object) (int) value : (Object) value;
+    } catch (NumberFormatException e) {
+      throw this.error(String.format("Invalid number %s.", number));
+    }
+  }
+
+  private Object literal(String literal, Object value) {
+    if (!this.text.startsWith(literal, this.pos)) {
+      throw this.error(String.format("Unexpected char '%s'.", this.text.charAt(this.pos)));
+    }
+    this.pos += literal.length();
+    return value;
+  }
+
+  private void expect(char ch) {
+    if (this.peek() != ch) {
+      throw this.error(String.format("The '%s' char is expected.", ch));
+    }
+    this.pos++;
+  }
+
+  private char peek() {
+    return this.pos < this.text.length() ? this.text.charAt(this.pos) : '\0';
+  }
+
+  private void skipSpaces() {
+    while (this.pos < this.text.length() && Character.isWhitespace(this.text.charAt(this.pos))) {
+      this.pos++;
+    }
+  }
+
+  private RuntimeException error(String message) {
+    return new RuntimeException(String.format("%s position: %d", message, this.pos));
+  }
+}
@@ -0,0 +1,41 @@
+package org.xq.expression.pipeline;
+
+import java.util.AbstractMap;
+import java.util.Map;
+import java.util.Set;
+
+final class JsonRow extends AbstractMap<String, Object> {
+  private final String line;
+  private Map<String, Object> map;
+
+  JsonRow(String line) {
+    this.line = line;
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return this.map().containsKey(key);
+  }
+
+  @Override
+  public Object get(Object key) {
+    return this.map().get(key);
+  }
+
+  @Override
+  public Object put(String key, Object value) {
+    return this.map().put(key, value);
+  }
+
+  @Override
+  public Set<Entry<String, Object>> entrySet() {
+    return this.map().entrySet();
+  }
+
+  private Map<String, Object> map() {
+    if (this.map == null) {
+      this.map = Json.parseObject(this.line);
+    }
+    return this.map;
+  }
+}
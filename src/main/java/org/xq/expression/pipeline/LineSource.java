@@ -0,0 +1,89 @@
+package org.xq.expression.pipeline;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+final class LineSource implements Closeable {
+  static final int DEFAULT_WINDOW_SIZE = 1 << 28;
+
+  private final FileChannel channel;
+  private final long size;
+  private final int windowSize;
+  private MappedByteBuffer window;
+  private long windowStart;
+  private byte[] bytes = new byte[256];
+  private long lineNumber;
+
+  LineSource(Path path) throws IOException {
+    this(path, DEFAULT_WINDOW_SIZE);
+  }
+
+  LineSource(Path path, int windowSize) throws IOException {
+    this.channel = FileChannel.open(path, StandardOpenOption.READ);
+    this.size = this.channel.size();
+    this.windowSize = windowSize;
+    this.map(0);
+  }
+
+  String next() throws IOException {
+    while (true) {
+      int start = this.window.position();
+      int limit = this.window.limit();
+      for (int i = start; i < limit; i++) {
+        if (this.window.get(i) == '\n') {
+          String line = this.decode(start, i);
+          this.window.position(i + 1);
+          this.lineNumber++;
+          return line;
+        }
+      }
+
+      long end = this.windowStart + limit;
+      if (end == this.size) {
+        if (start == limit) {
+          return null;
+        }
+        String line = this.decode(start, limit);
+        this.window.position(limit);
+        this.lineNumber++;
+        return line;
+      }
+      if (start == 0) {
+        throw new RuntimeException(String.format("The line at %d is longer than %d bytes.", this.windowStart, this.windowSize));
+      }
+      this.map(this.windowStart + start);
+    }
+  }
+
+  long getLineNumber() {
+    return lineNumber;
+  }
+
+  @Override
+  public void close() throws IOException {
+    this.channel.close();
+  }
+
+  private void map(long start) throws IOException {
+    this.windowStart = start;
+    this.window = this.channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(this.windowSize, this.size - start));
+  }
+
+  private String decode(int start, int end) {
+    if (end > start && this.window.get(end - 1) == '\r') {
+      end--;
+    }
+    int length = end - start;
+    if (length > this.bytes.length) {
+      this.bytes = new byte[Math.max(length, this.bytes.length * 2)];
+    }
+    this.window.position(start);
+    this.window.get(this.bytes, 0, length);
+    return new String(this.bytes, 0, length, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,243 @@
+package org.xq.expression.pipeline;
+
+import org.xq.expression.envaluation.CompiledScript;
+import org.xq.expression.envaluation.EvaluationContext;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class Pipeline {
+  public static final int FORMAT_CSV = 0;
+  public static final int FORMAT_JSONL = 1;
+  public static final int DEFAULT_BATCH_SIZE = 1024;
+
+  private final CompiledScript script;
+  private final List<String> outputs;
+  private int format = FORMAT_CSV;
+  private char delimiter = ',';
+  private boolean caseSensitive = true;
+  private int threads = 1;
+  private int batchSize = DEFAULT_BATCH_SIZE;
+
+  public Pipeline(CompiledScript script, List<String> outputs) {
+    if (outputs.isEmpty()) {
+      throw new RuntimeException("The pipeline requires one output at least.");
+    }
+    this.script = script;
+    this.outputs = outputs;
+  }
+
+  public Pipeline setFormat(int format) {
+    if (format != FORMAT_CSV && format != FORMAT_JSONL) {
+      throw new RuntimeException(String.format("The %d format is not supported.", format));
+    }
+    this.format = format;
+    return this;
+  }
+
+  public Pipeline setDelimiter(char delimiter) {
+    this.delimiter = delimiter;
+    return this;
+  }
+
+  public Pipeline setCaseSensitive(boolean caseSensitive) {
+    this.caseSensitive = caseSensitive;
+    return this;
+  }
+
+  public Pipeline setThreads(int threads) {
+    if (threads < 1) {
+      throw new RuntimeException(String.format("The threads should be positive. threads: %d", threads));
+    }
+    this.threads = threads;
+    return this;
+  }
+
+  public Pipeline setBatchSize(int batchSize) {
+    if (batchSize < 1) {
+      throw new RuntimeException(String.format("The batch size should be positive. size: %d", batchSize));
+    }
+    this.batchSize = batchSize;
+    return this;
+  }
+
+  public long run(Path input, Writer output) throws IOException {
+    ExecutorService executor = this.threads > 1 ? Executors.newFixedThreadPool(this.threads) : null;
+    try (LineSource source = new LineSource(input)) {
+      CsvHeader header = null;
+      if (this.format == FORMAT_CSV) {
+        String line = record(source, source.next());
+        if (line == null) {
+          return 0;
+        }
+        header = new CsvHeader(line, this.delimiter, this.caseSensitive);
+        this.writeHeader(output);
+      }
+
+      long count = 0;
+      Deque<Future<String[]>> pendings = new ArrayDeque<>();
+      List<String> batch = new ArrayList<>(this.batchSize);
+      String line;
+      while ((line = this.format == FORMAT_CSV ? record(source, source.next()) : source.next()) != null) {
+        if (line.isEmpty()) {
+          continue;
+        }
+        batch.add(line);
+        if (batch.size() == this.batchSize) {
+          count += this.submit(executor, pendings, header, batch, output);
+          batch = new ArrayList<>(this.batchSize);
+        }
+      }
+      if (!batch.isEmpty()) {
+        count += this.submit(executor, pendings, header, batch, output);
+      }
+      while (!pendings.isEmpty()) {
+        count += write(output, join(pendings.poll()));
+      }
+      output.flush();
+      return count;
+    } finally {
+      if (executor != null) {
+        executor.shutdownNow();
+      }
+    }
+  }
+
+  private long submit(ExecutorService executor, Deque<Future<String[]>> pendings, CsvHeader header, List<String> batch, Writer output) throws IOException {
+    if (executor == null) {
+      return write(output, this.evaluate(header, batch));
+    }
+
+    pendings.add(executor.submit(() -> this.evaluate(header, batch)));
+    long count = 0;
+    while (pendings.size() > this.threads * 2) {
+      count += write(output, join(pendings.poll()));
+    }
+    return count;
+  }
+
+  private String[] evaluate(CsvHeader header, List<String> lines) {
+    EvaluationContext context = new EvaluationContext(this.caseSensitive);
+    for (String name: this.outputs) {
+      context.newVariable(name, null);
+    }
+
+    String[] results = new String[lines.size()];
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < results.length; i++) {
+      Map<String, Object> row = this.format == FORMAT_CSV ? new CsvRow(header, lines.get(i)) : new JsonRow(lines.get(i));
+      context.bind(row);
+      for (String name: this.outputs) {
+        context.setVariable(name, null);
+      }
+      this.script.evaluate(context);
+
+      builder.setLength(0);
+      if (this.format == FORMAT_CSV) {
+        for (int j = 0; j < this.outputs.size(); j++) {
+          if (j != 0) {
+            builder.append(this.delimiter);
+          }
+          this.appendCsv(builder, context.getVariable(this.outputs.get(j)));
+        }
+      } else {
+        builder.append('{');
+        for (int j = 0; j < this.outputs.size(); j++) {
+          if (j != 0) {
+            builder.append(',');
+          }
+          Json.write(builder, this.outputs.get(j));
+          builder.append(':');
+          Json.write(builder, context.getVariable(this.outputs.get(j)));
+        }
+        builder.append('}');
+      }
+      results[i] = builder.toString();
+    }
+    return results;
+  }
+
+  private void writeHeader(Writer output) throws IOException {
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < this.outputs.size(); i++) {
+      if (i != 0) {
+        builder.append(this.delimiter);
+      }
+      this.appendCsv(builder, this.outputs.get(i));
+    }
+    output.write(builder.append('\n').toString());
+  }
+
+  private void appendCsv(StringBuilder builder, Object value) {
+    if (value == null) {
+      return;
+    }
+    String text = value.toString();
+    if (text.indexOf(this.delimiter) < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+      builder.append(text);
+      return;
+    }
+    builder.append('"').append(text.replace("\"", "\"\"")).append('"');
+  }
+
+  private static String record(LineSource source, String line) throws IOException {
+    if (line == null || (quotes(line) & 1) == 0) {
+      return line;
+    }
+
+    long start = source.getLineNumber();
+    StringBuilder builder = new StringBuilder(line);
+    int quotes = quotes(line);
+    while ((quotes & 1) != 0) {
+      String next = source.next();
+      if (next == null) {
+        throw new RuntimeException(String.format("The quoted field at line %d is not closed.", start));
+      }
+      builder.append('\n').append(next);
+      quotes += quotes(next);
+    }
+    return builder.toString();
+  }
+
+  private static int quotes(String line) {
+    int count = 0;
+    for (int i = 0; i < line.length(); i++) {
+      if (line.charAt(i) == '"') {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  private static long write(Writer output, String[] results) throws IOException {
+    for (String result: results) {
+      output.write(result);
+      output.write('\n');
+    }
+    return results.length;
+  }
+
+  private static String[] join(Future<String[]> future) {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("The pipeline is interrupted.", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new RuntimeException(e.getCause());
+    }
+  }
+}
@@ -0,0 +1,100 @@
+package org.xq.expression.pipeline;
+
+import org.xq.expression.ExpressionParser;
+import org.xq.expression.envaluation.CompiledEngine;
+import org.xq.expression.envaluation.CompiledScript;
+import org.xq.expression.envaluation.ExpressionEngine;
+import org.xq.expression.envaluation.TreeEngine;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+public class PipelineMain {
+  private static final String USAGE = "Usage: PipelineMain --script <script> | --script-file <file> --input <file> --outputs <a,b,...>"
+      + " [--output <file>] [--format csv|jsonl] [--delimiter <char>] [--threads <n>] [--engine tree|compiled|interpreter] [--ignore-case]";
+
+  public static void main(String[] args) throws IOException {
+    Map<String, String> options;
+    try {
+      options = parseOptions(args);
+    } catch (RuntimeException e) {
+      System.err.println(e.getMessage());
+      System.err.println(USAGE);
+      System.exit(2);
+      return;
+    }
+
+    long count = run(options);
+    System.err.println(String.format("%d rows processed.", count));
+  }
+
+  static long run(Map<String, String> options) throws IOException {
+    String source = options.containsKey("script-file")
+        ? new String(Files.readAllBytes(Paths.get(options.get("script-file"))), StandardCharsets.UTF_8)
+        : options.get("script");
+    CompiledScript script = compile(options.getOrDefault("engine", "tree"), source);
+
+    Pipeline pipeline = new Pipeline(script, Arrays.asList(options.get("outputs").split(",")))
+        .setFormat("jsonl".equalsIgnoreCase(options.getOrDefault("format", "csv")) ? Pipeline.FORMAT_JSONL : Pipeline.FORMAT_CSV)
+        .setThreads(Integer.parseInt(options.getOrDefault("threads", String.valueOf(Runtime.getRuntime().availableProcessors()))))
+        .setCaseSensitive(!options.containsKey("ignore-case"));
+    if (options.containsKey("delimiter")) {
+      String delimiter = options.get("delimiter");
+      pipeline.setDelimiter("\\t".equals(delimiter) ? '\t' : delimiter.charAt(0));
+    }
+
+    Path input = Paths.get(options.get("input"));
+    if (options.containsKey("output")) {
+      try (Writer writer = Files.newBufferedWriter(Paths.get(options.get("output")), StandardCharsets.UTF_8)) {
+        return pipeline.run(input, writer);
+      }
+    }
+    Writer writer = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+    return pipeline.run(input, writer);
+  }
+
+  private static CompiledScript compile(String engine, String source) {
+    switch (engine.toLowerCase()) {
+      case "tree":        return new TreeEngine().compile(source);
+      case "compiled":    return new CompiledEngine().compile(source);
+      case "interpreter": return new ExpressionEngine().compile(new ExpressionParser().parse(source));
+      default:            throw new RuntimeException(String.format("The %s engine is not supported.", engine));
+    }
+  }
+
+  static Map<String, String> parseOptions(String[] args) {
+    Map<String, String> options = new HashMap<>();
+    for (int i = 0; i < args.length; i++) {
+      if (!args[i].startsWith("--")) {
+        throw new RuntimeException(String.format("Unexpected argument %s.", args[i]));
+      }
+      String name = args[i].substring(2);
+      if ("ignore-case".equals(name)) {
+        options.put(name, "true");
+      } else if (i + 1 < args.length) {
+        options.put(name, args[++i]);
+      } else {
+        throw new RuntimeException(String.format("The --%s option requires a value.", name));
+      }
+    }
+    if (!options.containsKey("script") && !options.containsKey("script-file")) {
+      throw new RuntimeException("The script is required.");
+    }
+    if (!options.containsKey("input")) {
+      throw new RuntimeException("The input is required.");
+    }
+    if (!options.containsKey("outputs")) {
+      throw new RuntimeException("The outputs are required.");
+    }
+    return options;
+  }
+}
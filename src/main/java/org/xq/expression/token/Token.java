@@ -1,16 +1,24 @@
 package org.xq.expression.token;
 
+import org.xq.expression.Symbol;
+
 public class Token {
   private final Kind kind;
   private final String value;
+  private final Symbol symbol;
 
   public Token(Kind kind) {
     this(kind, null);
   }
 
   public Token(Kind kind, String value) {
+    this(kind, value, null);
+  }
+
+  public Token(Kind kind, String value, Symbol symbol) {
     this.kind = kind;
     this.value = value;
+    this.symbol = symbol;
   }
 
   public Kind getKind() {
@@ -21,6 +29,10 @@ public class Token {
     return value;
   }
 
+  public Symbol getSymbol() {
+    return symbol;
+  }
+
   public boolean equalsValue(String value) {
     return value != null && value.equalsIgnoreCase(this.value);
   }
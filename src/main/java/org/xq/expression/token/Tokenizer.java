@@ -1,23 +1,27 @@
 package org.xq.expression.token;
 
+import org.xq.expression.Symbol;
+
 import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 public class Tokenizer {
   public static final Token EOF = new Token(Kind.EOF);
   public static final char[] OperatorChars = new char[] {'+', '-', '*', '/', '%', '&', '|', '$', '!', '~', '^', '>', '<', '=', '?', ':'};
   public static final String[] DEFAULT_KEYWORDS = new String[] {"if", "else", "while", "for", "foreach", "let", "true", "false"};
   public static final char QUOTA = '"';
+  private static final Set<Symbol> KEYWORD_SYMBOLS = Arrays.stream(DEFAULT_KEYWORDS).map(Symbol::of).collect(Collectors.toCollection(HashSet::new));
 
   private int current;
   private String input;
   private int length;
-  private String[] keywords;
 
   public Tokenizer(String input) {
     this.current = 0;
     this.input = input;
     this.length = input == null ? 0 : input.length();
-    this.keywords = DEFAULT_KEYWORDS;
   }
 
   public Token next() {
@@ -53,20 +57,28 @@ public class Tokenizer {
     char ch = this.input.charAt(currentPos);
     while (Character.isWhitespace(ch) || ch == '\t' || ch == '\r' || ch == '\n') {
       currentPos ++;
+      if (currentPos == length) {
+        return EOF;
+      }
       ch = this.input.charAt(currentPos);
     }
 
     Kind kind;
     int pos;
     String value = null;
+    Symbol symbol = null;
     if (isValidIdentityStart(ch)) {
       pos = readIdentity((c) -> isValidIdentity(c), currentPos,false);
       value = input.substring(currentPos, pos);
-      if (Arrays.stream(keywords).anyMatch(value.toLowerCase()::equals)) {
+      symbol = Symbol.of(value);
+      if (KEYWORD_SYMBOLS.contains(symbol.fold())) {
         kind = Kind.Keyword;
       } else {
         kind = Kind.Identity;
       }
+    } else if (ch == '?' && isNullSafePointer(currentPos)) {
+      kind = Kind.Pointer;
+      pos = currentPos + 2;
     } else if (isOperation(ch)) {
       if (ch == '=' && currentPos + 1 < length && this.input.charAt(currentPos + 1) != '=') {
         kind = Kind.Equals;
@@ -77,10 +89,12 @@ public class Tokenizer {
       }
     } else if (isNumberStart(ch)) {
       kind = Kind.Number;
-      pos = readIdentity((c) -> isNumber(c), currentPos,false);
+      pos = readNumber(currentPos);
     } else if (ch == QUOTA) {
       kind = Kind.String;
-      pos = readIdentity((c) -> c != '\r' && c != '\n', currentPos,true);
+      StringBuilder builder = new StringBuilder();
+      pos = readString(currentPos, builder);
+      value = builder.toString();
     } else if (ch == '(' || ch == '[' || ch == '{') {
       kind = Kind.StartBracket;
       pos = currentPos + 1;
@@ -110,7 +124,7 @@ public class Tokenizer {
     } else {
       this.current = original;
     }
-    return new Token(kind, value);
+    return new Token(kind, value, symbol);
   }
 
   private boolean isValidIdentityStart(char ch) {
@@ -121,12 +135,64 @@ public class Tokenizer {
     return Character.isAlphabetic(ch) || ch == '_' || Character.isDigit(ch);
   }
 
+  private boolean isNullSafePointer(int pos) {
+    return pos + 1 < length && this.input.charAt(pos + 1) == '.'
+        && !(pos + 2 < length && Character.isDigit(this.input.charAt(pos + 2)));
+  }
+
   private boolean isOperation(char ch) {
     return contains(OperatorChars, ch);
   }
 
-  private boolean isNumber(char ch) {
-    return Character.isDigit(ch) || ch == '-' || ch == '+' || ch == 'E' || ch == 'e' || ch == '.';
+  private int readNumber(int pos) {
+    int idx = pos;
+    if (idx + 1 < length && this.input.charAt(idx) == '0' && (this.input.charAt(idx + 1) == 'x' || this.input.charAt(idx + 1) == 'X')) {
+      idx += 2;
+      while (idx < length && Character.digit(this.input.charAt(idx), 16) >= 0) {
+        idx++;
+      }
+    } else {
+      while (idx < length) {
+        char ch = this.input.charAt(idx);
+        if ((ch == '-' || ch == '+') && idx > pos && (this.input.charAt(idx - 1) == 'e' || this.input.charAt(idx - 1) == 'E')) {
+          idx++;
+        } else if (Character.isDigit(ch) || ch == '.' || ch == 'e' || ch == 'E') {
+          idx++;
+        } else {
+          break;
+        }
+      }
+    }
+
+    if (idx < length && "lLfFdDmM".indexOf(this.input.charAt(idx)) >= 0) {
+      idx++;
+    }
+    return idx;
+  }
+
+  private int readString(int pos, StringBuilder builder) {
+    int idx = pos + 1;
+    while (idx < length) {
+      char ch = this.input.charAt(idx);
+      if (ch == QUOTA) {
+        return idx + 1;
+      } else if (ch == '\\' && idx + 1 < length) {
+        idx++;
+        ch = this.input.charAt(idx);
+        switch (ch) {
+          case 'n': builder.append('\n'); break;
+          case 'r': builder.append('\r'); break;
+          case 't': builder.append('\t'); break;
+          default:  builder.append(ch); break;
+        }
+      } else if (ch == '\r' || ch == '\n') {
+        break;
+      } else {
+        builder.append(ch);
+      }
+      idx++;
+    }
+    throw new RuntimeException(String.format("The string is not closed at %s.", input.substring(pos, idx)));
   }
 
   private boolean isNumberStart(char ch) {
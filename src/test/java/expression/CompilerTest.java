@@ -0,0 +1,982 @@
+package expression;
+
+import junit.framework.TestCase;
+import org.xq.expression.ExpressionParser;
+import org.xq.expression.Symbol;
+import org.xq.expression.envaluation.Batch;
+import org.xq.expression.envaluation.BatchEngine;
+import org.xq.expression.envaluation.BufferRecord;
+import org.xq.expression.envaluation.CompiledEngine;
+import org.xq.expression.envaluation.CompiledScript;
+import org.xq.expression.envaluation.EvaluationContext;
+import org.xq.expression.envaluation.ExpressionCompiler;
+import org.xq.expression.envaluation.ExpressionEngine;
+import org.xq.expression.envaluation.IEngine;
+import org.xq.expression.envaluation.RecordSchema;
+import org.xq.expression.envaluation.TreeEngine;
+import org.xq.expression.expressions.ConstantExpression;
+import org.xq.expression.expressions.Expression;
+import org.xq.expression.functions.AsyncFunction;
+import org.xq.expression.functions.FunctionFactory;
+import org.xq.expression.functions.FunctionRegistry;
+import org.xq.expression.functions.IDoubleFunction2;
+import org.xq.expression.functions.IFunction;
+import org.xq.expression.functions.IFunction3;
+import org.xq.expression.functions.ILongFunction1;
+import org.xq.expression.functions.IFunction1;
+import org.xq.expression.functions.MemoizedFunction;
+import org.xq.expression.functions.Pure;
+import org.xq.expression.pipeline.Pipeline;
+
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CompilerTest extends TestCase {
+  public void test_compile01() {
+    EvaluationContext context = new EvaluationContext(true);
+    Expression ex = new ExpressionParser().parse("let a = 1 + 4; let b = 5; b = a + b; expose(a, b);");
+    IEngine engine = new CompiledEngine();
+    engine.evaluate(context, ex);
+    assertEquals(5, context.getVariable("a"));
+    assertEquals(10, context.getVariable("b"));
+  }
+
+  public void test_compile02() {
+    EvaluationContext context = new EvaluationContext(true);
+    Expression ex = new ExpressionParser().parse("let a = 1; if (let b = 5 > 1) {a = 5; } expose(a);");
+    IEngine engine = new CompiledEngine();
+    engine.evaluate(context, ex);
+    assertEquals(5, context.getVariable("a"));
+    assertEquals(false, context.exist("b"));
+  }
+
+  public void test_compile03() {
+    EvaluationContext context = new EvaluationContext(true);
+    Expression ex = new ExpressionParser().parse("let a = 1; while ( a < 5 ) { a++; } let b = 0; if (a > 5) { b = 1; } else if (a == 5) { b = 2; } expose(a, b);");
+    IEngine engine = new CompiledEngine();
+    engine.evaluate(context, ex);
+    assertEquals(5, context.getVariable("a"));
+    assertEquals(2, context.getVariable("b"));
+  }
+
+  public void test_compile04() {
+    EvaluationContext context = new EvaluationContext(true);
+    Expression ex = new ExpressionParser().parse("let a = 3; let c = 1; let b = a < 3 ? 2 + 3 : c > 1 ? 2 : 1; expose(b);");
+    CompiledEngine engine = new CompiledEngine();
+    engine.evaluate(context, ex);
+    assertEquals(1, context.getVariable("b"));
+
+    EvaluationContext other = new EvaluationContext(true);
+    engine.evaluate(other, ex);
+    assertEquals(1, other.getVariable("b"));
+    assertSame(engine.compile(ex), engine.compile(ex));
+  }
+
+  public void test_compile05() {
+    FunctionRegistry registry = new FunctionRegistry(FunctionFactory.REGISTRY);
+    registry.register("twice", (params) -> (Integer) params[0] * 2);
+    EvaluationContext context = new EvaluationContext(true);
+    Expression ex = new ExpressionParser().parse("let a = 3; let b = twice(a + 1); expose(b);");
+    new CompiledEngine(registry).evaluate(context, ex);
+    assertEquals(8, context.getVariable("b"));
+    assertNull(FunctionFactory.REGISTRY.find(Symbol.of("twice")));
+
+    try {
+      FunctionRegistry.BUILTINS.register("twice", (params) -> params[0]);
+      fail("builtins should be read-only");
+    } catch (RuntimeException e) {
+      assertEquals("The builtin functions are read-only. Register twice in a child registry.", e.getMessage());
+    }
+
+    FunctionFactory.FUNCTIONS.put("thrice", (params) -> (Integer) params[0] * 3);
+    assertNotNull(FunctionFactory.REGISTRY.find(Symbol.of("THRICE")));
+    assertTrue(FunctionFactory.FUNCTIONS.containsKey("thrice"));
+    assertNotNull(FunctionFactory.FUNCTIONS.remove("thrice"));
+    assertNull(FunctionFactory.REGISTRY.find(Symbol.of("thrice")));
+  }
+
+  public void test_tree01() {
+    EvaluationContext context = new EvaluationContext(true);
+    Expression ex = new ExpressionParser().parse("let a = 1; let b = a ++; let c = ++ a; expose(a, b, c);");
+    IEngine engine = new TreeEngine();
+    engine.evaluate(context, ex);
+    assertEquals(3, context.getVariable("a"));
+    assertEquals(1, context.getVariable("b"));
+    assertEquals(3, context.getVariable("c"));
+  }
+
+  public void test_tree02() {
+    EvaluationContext context = new EvaluationContext(true);
+    Expression ex = new ExpressionParser().parse("let a = 1; while ( a < 5 ) { a++; } let b = 0; if (a > 5) { b = 1; } else if (a == 5) { b = 2; } expose(a, b);");
+    IEngine engine = new TreeEngine();
+    engine.evaluate(context, ex);
+    assertEquals(5, context.getVariable("a"));
+    assertEquals(2, context.getVariable("b"));
+    assertEquals(false, context.exist("c"));
+  }
+
+  public void test_tree03() {
+    EvaluationContext context = new EvaluationContext(true);
+    Expression ex = new ExpressionParser().parse("let a = 3.0; let b = 1; b += a; let c = a < 3 ? 2 + 3 : b > 1 ? 2 : 1; expose(b, c);");
+    new TreeEngine().evaluate(context, ex);
+    assertEquals(4.0, context.getVariable("b"));
+    assertEquals(2, context.getVariable("c"));
+  }
+
+  public void test_compile06() {
+    EvaluationContext context = new EvaluationContext(true);
+    Expression ex = new ExpressionParser().parse("let a = 1; let c = a < 3 ? 2 + 3 : 1; let b = a > 1 && (a ++) > 0; let d = 10 - 4 - 3; expose(a, b, c, d);");
+    new CompiledEngine().evaluate(context, ex);
+    assertEquals(1, context.getVariable("a"));
+    assertEquals(false, context.getVariable("b"));
+    assertEquals(5, context.getVariable("c"));
+    assertEquals(3, context.getVariable("d"));
+  }
+
+  public void test_compile07() {
+    Expression ex = new ExpressionParser().parse("let a = x + 1; { let b = a * 2; X = b; } y = a; while (a < 5) { a++; }");
+    String source = new ExpressionCompiler().generate("Script", ex);
+    assertTrue(source.contains("f.load("));
+    assertFalse(source.contains("f.reference((Symbol)"));
+
+    EvaluationContext context = new EvaluationContext(true);
+    context.newVariable("x", 2);
+    context.newVariable("X", 0);
+    context.newVariable("y", null);
+    CompiledEngine engine = new CompiledEngine();
+    engine.evaluate(context, ex);
+    assertEquals(6, context.getVariable("X"));
+    assertEquals(2, context.getVariable("x"));
+    assertEquals(3, context.getVariable("y"));
+    assertEquals(false, context.exist("a"));
+
+    EvaluationContext folded = new EvaluationContext(false);
+    folded.newVariable("x", 2);
+    folded.newVariable("y", null);
+    engine.evaluate(folded, ex);
+    assertEquals(6, folded.getVariable("x"));
+    assertEquals(3, folded.getVariable("y"));
+
+    try {
+      engine.evaluate(new EvaluationContext(true), new ExpressionParser().parse("let a = 1; let a = 2;"));
+      fail("a duplicate declaration should fail");
+    } catch (RuntimeException e) {
+      assertEquals("The a variable exist.", e.getMessage());
+    }
+  }
+
+  public void test_tree04() {
+    EvaluationContext context = new EvaluationContext(true);
+    Expression ex = new ExpressionParser().parse("let a = 1; let c = a < 3 ? 2 + 3 : 1; let b = a == 1 || (a ++) > 0; let d = 10 - 4 - 3; expose(a, b, c, d);");
+    new TreeEngine().evaluate(context, ex);
+    assertEquals(1, context.getVariable("a"));
+    assertEquals(true, context.getVariable("b"));
+    assertEquals(5, context.getVariable("c"));
+    assertEquals(3, context.getVariable("d"));
+  }
+
+  public void test_tree05() {
+    Expression ex = new ExpressionParser().parse("let c = a * b + 1; let d = a == b; expose(c, d);");
+    TreeEngine engine = new TreeEngine();
+
+    EvaluationContext context = new EvaluationContext(true);
+    context.newVariable("a", 1000);
+    context.newVariable("b", 1000);
+    engine.evaluate(context, ex);
+    assertEquals(1000001, context.getVariable("c"));
+    assertEquals(true, context.getVariable("d"));
+
+    context = new EvaluationContext(true);
+    context.newVariable("a", 2.5);
+    context.newVariable("b", 2);
+    engine.evaluate(context, ex);
+    assertEquals(6.0, context.getVariable("c"));
+    assertEquals(false, context.getVariable("d"));
+
+    context = new EvaluationContext(true);
+    context.newVariable("a", 3L);
+    context.newVariable("b", 4);
+    engine.evaluate(context, ex);
+    assertEquals(13L, context.getVariable("c"));
+    assertEquals(false, context.getVariable("d"));
+  }
+
+  public void test_tree06() {
+    EvaluationContext context = new EvaluationContext(true);
+    Expression ex = new ExpressionParser().parse("let a = 0; let s = 0; while (a < 100) { s = s + a * 2; a++; } let t = s / 3.0; expose(s, t);");
+    new TreeEngine().evaluate(context, ex);
+    assertEquals(9900, context.getVariable("s"));
+    assertEquals(3300.0, context.getVariable("t"));
+  }
+
+  public void test_tree07() {
+    Expression ex = new ExpressionParser().parse("let t = 0; while (I < n) { t += i * 2; I++; } { let x = t; expose(x); } total = x + 1; expose(t);");
+    TreeEngine engine = new TreeEngine();
+
+    EvaluationContext context = new EvaluationContext(false);
+    context.newVariable("i", 0);
+    context.newVariable("N", 4);
+    context.newVariable("total", 0);
+    engine.evaluate(context, ex);
+    assertEquals(4, context.getVariable("i"));
+    assertEquals(13, context.getVariable("total"));
+    assertEquals(12, context.getVariable("t"));
+
+    context = new EvaluationContext(true);
+    context.newVariable("I", 0);
+    context.newVariable("i", 1);
+    context.newVariable("n", 2);
+    context.newVariable("total", 0);
+    engine.evaluate(context, ex);
+    assertEquals(2, context.getVariable("I"));
+    assertEquals(1, context.getVariable("i"));
+    assertEquals(5, context.getVariable("total"));
+  }
+
+  public void test_tree08() {
+    TreeEngine engine = new TreeEngine();
+    EvaluationContext context = new EvaluationContext(true);
+    context.newVariable("a", 1);
+    try {
+      engine.evaluate(context, "let a = 2;");
+      fail();
+    } catch (RuntimeException e) {
+      assertEquals("The a variable exist.", e.getMessage());
+    }
+
+    try {
+      engine.evaluate(context, "a = 3; b = 2;");
+      fail();
+    } catch (RuntimeException e) {
+      assertEquals("The b variable does not exist.", e.getMessage());
+    }
+    assertEquals(3, context.getVariable("a"));
+
+    engine.evaluate(context, "let b = a; let c; { let d = b + 1; c = d; } a = 5; expose(b, c);");
+    assertEquals(3, context.getVariable("b"));
+    assertEquals(4, context.getVariable("c"));
+  }
+
+  public void test_scope01() {
+    Expression ex = new ExpressionParser().parse("let t = 0; let i = 0; while (i < 3) { let k = i * 2; t += k; i++; } if (t > 0) { t++; } { { let r = t - 1; expose(r); } expose(r); } total = r; ");
+    IEngine[] engines = new IEngine[] { new ExpressionEngine(), new CompiledEngine(), new TreeEngine() };
+    for (IEngine engine: engines) {
+      EvaluationContext context = new EvaluationContext(true);
+      context.newVariable("total", 0);
+      engine.evaluate(context, ex);
+      assertEquals(6, context.getVariable("total"));
+      assertFalse(context.exist("k"));
+    }
+  }
+
+  public void test_scope02() {
+    ExpressionEngine engine = new ExpressionEngine() {
+      @Override
+      public Object visit(ConstantExpression expression) {
+        Object value = super.visit(expression);
+        return value instanceof Integer ? (Integer) value * 10 : value;
+      }
+    };
+    EvaluationContext context = new EvaluationContext(true);
+    Expression ex = new ExpressionParser().parse("let a = 1; { let b = a + 2; expose(b); } expose(a, b);");
+    engine.evaluate(context, ex);
+    assertEquals(10, context.getVariable("a"));
+    assertEquals(30, context.getVariable("b"));
+
+    EvaluationContext other = new EvaluationContext(true);
+    engine.compile(ex).evaluate(other);
+    assertEquals(30, other.getVariable("b"));
+
+    try {
+      engine.visit(ex);
+      fail("visiting outside evaluate should fail");
+    } catch (RuntimeException e) {
+      assertEquals("The engine can only visit expressions while it evaluates. Please call evaluate instead.", e.getMessage());
+    }
+  }
+
+  public void test_bind01() {
+    Expression ex = new ExpressionParser().parse("total = price * Quantity + tax; count = count + 1; flag = active;");
+    IEngine[] engines = new IEngine[] { new ExpressionEngine(), new CompiledEngine(), new TreeEngine() };
+    for (IEngine engine: engines) {
+      Order order = new Order();
+      order.price = 2.5;
+      order.setQuantity(4);
+      Map<String, Object> inputs = new HashMap<>();
+      inputs.put("tax", 1);
+      inputs.put("flag", false);
+
+      EvaluationContext root = new EvaluationContext(false);
+      root.bind(inputs);
+      EvaluationContext context = new EvaluationContext(root);
+      context.bind(order);
+      context.setLong("count", 1);
+      engine.evaluate(context, ex);
+      assertEquals(11.0, order.total);
+      assertEquals(2L, context.getLong("count"));
+      assertEquals(true, inputs.get("flag"));
+      assertEquals(11, context.getInt("total"));
+      assertTrue(context.getBoolean("active"));
+    }
+  }
+
+  public void test_bind02() {
+    Map<String, Object> inputs = new LinkedHashMap<>();
+    inputs.put("Price", 2);
+    inputs.put("QTY", 3);
+    EvaluationContext context = new EvaluationContext(false);
+    context.bind(inputs);
+    assertEquals(2, context.getVariable("price"));
+    assertEquals(3, context.getVariable("qty"));
+    assertNull(context.getVariable("missing"));
+
+    inputs.put("Tax", 1);
+    context.setVariable("TAX", 4);
+    assertEquals(4, inputs.get("Tax"));
+    assertFalse(inputs.containsKey("TAX"));
+  }
+
+  public void test_bind03() {
+    Symbol count = Symbol.of("Count");
+    EvaluationContext root = new EvaluationContext(false);
+    root.setLong(count, 1);
+    EvaluationContext context = new EvaluationContext(root);
+    context.setLong(count, 5);
+    context.setDouble(Symbol.of("ratio"), 0.5);
+    context.setBoolean(Symbol.of("ok"), true);
+    assertEquals(5L, root.getLong("count"));
+    assertFalse(context.values.containsKey(count.fold()));
+    assertEquals(5, context.getInt(count));
+    assertEquals(0.5, context.getDouble(Symbol.of("RATIO")));
+    assertTrue(context.getBoolean(Symbol.of("ok")));
+  }
+
+  public static class Order {
+    public double price;
+    public double total;
+    private int quantity;
+
+    public int getQuantity() {
+      return quantity;
+    }
+
+    public void setQuantity(int quantity) {
+      this.quantity = quantity;
+    }
+
+    public boolean isActive() {
+      return true;
+    }
+  }
+
+  public void test_function01() {
+    FunctionRegistry global = new FunctionRegistry();
+    FunctionRegistry tenant = new FunctionRegistry(global);
+    global.register("rate", (params) -> 2);
+    global.register("Scale", (params) -> (Integer) params[0] * 10);
+    Expression ex = new ExpressionParser().parse("result = SCALE(rate(0));");
+    List<CompiledScript> scripts = new ArrayList<>();
+    scripts.add(new TreeEngine(tenant).compile(ex));
+    scripts.add(new CompiledEngine(tenant).compile(ex));
+    scripts.add(new ExpressionEngine(tenant).compile(ex));
+
+    EvaluationContext context = new EvaluationContext(true);
+    context.newVariable("result", 0);
+    for (CompiledScript script: scripts) {
+      assertEquals(20, script.evaluate(context).getVariable("result"));
+    }
+
+    tenant.register("rate", (params) -> 3);
+    for (CompiledScript script: scripts) {
+      assertEquals(30, script.evaluate(context).getVariable("result"));
+    }
+
+    global.register("scale", (params) -> (Integer) params[0] * 100);
+    tenant.unregister("rate");
+    for (CompiledScript script: scripts) {
+      assertEquals(200, script.evaluate(context).getVariable("result"));
+    }
+  }
+
+  public void test_function02() {
+    FunctionRegistry registry = new FunctionRegistry();
+    registry.register("hypot", (IDoubleFunction2) Math::hypot);
+    registry.register("clamp", (IFunction3) (v, min, max) -> Math.max((Integer) min, Math.min((Integer) max, (Integer) v)));
+    registry.register("inc", (ILongFunction1) (v) -> v + 1);
+    registry.register("concat", (params) -> String.valueOf(params.length));
+    Expression ex = new ExpressionParser().parse("let i = 0; while (i < 3) { s = s + hypot(3, i + 4) + clamp(i * 10, 5, 15) + inc(i); i++; } n = concat(1, 2, 3, 4, 5);");
+    IEngine[] engines = new IEngine[] { new ExpressionEngine(registry), new CompiledEngine(registry), new TreeEngine(registry) };
+    for (IEngine engine: engines) {
+      EvaluationContext context = new EvaluationContext(true);
+      context.newVariable("s", 0.0);
+      context.newVariable("n", null);
+      engine.evaluate(context, ex);
+      assertEquals(5.0 + 5 + 1 + Math.hypot(3, 5) + 10 + 2 + Math.hypot(3, 6) + 15 + 3, (Double) context.getVariable("s"), 1e-9);
+      assertEquals("5", context.getVariable("n"));
+    }
+  }
+
+  public void test_function03() {
+    FunctionRegistry registry = new FunctionRegistry();
+    registry.register("square", new Square());
+    registry.register("label", (params) -> "#" + params[0], 2, 0);
+    Expression ex = new ExpressionParser().parse("let i = 0; while (i < 6) { s = s + square(i % 3); t = label(i % 3); i++; }");
+    IEngine[] engines = new IEngine[] { new ExpressionEngine(registry), new CompiledEngine(registry), new TreeEngine(registry) };
+    for (IEngine engine: engines) {
+      EvaluationContext context = new EvaluationContext(true);
+      context.newVariable("s", 0);
+      context.newVariable("t", null);
+      engine.evaluate(context, ex);
+      assertEquals(10, context.getVariable("s"));
+      assertEquals("#2", context.getVariable("t"));
+    }
+
+    MemoizedFunction square = (MemoizedFunction) registry.find(Symbol.of("square"));
+    MemoizedFunction label = (MemoizedFunction) registry.find(Symbol.of("label"));
+    assertEquals(3, square.getMissCount());
+    assertEquals(15, square.getHitCount());
+    assertEquals(3, Square.calls.get());
+    assertEquals(2, label.size());
+    assertEquals(18, label.getMissCount());
+    assertEquals(16, label.getEvictionCount());
+  }
+
+  @Pure(cacheSize = 16)
+  public static class Square implements IFunction1 {
+    static final AtomicInteger calls = new AtomicInteger();
+
+    @Override
+    public Object evaluate(Object value) {
+      calls.incrementAndGet();
+      return (Integer) value * (Integer) value;
+    }
+  }
+
+  public void test_function04() {
+    FunctionRegistry registry = new FunctionRegistry();
+    AtomicInteger calls = new AtomicInteger();
+    registry.register("twice", (ILongFunction1) (a) -> {
+      calls.incrementAndGet();
+      return a * 2;
+    }, 1024, 0);
+    IFunction function = registry.find(Symbol.of("twice"));
+    assertTrue(function instanceof ILongFunction1);
+    assertEquals(8L, ((ILongFunction1) function).evaluate(4L));
+    assertEquals(8L, function.evaluate(4));
+
+    EvaluationContext context = new EvaluationContext(true);
+    new TreeEngine(registry).evaluate(context, "let i = 0; let s = 0L; while (i < 100) { s = s + twice(i % 10); i++; } expose(s);");
+    assertEquals(900L, context.getVariable("s"));
+    assertEquals(10, calls.get());
+    assertEquals(10, ((MemoizedFunction) function).size());
+  }
+
+  public void test_function05() {
+    AtomicInteger resolves = new AtomicInteger();
+    FunctionRegistry tenant = new FunctionRegistry();
+    tenant.register("twice", (params) -> (Integer) params[0] * 2);
+    FunctionRegistry child = new FunctionRegistry(tenant) {
+      @Override
+      public IFunction getFunction(Symbol name) {
+        resolves.incrementAndGet();
+        return super.getFunction(name);
+      }
+    };
+    Expression ex = new ExpressionParser().parse("a = twice(a);");
+    ExpressionEngine engine = new ExpressionEngine(child);
+    EvaluationContext context = new EvaluationContext(true);
+    context.newVariable("a", 1);
+    engine.evaluate(context, ex);
+    engine.evaluate(context, ex);
+    assertEquals(4, context.getVariable("a"));
+    assertEquals(1, resolves.get());
+
+    new FunctionRegistry().register("twice", (params) -> (Integer) params[0] * 3);
+    engine.evaluate(context, ex);
+    assertEquals(8, context.getVariable("a"));
+    assertEquals(1, resolves.get());
+
+    tenant.register("twice", (params) -> (Integer) params[0] * 3);
+    engine.evaluate(context, ex);
+    assertEquals(24, context.getVariable("a"));
+    assertEquals(2, resolves.get());
+  }
+
+  public void test_builtin01() {
+    FunctionRegistry registry = new FunctionRegistry();
+    Expression ex = new ExpressionParser().parse("a = min(3, 7) + max(2L, 5) + abs(-4); b = sqrt(16) + pow(2, 3) + floor(2.7) + round(2.5); "
+        + "c = len(name) + indexOf(name, \"lo\"); d = upper(substr(name, 1, 3)) + trim(\" x \");");
+    IEngine[] engines = new IEngine[] { new ExpressionEngine(registry), new CompiledEngine(registry), new TreeEngine(registry) };
+    for (IEngine engine: engines) {
+      EvaluationContext context = new EvaluationContext(true);
+      context.newVariable("name", "hello");
+      context.newVariable("a", null);
+      context.newVariable("b", null);
+      context.newVariable("c", null);
+      context.newVariable("d", null);
+      engine.evaluate(context, ex);
+      assertEquals(12, context.getVariable("a"));
+      assertEquals(17.0, context.getVariable("b"));
+      assertEquals(8, context.getVariable("c"));
+      assertEquals("ELLx", context.getVariable("d"));
+    }
+
+    CompiledScript script = new TreeEngine(registry).compile(new ExpressionParser().parse("r = sqrt(x);"));
+    EvaluationContext context = new EvaluationContext(true);
+    context.newVariable("x", 9);
+    context.newVariable("r", null);
+    assertEquals(3.0, script.evaluate(context).getVariable("r"));
+    registry.register("sqrt", (IFunction1) (value) -> "overridden");
+    assertEquals("overridden", script.evaluate(context).getVariable("r"));
+  }
+
+  public void test_async01() {
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      FunctionRegistry registry = new FunctionRegistry();
+      Expression ex = new ExpressionParser().parse("let a = lookup(1); let b = lookup(2); let c = lookup(3) * lookup(4); total = a + b + c; flag = lookup(5) > 0;");
+      IEngine[] engines = new IEngine[] { new ExpressionEngine(registry), new CompiledEngine(registry), new TreeEngine(registry) };
+      for (IEngine engine: engines) {
+        CountDownLatch latch = new CountDownLatch(4);
+        registry.register("lookup", new AsyncFunction((params) -> {
+          int key = (Integer) params[0];
+          if (key < 5) {
+            latch.countDown();
+            try {
+              if (!latch.await(5, TimeUnit.SECONDS)) {
+                return -100;
+              }
+            } catch (InterruptedException e) {
+              throw new RuntimeException(e);
+            }
+          }
+          return key * 10;
+        }, executor));
+
+        EvaluationContext context = new EvaluationContext(true);
+        context.newVariable("total", null);
+        context.newVariable("flag", null);
+        engine.evaluate(context, ex);
+        assertEquals(1230, context.getVariable("total"));
+        assertEquals(true, context.getVariable("flag"));
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  public void test_batch01() {
+    Expression ex = new ExpressionParser().parse("let t = price * qty; total = t + fee; big = t > 100.0 && flag; score = sqrt(qty) + (flag ? 1 : 0); label = upper(name); bucket = qty / step;");
+    int[] qty = new int[] { 1, 4, 9, 16 };
+    double[] price = new double[] { 10.0, 30.0, 5.0, 12.5 };
+    boolean[] flag = new boolean[] { true, true, false, true };
+    String[] name = new String[] { "a", "b", "c", "d" };
+    long[] fee = new long[] { 1L, 2L, 3L, 4L };
+
+    Batch batch = new Batch(4);
+    batch.bind("qty", qty);
+    batch.bind("price", price);
+    batch.bind("flag", flag);
+    batch.bind("name", name);
+    batch.bind("fee", fee);
+    batch.bind("step", new int[] { 1, 2, 3, 4 });
+    new BatchEngine().evaluate(batch, ex);
+    assertTrue(batch.getColumn("total") instanceof double[]);
+    assertTrue(batch.getColumn("big") instanceof boolean[]);
+    assertTrue(batch.getColumn("bucket") instanceof int[]);
+
+    IEngine engine = new ExpressionEngine();
+    for (int i = 0; i < 4; i++) {
+      EvaluationContext context = new EvaluationContext(true);
+      context.newVariable("qty", qty[i]);
+      context.newVariable("price", price[i]);
+      context.newVariable("flag", flag[i]);
+      context.newVariable("name", name[i]);
+      context.newVariable("fee", fee[i]);
+      context.newVariable("step", i + 1);
+      for (String output: new String[] { "total", "big", "score", "label", "bucket" }) {
+        context.newVariable(output, null);
+      }
+      engine.evaluate(context, ex);
+      assertEquals(context.getVariable("total"), batch.getDoubles("total")[i]);
+      assertEquals(context.getVariable("big"), batch.getBooleans("big")[i]);
+      assertEquals(context.getVariable("score"), batch.getDoubles("score")[i]);
+      assertEquals(context.getVariable("label"), batch.getObjects("label")[i]);
+      assertEquals(context.getVariable("bucket"), batch.getInts("bucket")[i]);
+    }
+
+    Batch zero = new Batch(2);
+    zero.bind("a", new int[] { 4, 6 });
+    zero.bind("b", new int[] { 2, 0 });
+    new BatchEngine().evaluate(zero, new ExpressionParser().parse("c = b == 0 ? -1 : a / b;"));
+    assertEquals(2, zero.getInts("c")[0]);
+    assertEquals(-1, zero.getInts("c")[1]);
+  }
+
+  public void test_batch02() {
+    Expression ex = new ExpressionParser().parse("x = flag ? upper(name) : \"\"; y = flag && len(name) > 1; z = !flag || len(name) == 1;");
+    boolean[] flag = new boolean[] { true, false, true, false };
+    String[] name = new String[] { "ab", null, "c", null };
+    Batch batch = new Batch(4);
+    batch.bind("flag", flag);
+    batch.bind("name", name);
+    new BatchEngine().evaluate(batch, ex);
+    assertEquals("[AB, , C, ]", Arrays.toString(batch.getObjects("x")));
+    assertEquals("[true, false, false, false]", Arrays.toString(batch.getBooleans("y")));
+    assertEquals("[false, true, true, true]", Arrays.toString(batch.getBooleans("z")));
+  }
+
+  public void test_batch03() {
+    AtomicInteger ticks = new AtomicInteger();
+    FunctionRegistry registry = new FunctionRegistry();
+    registry.register("tick", (params) -> {
+      ticks.incrementAndGet();
+      return params[0];
+    });
+    Batch batch = new Batch(3);
+    batch.bind("x", new int[] { 1, 2, 3 });
+    new BatchEngine(registry).evaluate(batch, new ExpressionParser().parse("y = tick(x); x++;"));
+    assertEquals(3, ticks.get());
+    assertEquals("[1, 2, 3]", Arrays.toString(batch.getInts("y")));
+    assertEquals("[2, 3, 4]", Arrays.toString(batch.getInts("x")));
+
+    Batch zero = new Batch(2);
+    zero.bind("a", new int[] { 4, 6 });
+    zero.bind("b", new int[] { 2, 0 });
+    try {
+      new BatchEngine(registry).evaluate(zero, new ExpressionParser().parse("c = tick(a) / b;"));
+      fail("division by zero should propagate");
+    } catch (ArithmeticException e) {
+      assertEquals(5, ticks.get());
+    }
+  }
+
+  public void test_batch04() {
+    Batch batch = new Batch(3);
+    batch.bind("x", new int[] { 1, -1, 2 });
+    new BatchEngine().evaluate(batch, new ExpressionParser().parse("if (x > 0) { let k = x * 2; y = k; } else if (x < 0) { z = 0; while (z < 2) { z = z + 1; } }"));
+    assertEquals("[2, null, 4]", Arrays.toString(batch.getObjects("y")));
+    assertEquals("[null, 2, null]", Arrays.toString(batch.getObjects("z")));
+    assertFalse(batch.exist("k"));
+  }
+
+  public void test_accessor01() {
+    Expression ex = new ExpressionParser().parse("node.count += 2; node.child.count = node.values[1] * 10; node.values[0] += 5; node.child.label = upper(node.label); total = node.child.count + node.values[0];");
+    IEngine[] engines = new IEngine[] { new ExpressionEngine(), new CompiledEngine(), new TreeEngine() };
+    for (IEngine engine: engines) {
+      for (int i = 0; i < 2; i++) {
+        Node node = new Node();
+        node.count = 1;
+        node.values = new int[] { 1, 2 };
+        node.child = new Node();
+        node.setLabel("root");
+
+        EvaluationContext context = new EvaluationContext(true);
+        context.newVariable("node", node);
+        context.newVariable("total", null);
+        engine.evaluate(context, ex);
+        assertEquals(3, node.count);
+        assertEquals(20, node.child.count);
+        assertEquals(6, node.values[0]);
+        assertEquals("ROOT", node.child.getLabel());
+        assertEquals(26, context.getVariable("total"));
+      }
+    }
+  }
+
+  public void test_accessor02() {
+    Expression ex = new ExpressionParser().parse("order.total = order.items[0].price * order.items[0].qty + order.items[1][\"price\"]; order.items[1].qty += 1; code = order.sku[0]; count = order.items.length + order.sku.length; order[\"tag\"] = upper(order.sku);");
+    IEngine[] engines = new IEngine[] { new ExpressionEngine(), new CompiledEngine(), new TreeEngine() };
+    for (IEngine engine: engines) {
+      List<Map<String, Object>> items = new ArrayList<>();
+      items.add(new HashMap<>());
+      items.get(0).put("price", 2.5);
+      items.get(0).put("qty", 4);
+      items.add(new LinkedHashMap<>());
+      items.get(1).put("price", 1.0);
+      items.get(1).put("qty", 1);
+      Map<String, Object> order = new HashMap<>();
+      order.put("items", items);
+      order.put("sku", "ab12");
+
+      EvaluationContext context = new EvaluationContext(true);
+      context.newVariable("order", order);
+      context.newVariable("code", null);
+      context.newVariable("count", null);
+      engine.evaluate(context, ex);
+      assertEquals(11.0, order.get("total"));
+      assertEquals(2, items.get(1).get("qty"));
+      assertEquals("a", context.getVariable("code"));
+      assertEquals(6, context.getVariable("count"));
+      assertEquals("AB12", order.get("tag"));
+    }
+  }
+
+  public void test_accessor03() {
+    Expression ex = new ExpressionParser().parse("let s = 0.0; let i = 0; while (i < n) { s += features[i] * weights[i]; counts[i] += 1; i++; } score = s; flags[1] = s > 1.0; names[1] = upper(names[0]); big[0] = big[0] * 2;");
+    IEngine[] engines = new IEngine[] { new ExpressionEngine(), new CompiledEngine(), new TreeEngine() };
+    for (IEngine engine: engines) {
+      int[] counts = new int[] { 1, 2, 3 };
+      boolean[] flags = new boolean[2];
+      String[] names = new String[] { "a", null };
+      long[] big = new long[] { 5L };
+
+      EvaluationContext context = new EvaluationContext(true);
+      context.newVariable("n", 3);
+      context.newVariable("features", new double[] { 0.5, 1.5, 2.0 });
+      context.newVariable("weights", new double[] { 2.0, 2.0, 2.0 });
+      context.newVariable("counts", counts);
+      context.newVariable("flags", flags);
+      context.newVariable("names", names);
+      context.newVariable("big", big);
+      context.newVariable("score", null);
+      engine.evaluate(context, ex);
+      assertEquals(8.0, context.getVariable("score"));
+      assertEquals("[2, 3, 4]", Arrays.toString(counts));
+      assertTrue(flags[1]);
+      assertEquals("A", names[1]);
+      assertEquals(10L, big[0]);
+    }
+  }
+
+  public void test_accessor04() {
+    Expression ex = new ExpressionParser().parse("zip = order.customer?.address?.zip; order.customer?.address.zip = 11; missing = order.none?.address.zip; name = order.customer?.name;");
+    IEngine[] engines = new IEngine[] { new ExpressionEngine(), new CompiledEngine(), new TreeEngine() };
+    for (IEngine engine: engines) {
+      for (int i = 0; i < 2; i++) {
+        Map<String, Object> address = new HashMap<>();
+        address.put("zip", 10);
+        Map<String, Object> customer = new HashMap<>();
+        customer.put("address", address);
+        customer.put("name", "n");
+        Map<String, Object> order = new HashMap<>();
+        order.put("customer", i == 0 ? customer : null);
+
+        EvaluationContext context = new EvaluationContext(true);
+        context.newVariable("order", order);
+        for (String output: new String[] { "zip", "missing", "name" }) {
+          context.newVariable(output, null);
+        }
+        engine.evaluate(context, ex);
+        assertEquals(i == 0 ? 10 : null, context.getVariable("zip"));
+        assertEquals(i == 0 ? 11 : 10, address.get("zip"));
+        assertEquals(i == 0 ? "n" : null, context.getVariable("name"));
+        assertNull(context.getVariable("missing"));
+      }
+    }
+  }
+
+  public void test_accessor05() {
+    String[] scripts = new String[] { "counts[0] = null;", "counts[0] = \"x\";", "flags[0] = 1;", "names[0] = 1;" };
+    String[] messages = new String[] {
+        "The [0] element of int can not be assigned. value: null",
+        "The [0] element of int can not be assigned. value: x",
+        "The [0] element of boolean can not be assigned. value: 1",
+        "The [0] element of java.lang.String can not be assigned. value: 1" };
+    IEngine[] engines = new IEngine[] { new ExpressionEngine(), new CompiledEngine(), new TreeEngine() };
+    for (IEngine engine: engines) {
+      for (int i = 0; i < scripts.length; i++) {
+        EvaluationContext context = new EvaluationContext(true);
+        context.newVariable("counts", new int[1]);
+        context.newVariable("flags", new boolean[1]);
+        context.newVariable("names", new String[1]);
+        try {
+          engine.evaluate(context, new ExpressionParser().parse(scripts[i]));
+          fail(scripts[i]);
+        } catch (RuntimeException e) {
+          assertEquals(messages[i], e.getMessage());
+        }
+      }
+    }
+  }
+
+  public void test_record01() {
+    Expression ex = new ExpressionParser().parse("ok = active && price * qty > 100.0; price = price * 2; id += 1;");
+    RecordSchema schema = new RecordSchema().addInt("id", 0).addDouble("price", 4).addLong("qty", 12).addBoolean("active", 20).setRecordSize(24);
+    IEngine[] engines = new IEngine[] { new ExpressionEngine(), new CompiledEngine(), new TreeEngine() };
+    for (IEngine engine: engines) {
+      ByteBuffer[] buffers = new ByteBuffer[] { ByteBuffer.allocate(72), ByteBuffer.allocateDirect(72).order(ByteOrder.LITTLE_ENDIAN) };
+      for (ByteBuffer buffer: buffers) {
+        for (int i = 0; i < 3; i++) {
+          buffer.putInt(i * 24, i);
+          buffer.putDouble(i * 24 + 4, 10.0 * (i + 1));
+          buffer.putLong(i * 24 + 12, 5L);
+          buffer.put(i * 24 + 20, (byte) (i == 1 ? 0 : 1));
+        }
+
+        BufferRecord record = schema.bind(buffer);
+        EvaluationContext context = new EvaluationContext(true);
+        context.bind(record);
+        context.newVariable("ok", null);
+        boolean[] results = new boolean[record.count()];
+        for (int i = 0; i < results.length; i++) {
+          record.moveTo(i);
+          engine.evaluate(context, ex);
+          results[i] = (Boolean) context.getVariable("ok");
+        }
+        assertEquals("[false, false, true]", Arrays.toString(results));
+        record.moveTo(2);
+        assertEquals(60.0, record.getDouble("price"));
+        assertEquals(3, record.getInt("id"));
+        assertEquals(5L, record.getLong("qty"));
+      }
+    }
+  }
+
+  public void test_pipeline01() throws Exception {
+    Path input = Files.createTempFile("pipeline", ".csv");
+    Path output = Files.createTempFile("pipeline", ".out");
+    try {
+      StringBuilder csv = new StringBuilder("id,price,qty,name\r\n");
+      StringBuilder expected = new StringBuilder("total,flag,label\n");
+      for (int i = 0; i < 10; i++) {
+        csv.append(i).append(',').append(i + 0.5).append(',').append(2).append(",\"n, ").append(i).append("\"\r\n");
+        expected.append((i + 0.5) * 2).append(',').append((i + 0.5) * 2 > 10.0).append(",\"N, ").append(i).append("\"\n");
+      }
+      Files.write(input, csv.toString().getBytes(StandardCharsets.UTF_8));
+
+      CompiledScript script = new TreeEngine().compile("total = price * qty; flag = total > 10.0; label = upper(name);");
+      Pipeline pipeline = new Pipeline(script, Arrays.asList("total", "flag", "label")).setThreads(3).setBatchSize(2);
+      try (Writer writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+        assertEquals(10, pipeline.run(input, writer));
+      }
+      assertEquals(expected.toString(), new String(Files.readAllBytes(output), StandardCharsets.UTF_8));
+
+      Files.write(input, "Id,PRICE,Qty,Name\n1,2.5,4,a\n2,1.0,3,b\n".getBytes(StandardCharsets.UTF_8));
+      pipeline = new Pipeline(script, Arrays.asList("total", "flag", "label")).setCaseSensitive(false);
+      StringWriter folded = new StringWriter();
+      assertEquals(2, pipeline.run(input, folded));
+      assertEquals("total,flag,label\n10.0,false,A\n3.0,false,B\n", folded.toString());
+
+      Files.write(input, "price,qty,name\n1,2,\"a\nb\"\n2,2,c\n".getBytes(StandardCharsets.UTF_8));
+      pipeline = new Pipeline(script, Arrays.asList("label", "total", "flag"));
+      StringWriter multiline = new StringWriter();
+      assertEquals(2, pipeline.run(input, multiline));
+      assertEquals("label,total,flag\n\"A\nB\",2,false\nC,4,false\n", multiline.toString());
+      Files.write(output, multiline.toString().getBytes(StandardCharsets.UTF_8));
+      pipeline = new Pipeline(new TreeEngine().compile("text = lower(label);"), Arrays.asList("text"));
+      StringWriter roundTrip = new StringWriter();
+      assertEquals(2, pipeline.run(output, roundTrip));
+      assertEquals("text\n\"a\nb\"\nc\n", roundTrip.toString());
+
+      Files.write(input, "price,qty,name\n1,2,\"a\n".getBytes(StandardCharsets.UTF_8));
+      try {
+        new Pipeline(script, Arrays.asList("label", "total", "flag")).run(input, new StringWriter());
+        fail("an unclosed quote should fail");
+      } catch (RuntimeException e) {
+        assertEquals("The quoted field at line 2 is not closed.", e.getMessage());
+      }
+
+      Files.write(input, "{\"a\": {\"b\": 2}, \"c\": [1, 2, 3]}\n\n{\"a\": {\"b\": -1.5}, \"c\": [0, 0, 4]}".getBytes(StandardCharsets.UTF_8));
+      script = new CompiledEngine().compile("s = a.b * c[2]; t = \"x\\\"y\";");
+      pipeline = new Pipeline(script, Arrays.asList("s", "t")).setFormat(Pipeline.FORMAT_JSONL);
+      StringWriter writer = new StringWriter();
+      assertEquals(2, pipeline.run(input, writer));
+      assertEquals("{\"s\":6,\"t\":\"x\\\"y\"}\n{\"s\":-6.0,\"t\":\"x\\\"y\"}\n", writer.toString());
+    } finally {
+      Files.delete(input);
+      Files.delete(output);
+    }
+  }
+
+  public void test_accessor06() {
+    Expression ex = new ExpressionParser().parse("holder.child.count += 2; holder.child.count++; total = holder.child.count;");
+    IEngine[] engines = new IEngine[] { new ExpressionEngine(), new CompiledEngine(), new TreeEngine() };
+    for (IEngine engine: engines) {
+      Holder holder = new Holder();
+      holder.child = new Node();
+      holder.child.count = 1;
+
+      EvaluationContext context = new EvaluationContext(true);
+      context.newVariable("holder", holder);
+      context.newVariable("total", null);
+      engine.evaluate(context, ex);
+      assertEquals(4, holder.child.count);
+      assertEquals(4, context.getVariable("total"));
+      assertEquals(3, holder.reads);
+    }
+  }
+
+  public static class Holder {
+    private Node child;
+    private int reads;
+
+    public Node getChild() {
+      this.reads++;
+      return child;
+    }
+  }
+
+  public static class Node {
+    public int count;
+    public int[] values;
+    public Node child;
+    private String label;
+
+    public String getLabel() {
+      return label;
+    }
+
+    public void setLabel(String label) {
+      this.label = label;
+    }
+  }
+
+  public void test_concurrent01() throws Exception {
+    Expression ex = new ExpressionParser().parse("let s = 0; let i = 0; while (i < n) { s += i; i++; } { let r = s * 2; expose(r); } result = r; ");
+    List<CompiledScript> scripts = new ArrayList<>();
+    scripts.add(new TreeEngine().compile(ex));
+    scripts.add(new CompiledEngine().compile(ex));
+    scripts.add(new ExpressionEngine().compile(ex));
+    IEngine engine = new ExpressionEngine();
+
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<Boolean>> futures = new ArrayList<>();
+      for (int i = 0; i < 64; i++) {
+        int n = i % 16;
+        CompiledScript script = scripts.get(i % scripts.size());
+        Callable<Boolean> task = () -> {
+          for (int j = 0; j < 50; j++) {
+            EvaluationContext context = new EvaluationContext(true);
+            context.newVariable("n", n);
+            context.newVariable("result", 0);
+            if (j % 2 == 0) {
+              script.evaluate(context);
+            } else {
+              engine.evaluate(context, ex);
+            }
+            if (!Integer.valueOf(n * (n - 1)).equals(context.getVariable("result"))) {
+              return false;
+            }
+          }
+          return true;
+        };
+        futures.add(executor.submit(task));
+      }
+      for (Future<Boolean> future: futures) {
+        assertTrue(future.get());
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+}
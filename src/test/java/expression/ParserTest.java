@@ -2,9 +2,25 @@ package expression;
 
 import junit.framework.TestCase;
 import org.xq.expression.*;
+import org.xq.expression.envaluation.CompiledEngine;
 import org.xq.expression.envaluation.EvaluationContext;
+import org.xq.expression.envaluation.ExpressionCompiler;
 import org.xq.expression.envaluation.ExpressionEngine;
+import org.xq.expression.envaluation.ExpressionOptimizer;
+import org.xq.expression.envaluation.TreeEngine;
+import org.xq.expression.expressions.AssignExpression;
 import org.xq.expression.expressions.Expression;
+import org.xq.expression.expressions.ScopeExpression;
+import org.xq.expression.expressions.VariableExpression;
+import org.xq.expression.token.Tokenizer;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class ParserTest extends TestCase {
   public void test_parser01() {
@@ -79,6 +95,47 @@ public class ParserTest extends TestCase {
     assertEquals("let a = 1;\r\nlet b = 5;\r\nexpose(a, b);", builder.build(ex));
   }
 
+  public void test_parser13() {
+    Expression ex = new ExpressionParser().parse("let a = b - (c - d) * e + f % g;");
+    ExpressionBuilder builder = new ExpressionBuilder();
+    assertEquals("let a = b - (c - d) * e + f % g;", builder.build(ex));
+  }
+
+  public void test_parser14() {
+    Expression ex = new ExpressionParser().parse("let a = (b > c ? d : e) ? f : g > h ? i : j;");
+    ExpressionBuilder builder = new ExpressionBuilder();
+    assertEquals("let a = (b > c ? d : e) ? f : g > h ? i : j;", builder.build(ex));
+  }
+
+  public void test_parser15() {
+    Expression ex = new ExpressionParser().parse("let a = ((b + c)) * - d;");
+    ExpressionBuilder builder = new ExpressionBuilder();
+    assertEquals("let a = (b + c) * - d;", builder.build(ex));
+  }
+
+  public void test_parser16() {
+    Expression ex = new ExpressionParser().parse("a.b[0].c = m[1][2];");
+    ExpressionBuilder builder = new ExpressionBuilder();
+    assertEquals("a.b[0].c = m[1][2];", builder.build(ex));
+  }
+
+  public void test_parser17() {
+    Expression ex = new ExpressionParser().parse("a = b?.c.d ? e : f;");
+    ExpressionBuilder builder = new ExpressionBuilder();
+    assertEquals("a = b?.c.d ? e : f;", builder.build(ex));
+  }
+
+  public void test_parser18() {
+    Expression ex = new ExpressionParser().parse("a = b + 1;\r\n\t ");
+    ExpressionBuilder builder = new ExpressionBuilder();
+    assertEquals("a = b + 1;", builder.build(ex));
+
+    Tokenizer tokenizer = new Tokenizer("a \n");
+    assertEquals("a", tokenizer.next().getValue());
+    assertSame(Tokenizer.EOF, tokenizer.lookNext());
+    assertSame(Tokenizer.EOF, tokenizer.next());
+  }
+
   public void test_evaluation01() {
     EvaluationContext context = new EvaluationContext(true);
     Expression ex = new ExpressionParser().parse("let a = 1; let b = 5; expose(a, b);");
@@ -195,4 +252,221 @@ public class ParserTest extends TestCase {
     engine.evaluate(context, ex);
     assertEquals(4.0, context.getVariable("b"));
   }
+
+  public void test_cache01() {
+    ExpressionCache<Expression> cache = ExpressionCache.ofParser(2);
+    Expression first = cache.get("let a = 1;");
+    assertSame(first, cache.get("let a = 1;"));
+    cache.get("let b = 1;");
+    cache.get("let c = 1;");
+    assertEquals(2, cache.size());
+    assertEquals(1, cache.getHitCount());
+    assertEquals(3, cache.getMissCount());
+    assertEquals(1, cache.getEvictionCount());
+    assertNotSame(first, cache.get("let a = 1;"));
+  }
+
+  public void test_cache02() throws Exception {
+    AtomicInteger loads = new AtomicInteger();
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    ExpressionCache<Expression> cache = new ExpressionCache<>(16, true, (source) -> {
+      loads.incrementAndGet();
+      started.countDown();
+      try {
+        release.await(5, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        throw new RuntimeException(e);
+      }
+      return new ExpressionParser().parse(source);
+    });
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      Future<Expression> first = executor.submit(() -> cache.get("let a = 1;"));
+      started.await(5, TimeUnit.SECONDS);
+      Future<Expression> second = executor.submit(() -> cache.get("let a = 1;"));
+      Future<Expression> third = executor.submit(() -> cache.get("let a = 1;"));
+      Thread.sleep(50);
+      release.countDown();
+      assertSame(first.get(), second.get());
+      assertSame(first.get(), third.get());
+      assertEquals(1, loads.get());
+      assertEquals(1, cache.getMissCount());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  public void test_cache03() {
+    TreeEngine engine = new TreeEngine();
+    EvaluationContext context = new EvaluationContext(true);
+    engine.evaluate(context, "let a = 2 * 3; expose(a);");
+    EvaluationContext other = new EvaluationContext(true);
+    engine.evaluate(other, "let a = 2 * 3; expose(a);");
+    assertEquals(6, context.getVariable("a"));
+    assertEquals(6, other.getVariable("a"));
+    assertEquals(1, engine.getSourceCache().getMissCount());
+    assertEquals(1, engine.getSourceCache().getHitCount());
+  }
+
+  public void test_cache04() {
+    CompiledEngine engine = new CompiledEngine(ExpressionCompiler::new, 2);
+    Expression ex = new ExpressionParser().parse("let a = 2 * 3; expose(a);");
+    assertSame(engine.compile(ex), engine.compile(ex));
+    engine.compile(new ExpressionParser().parse("let a = 2 * 3; expose(a);"));
+    engine.compile(new ExpressionParser().parse("let b = 1;"));
+    assertEquals(2, engine.getScriptCache().size());
+    assertEquals(3, engine.getScriptCache().getMissCount());
+    assertEquals(1, engine.getScriptCache().getHitCount());
+    assertEquals(1, engine.getScriptCache().getEvictionCount());
+  }
+
+  public void test_cache05() throws Exception {
+    CountDownLatch started = new CountDownLatch(1);
+    ExpressionCache<Expression> cache = new ExpressionCache<>(16, (source) -> {
+      started.countDown();
+      try {
+        Thread.sleep(50);
+      } catch (InterruptedException e) {
+        throw new RuntimeException(e);
+      }
+      throw new StackOverflowError(source);
+    });
+
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      Future<Expression> first = executor.submit(() -> cache.get("let a = 1;"));
+      started.await(5, TimeUnit.SECONDS);
+      Future<Expression> second = executor.submit(() -> cache.get("let a = 1;"));
+      for (Future<Expression> future: Arrays.asList(first, second)) {
+        try {
+          future.get(5, TimeUnit.SECONDS);
+          fail("the loader error should propagate");
+        } catch (java.util.concurrent.ExecutionException e) {
+          assertTrue(e.getCause() instanceof StackOverflowError);
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    ExpressionCache<Expression>[] holder = new ExpressionCache[1];
+    holder[0] = new ExpressionCache<>(16, (source) -> holder[0].get(source));
+    try {
+      holder[0].get("let a = 1;");
+      fail("a recursive load should fail");
+    } catch (RuntimeException e) {
+      assertEquals("The cache loader recursively requires let a = 1;.", e.getMessage());
+    }
+  }
+
+  public void test_evaluation14() {
+    EvaluationContext context = new EvaluationContext(true);
+    Expression ex = new ExpressionParser().parse("let a = 1; let c = 1; let b = a < 3 ? 2 + 3 : c > 1 ? 2 : 1; let d = 10 - 4 - 3; let e = 2 + 3 * 4; expose(b, d, e);");
+    ExpressionEngine engine = new ExpressionEngine();
+    engine.evaluate(context, ex);
+    assertEquals(5, context.getVariable("b"));
+    assertEquals(3, context.getVariable("d"));
+    assertEquals(14, context.getVariable("e"));
+  }
+
+  public void test_evaluation15() {
+    EvaluationContext context = new EvaluationContext(true);
+    Expression ex = new ExpressionParser().parse("let a = 1; let b = a > 1 && (a ++) > 0; let c = a == 1 || (a ++) > 0; expose(a, b, c);");
+    ExpressionEngine engine = new ExpressionEngine();
+    engine.evaluate(context, ex);
+    assertEquals(1, context.getVariable("a"));
+    assertEquals(false, context.getVariable("b"));
+    assertEquals(true, context.getVariable("c"));
+  }
+
+  public void test_evaluation16() {
+    EvaluationContext context = new EvaluationContext(true);
+    Expression ex = new ExpressionParser().parse("let a = 7; let b = 2; b *= a - b - 1; b -= a / b; let c = 2.5 * 2 - 1; expose(b, c);");
+    ExpressionEngine engine = new ExpressionEngine();
+    engine.evaluate(context, ex);
+    assertEquals(8, context.getVariable("b"));
+    assertEquals(4.0, context.getVariable("c"));
+  }
+
+  public void test_optimize01() {
+    Expression ex = new ExpressionParser().parse("let b = a < 3 ? 2 + 3 : -(4 - 1); let c = a * 1 + 0; let d = (a - 0) * (2 * 3 > 5);");
+    ExpressionOptimizer optimizer = new ExpressionOptimizer();
+    String output = new ExpressionBuilder().build(optimizer.optimize(ex));
+    assertEquals("let b = a < 3 ? 5 : -3;\r\nlet c = a * 1;\r\nlet d = (a - 0) * true;", output);
+    assertEquals(6, optimizer.getChanges().size());
+    assertEquals("Folded: 2 + 3 => 5", optimizer.getChanges().get(0));
+  }
+
+  public void test_optimize02() {
+    Expression ex = new ExpressionParser().parse("let a = 1; if (1 > 2) { a = 2; } else if (a > 0) { a = 3; } else if (true) { a = 4; } while (false) { a++; } let b = true || a; expose(a, b);");
+    ExpressionOptimizer optimizer = new ExpressionOptimizer();
+    Expression optimized = optimizer.optimize(ex);
+    assertEquals("let a = 1;\r\nif (a > 0){\r\n  a = 3;\r\n}else {\r\n  a = 4;\r\n}\r\nlet b = true;\r\nexpose(a, b);",
+        new ExpressionBuilder().build(optimized));
+    assertEquals(4, optimizer.getChanges().size());
+
+    EvaluationContext context = new EvaluationContext(true);
+    new ExpressionEngine().evaluate(context, optimized);
+    assertEquals(3, context.getVariable("a"));
+    assertEquals(true, context.getVariable("b"));
+  }
+
+  public void test_optimize03() {
+    EvaluationContext context = new EvaluationContext(true);
+    new TreeEngine().evaluate(context, "let a = 2; let b = a * 1; a = 5; expose(b);");
+    assertEquals(2, context.getVariable("b"));
+  }
+
+  public void test_optimize04() {
+    Expression ex = new ExpressionParser().parse("if (true) { let a = 1; expose(a); } let b = a; expose(b);");
+    EvaluationContext context = new EvaluationContext(true);
+    new ExpressionEngine().evaluate(context, new ExpressionOptimizer().optimize(ex));
+    assertNull(context.getVariable("b"));
+
+    ex = new ExpressionParser().parse("let s = \"str\"; let c = s * 1 - 0; let d = 2 * 1 - 0;");
+    ExpressionOptimizer optimizer = new ExpressionOptimizer();
+    assertEquals("let s = \"str\";\r\nlet c = s * 1;\r\nlet d = 2;", new ExpressionBuilder().build(optimizer.optimize(ex)));
+  }
+
+  public void test_literal01() {
+    EvaluationContext context = new EvaluationContext(true);
+    Expression ex = new ExpressionParser().parse("let a = 0x1F; let b = 10L; let c = 2.5e-1; let d = 1.25M; let e = 3000000000; let f = 0xFFFFFFFF; let g = 1.5F; let h = 2D; expose(a, b, c, d, e, f, g, h);");
+    new ExpressionEngine().evaluate(context, ex);
+    assertEquals(31, context.getVariable("a"));
+    assertEquals(10L, context.getVariable("b"));
+    assertEquals(0.25, context.getVariable("c"));
+    assertEquals(new java.math.BigDecimal("1.25"), context.getVariable("d"));
+    assertEquals(3000000000L, context.getVariable("e"));
+    assertEquals(-1, context.getVariable("f"));
+    assertEquals(1.5F, context.getVariable("g"));
+    assertEquals(2.0, context.getVariable("h"));
+  }
+
+  public void test_literal02() {
+    EvaluationContext context = new EvaluationContext(true);
+    Expression ex = new ExpressionParser().parse("let a = \"x\\\"y\" + 1; let b = 1-2; let c = \"ab\" == \"ab\"; expose(a, b, c);");
+    assertEquals("let a = \"x\\\"y\" + 1;\r\nlet b = 1 - 2;\r\nlet c = \"ab\" == \"ab\";\r\nexpose(a, b, c);", new ExpressionBuilder().build(ex));
+    new TreeEngine().evaluate(context, ex);
+    assertEquals("x\"y1", context.getVariable("a"));
+    assertEquals(-1, context.getVariable("b"));
+    assertEquals(true, context.getVariable("c"));
+  }
+
+  public void test_symbol01() {
+    assertSame(Symbol.of("Price"), Symbol.of("Price"));
+    assertSame(Symbol.of("price"), Symbol.of("PRICE").fold());
+    assertSame(Symbol.of("price"), Symbol.of("price").fold());
+
+    ScopeExpression ex = (ScopeExpression) new ExpressionParser().parse("Price = price * 2;");
+    AssignExpression assign = (AssignExpression) ex.getExpressions().get(0);
+    assertSame(Symbol.of("Price"), ((VariableExpression) assign.getVariable()).getSymbol());
+
+    EvaluationContext context = new EvaluationContext(false);
+    context.newVariable("PRICE", 3);
+    new ExpressionEngine().evaluate(context, ex);
+    assertEquals(6, context.getVariable(Symbol.of("price")));
+    assertTrue(context.values.containsKey(Symbol.of("price")));
+  }
 }